@@ -0,0 +1,56 @@
+package com.brunozambiazi.bookingsystem.benchmark;
+
+import com.brunozambiazi.bookingsystem.BookingSystemApplication;
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity;
+import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus;
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Boots the application without web server against its own in-memory database, for benchmarks.
+ */
+public final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(String... properties) {
+        String[] defaults = {
+                "spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID() + ";LOCK_TIMEOUT=30000",
+                "spring.datasource.hikari.maximum-pool-size=32",
+                "logging.level.root=WARN",
+                "logging.level.com.brunozambiazi=WARN",
+                "management.tracing.enabled=false"
+        };
+
+        return new SpringApplicationBuilder(BookingSystemApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(Stream.concat(Stream.of(defaults), Stream.of(properties)).toArray(String[]::new))
+                .run();
+    }
+
+    public static List<UUID> createProperties(ConfigurableApplicationContext context, int count) {
+        PropertyRepository propertyRepository = context.getBean(PropertyRepository.class);
+
+        List<PropertyEntity> properties = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            PropertyEntity property = new PropertyEntity();
+            property.setId(UUID.randomUUID());
+            property.setName("Benchmark House " + i);
+            property.setAddress("Benchmark Street, " + i);
+            property.setStatus(PropertyStatus.ACTIVE);
+            properties.add(property);
+        }
+
+        return propertyRepository.saveAll(properties)
+                .stream()
+                .map(PropertyEntity::getId)
+                .toList();
+    }
+}
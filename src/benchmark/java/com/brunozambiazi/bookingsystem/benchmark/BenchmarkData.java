@@ -0,0 +1,79 @@
+package com.brunozambiazi.bookingsystem.benchmark;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Seeds active properties and their calendars with JDBC batches, bypassing the services so that large data sets load
+ * in seconds. Calendars cover {@code [from, from + days)}: stays last 1 to 7 nights, 1 occupancy in 10 is a block of 1
+ * to 4 weeks and 1 booking in 20 is cancelled, separated by random gaps sized so that about {@code occupancy} of the
+ * nights are taken.
+ * <p>
+ * Data is written behind the back of the in-memory structures built at startup (occupancy index, day bitmaps), which
+ * have to be reloaded by benchmarks using them.
+ */
+public final class BenchmarkData {
+
+    private static final String GUESTS = "[{\"name\":\"Bench\",\"email\":\"bench@test.com\"},{\"name\":\"Mark\",\"email\":\"mark@test.com\"}]";
+    private static final int BATCH_SIZE = 5_000;
+
+    private BenchmarkData() {
+    }
+
+    public static List<UUID> seed(ConfigurableApplicationContext context, int properties, double occupancy, LocalDate from, int days) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        Random random = new Random(properties);
+        LocalDate end = from.plusDays(days);
+
+        List<UUID> propertyIds = new ArrayList<>(properties);
+        List<Object[]> propertyRows = new ArrayList<>();
+        List<Object[]> bookingRows = new ArrayList<>();
+        List<Object[]> blockRows = new ArrayList<>();
+
+        for (int i = 0; i < properties; i++) {
+            UUID propertyId = UUID.randomUUID();
+            propertyIds.add(propertyId);
+            propertyRows.add(new Object[]{propertyId, "Benchmark House " + i, "Benchmark Street, " + i});
+
+            LocalDate startAt = from.plusDays(random.nextInt(7));
+            while (occupancy > 0) {
+                boolean block = random.nextInt(10) == 0;
+                int nights = block ? 7 + random.nextInt(22) : 1 + random.nextInt(7);
+                LocalDate endAt = startAt.plusDays(nights);
+                if (endAt.isAfter(end)) {
+                    break;
+                }
+
+                if (block) {
+                    blockRows.add(new Object[]{UUID.randomUUID(), propertyId, startAt, endAt, "MAINTENANCE"});
+                } else {
+                    String status = random.nextInt(20) == 0 ? "CANCELLED" : "ACTIVE";
+                    bookingRows.add(new Object[]{UUID.randomUUID(), propertyId, startAt, endAt, GUESTS, status});
+                }
+                startAt = endAt.plusDays(Math.round(random.nextDouble() * 2 * nights * (1 - occupancy) / occupancy));
+            }
+
+            if (bookingRows.size() + blockRows.size() >= BATCH_SIZE || i == properties - 1) {
+                // in a transaction, as the virtual-threads profile turns auto-commit off
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.batchUpdate("INSERT INTO properties (id, name, address, status) VALUES (?, ?, ?, 'ACTIVE')", propertyRows);
+                    jdbcTemplate.batchUpdate("INSERT INTO bookings (id, property_id, start_at, end_at, guests, status) VALUES (?, ?, ?, ?, ? FORMAT JSON, ?)", bookingRows);
+                    jdbcTemplate.batchUpdate("INSERT INTO blocks (id, property_id, start_at, end_at, reason) VALUES (?, ?, ?, ?, ?)", blockRows);
+                });
+                propertyRows.clear();
+                bookingRows.clear();
+                blockRows.clear();
+            }
+        }
+
+        return propertyIds;
+    }
+}
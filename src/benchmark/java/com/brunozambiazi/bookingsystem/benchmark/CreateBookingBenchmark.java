@@ -0,0 +1,83 @@
+package com.brunozambiazi.bookingsystem.benchmark;
+
+import com.brunozambiazi.bookingsystem.api.dto.BookingResponse;
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest;
+import com.brunozambiazi.bookingsystem.api.dto.GuestDto;
+import com.brunozambiazi.bookingsystem.service.BookingService;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Latency of a full, uncontended {@link BookingService#createBooking} (status check, lock, overlap check, insert and
+ * commit) on properties whose next year is already booked at the given density. New bookings go right after the
+ * seeded year, so the overlap check walks the whole seeded calendar of the property and never fails. Compares the
+ * {@code CHECKED} write mode (overlap queries, then insert) with the {@code CONDITIONAL} one (a single
+ * {@code INSERT ... SELECT ... WHERE NOT EXISTS}).
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class CreateBookingBenchmark {
+
+    private static final int SEEDED_DAYS = 365;
+    private static final List<GuestDto> GUESTS = List.of(new GuestDto("Bench", "bench@test.com"));
+
+    @Param({"1000"})
+    public int properties;
+
+    @Param({"0.3", "0.8"})
+    public double occupancy;
+
+    @Param({"CHECKED", "CONDITIONAL"})
+    public String writeMode;
+
+    private ConfigurableApplicationContext context;
+    private BookingService bookingService;
+    private List<UUID> propertyIds;
+    private int[] nextNight;
+    private LocalDate firstNight;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApplication.start("booking.availability.write-mode=" + writeMode);
+        bookingService = context.getBean(BookingService.class);
+
+        LocalDate from = LocalDate.now().plusDays(1);
+        propertyIds = BenchmarkData.seed(context, properties, occupancy, from, SEEDED_DAYS);
+        nextNight = new int[properties];
+        firstNight = from.plusDays(SEEDED_DAYS);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public BookingResponse createBooking() {
+        int property = ThreadLocalRandom.current().nextInt(properties);
+        LocalDate startAt = firstNight.plusDays(nextNight[property]++);
+
+        return bookingService.createBooking(new CreateBookingRequest(propertyIds.get(property), startAt, startAt.plusDays(1), GUESTS));
+    }
+}
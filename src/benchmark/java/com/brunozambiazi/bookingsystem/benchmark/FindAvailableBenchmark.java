@@ -0,0 +1,66 @@
+package com.brunozambiazi.bookingsystem.benchmark;
+
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity;
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Latency of the {@code NOT EXISTS} availability query for a weekend in the middle of a seeded month, as the number of
+ * properties grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class FindAvailableBenchmark {
+
+    private static final int SEEDED_DAYS = 30;
+
+    @Param({"1000", "10000", "100000"})
+    public int properties;
+
+    @Param({"0.6"})
+    public double occupancy;
+
+    private ConfigurableApplicationContext context;
+    private PropertyRepository propertyRepository;
+    private LocalDate startAt;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApplication.start();
+        propertyRepository = context.getBean(PropertyRepository.class);
+
+        LocalDate from = LocalDate.now().plusDays(1);
+        BenchmarkData.seed(context, properties, occupancy, from, SEEDED_DAYS);
+        startAt = from.plusDays(SEEDED_DAYS / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<PropertyEntity> findAllAvailable() {
+        return propertyRepository.findAllAvailable(startAt, startAt.plusDays(2));
+    }
+}
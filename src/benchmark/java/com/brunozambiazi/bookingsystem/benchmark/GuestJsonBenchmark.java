@@ -0,0 +1,88 @@
+package com.brunozambiazi.bookingsystem.benchmark;
+
+import com.brunozambiazi.bookingsystem.api.dto.BookingResponse;
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest;
+import com.brunozambiazi.bookingsystem.api.dto.GuestDto;
+import com.brunozambiazi.bookingsystem.domain.entity.BookingEntity;
+import com.brunozambiazi.bookingsystem.service.mapper.BookingMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the guests JSON conversion done by {@link BookingMapper} on every booking written ({@code toEntity}) and
+ * read ({@code toResponse}), and of a whole {@code GET /api/bookings/{id}} body: with the stored guests JSON passed
+ * through ({@code responseJson}) or parsed into DTOs and serialized again ({@code responseJsonParsed}, what every read
+ * used to do). Run with {@code -prof gc} to compare allocations per operation.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GuestJsonBenchmark {
+
+    @Param({"1", "4", "12"})
+    public int guests;
+
+    private ObjectMapper objectMapper;
+    private ObjectReader guestsReader;
+    private BookingMapper bookingMapper;
+    private CreateBookingRequest request;
+    private BookingEntity entity;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper().findAndRegisterModules();
+        guestsReader = objectMapper.readerForListOf(GuestDto.class);
+        bookingMapper = new BookingMapper(objectMapper);
+
+        List<GuestDto> guestList = IntStream.range(0, guests)
+                .mapToObj(i -> new GuestDto("Guest " + i, "guest" + i + "@test.com"))
+                .toList();
+        LocalDate startAt = LocalDate.now().plusDays(1);
+        request = new CreateBookingRequest(UUID.randomUUID(), startAt, startAt.plusDays(3), guestList);
+        entity = bookingMapper.toEntity(request);
+    }
+
+    @Benchmark
+    public BookingEntity toEntity() {
+        return bookingMapper.toEntity(request);
+    }
+
+    @Benchmark
+    public BookingResponse toResponse() {
+        return bookingMapper.toResponse(entity);
+    }
+
+    @Benchmark
+    public byte[] responseJson() throws IOException {
+        return objectMapper.writeValueAsBytes(bookingMapper.toResponse(entity));
+    }
+
+    @Benchmark
+    public byte[] responseJsonParsed() throws IOException {
+        BookingResponse response = bookingMapper.toResponse(entity);
+        List<GuestDto> guests = guestsReader.readValue(entity.getGuests());
+        return objectMapper.writeValueAsBytes(new BookingResponse(response.id(), response.propertyId(), response.startAt(),
+                response.endAt(), guests, response.status(), response.createdAt(), response.updatedAt(),
+                response.cancelledAt(), response.rebookedAt()));
+    }
+}
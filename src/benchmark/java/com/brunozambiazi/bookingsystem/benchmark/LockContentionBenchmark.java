@@ -0,0 +1,87 @@
+package com.brunozambiazi.bookingsystem.benchmark;
+
+import com.brunozambiazi.bookingsystem.api.dto.BookingResponse;
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest;
+import com.brunozambiazi.bookingsystem.api.dto.GuestDto;
+import com.brunozambiazi.bookingsystem.service.BookingService;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Booking creation throughput under contention, for each lock strategy: {@code properties=1} puts every writer on a
+ * single hot property while {@code properties=1000} spreads them over many, and {@code months=12} spreads the writers
+ * of a property over twelve months of its calendar instead of one. Every booking takes a fresh night of its property
+ * so no write fails on overlap. {@code NONE} takes no lock and relies on the day slots of the {@code SLOTS}
+ * write mode instead.
+ */
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class LockContentionBenchmark {
+
+    private static final List<GuestDto> GUESTS = List.of(new GuestDto("Bench", "bench@test.com"));
+
+    @Param({"DATABASE", "STRIPED", "OPTIMISTIC", "NONE"})
+    public String strategy;
+
+    @Param({"1", "1000"})
+    public int properties;
+
+    @Param({"1", "12"})
+    public int months;
+
+    private ConfigurableApplicationContext context;
+    private BookingService bookingService;
+    private List<UUID> propertyIds;
+    private AtomicIntegerArray nextNight;
+    private LocalDate firstNight;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApplication.start(
+                "booking.lock.strategy=" + strategy,
+                "booking.availability.write-mode=" + ("NONE".equals(strategy) ? "SLOTS" : "CHECKED"));
+        bookingService = context.getBean(BookingService.class);
+        propertyIds = BenchmarkApplication.createProperties(context, properties);
+        nextNight = new AtomicIntegerArray(properties * months);
+        firstNight = LocalDate.now().plusMonths(1).withDayOfMonth(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public BookingResponse createBooking() {
+        int property = ThreadLocalRandom.current().nextInt(properties);
+        int month = ThreadLocalRandom.current().nextInt(months);
+        int night = nextNight.getAndIncrement(property * months + month);
+        LocalDate startAt = firstNight.plusMonths(month + (long) months * (night / 28)).plusDays(night % 28);
+
+        return bookingService.createBooking(new CreateBookingRequest(propertyIds.get(property), startAt, startAt.plusDays(1), GUESTS));
+    }
+}
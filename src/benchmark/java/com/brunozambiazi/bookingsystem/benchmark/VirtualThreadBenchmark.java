@@ -0,0 +1,110 @@
+package com.brunozambiazi.bookingsystem.benchmark;
+
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest;
+import com.brunozambiazi.bookingsystem.api.dto.GuestDto;
+import com.brunozambiazi.bookingsystem.service.BookingService;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Throughput of {@value #REQUESTS} concurrent {@link BookingService#createBooking} calls, as a burst of requests
+ * would reach the service from Tomcat: on a fixed pool of {@value #PLATFORM_THREADS} platform threads (the default
+ * Tomcat pool size) with the default configuration, or on one virtual thread per request with the
+ * {@code virtual-threads} profile. Half of the requests go to {@value #HOT_PROPERTIES} hot properties, so they queue
+ * on the property locks; each property books its nights in sequence, so no request fails on an overlap.
+ */
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class VirtualThreadBenchmark {
+
+    private static final int REQUESTS = 400;
+    private static final int PLATFORM_THREADS = 200;
+    private static final int HOT_PROPERTIES = 10;
+    private static final List<GuestDto> GUESTS = List.of(new GuestDto("Bench", "bench@test.com"));
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    public String threads;
+
+    @Param({"1000"})
+    public int properties;
+
+    @Param({"DATABASE", "STRIPED"})
+    public String lockStrategy;
+
+    private ConfigurableApplicationContext context;
+    private BookingService bookingService;
+    private ExecutorService executor;
+    private List<UUID> propertyIds;
+    private AtomicIntegerArray nextNight;
+    private LocalDate firstNight;
+
+    @Setup(Level.Trial)
+    public void start() {
+        boolean virtual = "VIRTUAL".equals(threads);
+        context = BenchmarkApplication.start(
+                "spring.profiles.active=" + (virtual ? "virtual-threads" : "default"),
+                "booking.lock.strategy=" + lockStrategy,
+                // measures queueing on hot properties rather than shedding it
+                "booking.lock.wait-timeout.booking=1m");
+        bookingService = context.getBean(BookingService.class);
+        executor = virtual ? Executors.newVirtualThreadPerTaskExecutor() : Executors.newFixedThreadPool(PLATFORM_THREADS);
+
+        propertyIds = BenchmarkApplication.createProperties(context, properties);
+        nextNight = new AtomicIntegerArray(properties);
+        firstNight = LocalDate.now().plusDays(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        executor.close();
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public int createBookings() throws Exception {
+        List<Future<?>> futures = new ArrayList<>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            futures.add(executor.submit(this::createBooking));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return futures.size();
+    }
+
+    private void createBooking() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int property = random.nextBoolean() ? random.nextInt(HOT_PROPERTIES) : random.nextInt(properties);
+        LocalDate startAt = firstNight.plusDays(nextNight.getAndIncrement(property));
+
+        bookingService.createBooking(new CreateBookingRequest(propertyIds.get(property), startAt, startAt.plusDays(1), GUESTS));
+    }
+}
@@ -0,0 +1,96 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.benchmark.BenchmarkApplication;
+import com.brunozambiazi.bookingsystem.benchmark.BenchmarkData;
+import com.brunozambiazi.bookingsystem.domain.entity.BookingEntity;
+import com.brunozambiazi.bookingsystem.domain.model.DateRange;
+import com.brunozambiazi.bookingsystem.exception.OverlapException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import static com.brunozambiazi.bookingsystem.domain.entity.BookingEntity.newBooking;
+
+/**
+ * Latency of {@link AvailabilityService#checkOverlap(BookingEntity)} for random 1 to 7 night stays within a seeded
+ * year, answered by the database queries or by the occupancy index. Lives in the service package because the
+ * availability service is package-private.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class OverlapCheckBenchmark {
+
+    private static final int SEEDED_DAYS = 365;
+    private static final int PROBES = 4096;
+
+    @Param({"DATABASE", "INDEX"})
+    public String overlapMode;
+
+    @Param({"0.3", "0.8"})
+    public double occupancy;
+
+    @Param({"1000"})
+    public int properties;
+
+    private ConfigurableApplicationContext context;
+    private AvailabilityService availabilityService;
+    private BookingEntity[] probes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApplication.start("booking.availability.overlap-mode=" + overlapMode);
+        availabilityService = context.getBean(AvailabilityService.class);
+
+        LocalDate from = LocalDate.now().plusDays(1);
+        List<UUID> propertyIds = BenchmarkData.seed(context, properties, occupancy, from, SEEDED_DAYS);
+        if (!"DATABASE".equals(overlapMode)) {
+            context.getBean(OccupancyIndex.class).load();
+        }
+
+        Random random = new Random(42);
+        probes = new BookingEntity[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            LocalDate startAt = from.plusDays(random.nextInt(SEEDED_DAYS - 7));
+            probes[i] = newBooking();
+            probes[i].setPropertyId(propertyIds.get(random.nextInt(properties)));
+            probes[i].setPeriod(new DateRange(startAt, startAt.plusDays(1 + random.nextInt(7))));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean checkOverlap() {
+        BookingEntity probe = probes[next++ & (PROBES - 1)];
+        try {
+            availabilityService.checkOverlap(probe);
+            return true;
+        } catch (OverlapException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.brunozambiazi.bookingsystem.api;
+
+import com.brunozambiazi.bookingsystem.api.dto.AvailabilityCheckRequest;
+import com.brunozambiazi.bookingsystem.api.dto.AvailabilityCheckResponse;
+import com.brunozambiazi.bookingsystem.service.PropertyService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.http.ResponseEntity.ok;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/availability")
+class AvailabilityController {
+
+    private final PropertyService propertyService;
+
+    /** Checks many explicit (property, period) pairs at once, answering in request order. Nothing is reserved. */
+    @PostMapping("/check")
+    ResponseEntity<AvailabilityCheckResponse> checkAvailability(@RequestBody @Valid AvailabilityCheckRequest request) {
+        log.info("Received request to check availability of [{}] periods", request.checks().size());
+
+        AvailabilityCheckResponse response = propertyService.checkAvailability(request.checks());
+        log.info("Check availability finished: [{}] available", response.available().stream().filter(Boolean::booleanValue).count());
+
+        return ok(response);
+    }
+}
@@ -1,14 +1,18 @@
 package com.brunozambiazi.bookingsystem.api;
 
 import com.brunozambiazi.bookingsystem.api.dto.BlockResponse;
+import com.brunozambiazi.bookingsystem.api.dto.BulkBlockResponse;
 import com.brunozambiazi.bookingsystem.api.dto.CreateBlockRequest;
+import com.brunozambiazi.bookingsystem.api.dto.CreateBulkBlockRequest;
 import com.brunozambiazi.bookingsystem.api.dto.UpdateBlockRequest;
 import com.brunozambiazi.bookingsystem.service.BlockService;
 import jakarta.validation.Valid;
 import java.net.URI;
+import java.util.Optional;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,6 +22,7 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import static org.springframework.http.ResponseEntity.created;
 import static org.springframework.http.ResponseEntity.noContent;
@@ -42,14 +47,36 @@ class BlockController {
                 .body(response);
     }
 
+    @PostMapping("/bulk")
+    ResponseEntity<BulkBlockResponse> createBlocks(@RequestBody @Valid CreateBulkBlockRequest request) {
+        log.info("Received request to create bulk block: [{} - {}] for [{}]", request.startAt(), request.endAt(),
+                request.allActiveProperties() ? "all active properties" : request.propertyIds().size() + " properties");
+
+        BulkBlockResponse response = blockService.createBlocks(request);
+        log.info("Create bulk block finished: [{}] created, [{}] rejected", response.created(), response.rejected());
+
+        return ok(response);
+    }
+
+    /** Conditional like {@link BookingController#getBooking}: a matching {@code If-None-Match} only reads the version. */
     @GetMapping("/{id}")
-    ResponseEntity<BlockResponse> getBlock(@PathVariable UUID id) {
+    ResponseEntity<BlockResponse> getBlock(@PathVariable UUID id, WebRequest request) {
         log.info("Received request to get block: [{}]", id);
 
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<String> etag = blockService.findBlockVersion(id).map(ETags::of);
+            if (etag.isPresent() && request.checkNotModified(etag.get())) {
+                log.info("Get block finished: not modified");
+                return null;
+            }
+        }
+
         BlockResponse response = blockService.getBlockById(id);
         log.info("Get block finished: [{}]", response);
 
-        return ok(response);
+        return ok()
+                .eTag(ETags.of(response.createdAt(), response.updatedAt()))
+                .body(response);
     }
 
     @PutMapping("/{id}")
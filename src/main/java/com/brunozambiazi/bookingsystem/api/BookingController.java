@@ -1,14 +1,18 @@
 package com.brunozambiazi.bookingsystem.api;
 
+import com.brunozambiazi.bookingsystem.api.dto.BookingBatchResponse;
 import com.brunozambiazi.bookingsystem.api.dto.BookingResponse;
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingBatchRequest;
 import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest;
 import com.brunozambiazi.bookingsystem.api.dto.UpdateBookingRequest;
 import com.brunozambiazi.bookingsystem.service.BookingService;
 import jakarta.validation.Valid;
 import java.net.URI;
+import java.util.Optional;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,6 +22,7 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import static org.springframework.http.ResponseEntity.created;
 import static org.springframework.http.ResponseEntity.noContent;
@@ -42,14 +47,38 @@ class BookingController {
                 .body(response);
     }
 
+    @PostMapping("/batch")
+    ResponseEntity<BookingBatchResponse> createBookings(@RequestBody @Valid CreateBookingBatchRequest request) {
+        log.info("Received request to create [{}] bookings", request.bookings().size());
+
+        BookingBatchResponse response = bookingService.createBookings(request.bookings());
+        log.info("Create bookings finished: [{}] created, [{}] rejected", response.created(), response.rejected());
+
+        return ok(response);
+    }
+
+    /**
+     * Answers with a strong {@code ETag}. A matching {@code If-None-Match} gets a 304 after reading only the booking's
+     * version, before the booking itself is loaded, mapped and serialized.
+     */
     @GetMapping("/{id}")
-    ResponseEntity<BookingResponse> getBooking(@PathVariable UUID id) {
+    ResponseEntity<BookingResponse> getBooking(@PathVariable UUID id, WebRequest request) {
         log.info("Received request to get booking: [{}]", id);
 
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<String> etag = bookingService.findBookingVersion(id).map(ETags::of);
+            if (etag.isPresent() && request.checkNotModified(etag.get())) {
+                log.info("Get booking finished: not modified");
+                return null;
+            }
+        }
+
         BookingResponse response = bookingService.getBookingById(id);
         log.info("Get booking finished: [{}]", response);
 
-        return ok(response);
+        return ok()
+                .eTag(ETags.of(response.createdAt(), response.updatedAt()))
+                .body(response);
     }
 
     @PutMapping("/{id}")
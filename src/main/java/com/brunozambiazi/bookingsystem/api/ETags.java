@@ -0,0 +1,23 @@
+package com.brunozambiazi.bookingsystem.api;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Strong entity tags of bookings and blocks: every change stamps {@code updatedAt}, so the time of the last change, to
+ * the microsecond stored by the database, identifies the representation.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String of(LocalDateTime createdAt, LocalDateTime updatedAt) {
+        return of(updatedAt != null ? updatedAt : createdAt);
+    }
+
+    static String of(LocalDateTime lastChange) {
+        long micros = lastChange.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + lastChange.getNano() / 1_000;
+        return "\"" + Long.toHexString(micros) + "\"";
+    }
+}
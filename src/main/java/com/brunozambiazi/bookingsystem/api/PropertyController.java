@@ -1,41 +1,198 @@
 package com.brunozambiazi.bookingsystem.api;
 
+import com.brunozambiazi.bookingsystem.api.dto.FlexibleAvailabilityResponse;
+import com.brunozambiazi.bookingsystem.api.dto.FreeGapResponse;
+import com.brunozambiazi.bookingsystem.api.dto.PropertyCalendarResponse;
+import com.brunozambiazi.bookingsystem.api.dto.PropertyGapsResponse;
+import com.brunozambiazi.bookingsystem.api.dto.PropertyPage;
 import com.brunozambiazi.bookingsystem.api.dto.PropertyResponse;
 import com.brunozambiazi.bookingsystem.domain.model.DateRange;
 import com.brunozambiazi.bookingsystem.service.PropertyService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import static org.springframework.http.ResponseEntity.ok;
 
 @Slf4j
+@Validated
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/properties")
 class PropertyController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int DEFAULT_GAP_HORIZON_DAYS = 730;
+
+    private final ObjectMapper objectMapper;
     private final PropertyService propertyService;
 
+    /**
+     * Without {@code after} and {@code size} every available property is returned, as before. With any of them the
+     * result is a keyset page ordered by id, and the {@value #NEXT_CURSOR_HEADER} header carries the {@code after}
+     * value of the next page while there is one.
+     * <p>
+     * Both answer with an {@code ETag} from the search revision of the period, taken before searching, and a matching
+     * {@code If-None-Match} gets a 304 without searching.
+     */
     @GetMapping
     ResponseEntity<List<PropertyResponse>> getAvailableProperties(
             @RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate startAt,
-            @RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate endAt
+            @RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate endAt,
+            @RequestParam(required = false) UUID after,
+            @RequestParam(required = false) @Min(1) @Max(1000) Integer size,
+            WebRequest request
     ) {
-        log.info("Received request to get properties between [{}] and [{}]", startAt, endAt);
+        log.info("Received request to get properties between [{}] and [{}] after [{}] size [{}]", startAt, endAt, after, size);
 
         DateRange range = new DateRange(startAt, endAt);
-        List<PropertyResponse> response = propertyService.findAvailableProperties(range);
-        log.info("Get properties finished: [{}] found", response.size());
+        String etag = propertyService.searchRevision(range).map(revision -> "\"" + revision + "\"").orElse(null);
+        if (etag != null && request.checkNotModified(etag)) {
+            log.info("Get properties finished: not modified");
+            return null;
+        }
+
+        if (after == null && size == null) {
+            List<PropertyResponse> response = propertyService.findAvailableProperties(range);
+            log.info("Get properties finished: [{}] found", response.size());
+
+            return withETag(ok(), etag).body(response);
+        }
+
+        PropertyPage page = propertyService.findAvailableProperties(range, after, size == null ? DEFAULT_PAGE_SIZE : size);
+        log.info("Get properties finished: [{}] found, next cursor [{}]", page.properties().size(), page.nextCursor());
+
+        ResponseEntity.BodyBuilder response = withETag(ok(), etag);
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor().toString());
+        }
+        return response.body(page.properties());
+    }
+
+    /**
+     * Flexible-dates search: every available property with the start dates, from {@code startAt} to
+     * {@code flexibility} days later, on which a stay of {@code nights} nights is free.
+     */
+    @GetMapping("/flexible")
+    ResponseEntity<List<FlexibleAvailabilityResponse>> getFlexibleAvailability(
+            @RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate startAt,
+            @RequestParam @Min(0) @Max(366) int flexibility,
+            @RequestParam @Min(1) @Max(366) int nights
+    ) {
+        log.info("Received request to get properties for [{}] nights starting from [{}] to [{}] days later", nights, startAt, flexibility);
+
+        List<FlexibleAvailabilityResponse> response = propertyService.findFlexibleStarts(startAt, startAt.plusDays(flexibility), nights);
+        log.info("Get flexible properties finished: [{}] found", response.size());
 
         return ok(response);
     }
-}
\ No newline at end of file
+
+    /** Every active property with a free gap of at least {@code nights} nights between {@code from} and {@code to}. */
+    @GetMapping("/gaps")
+    ResponseEntity<List<PropertyGapsResponse>> getPropertiesWithGaps(
+            @RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate to,
+            @RequestParam @Min(1) @Max(366) int nights
+    ) {
+        log.info("Received request to get properties with [{}] free nights between [{}] and [{}]", nights, from, to);
+
+        List<PropertyGapsResponse> response = propertyService.findPropertiesWithGaps(new DateRange(from, to), nights);
+        log.info("Get properties with gaps finished: [{}] found", response.size());
+
+        return ok(response);
+    }
+
+    /**
+     * The next {@code count} free gaps of at least {@code nights} nights of the property from {@code from} (today by
+     * default), looking up to {@value #DEFAULT_GAP_HORIZON_DAYS} days ahead unless {@code until} is given.
+     */
+    @GetMapping("/{id}/gaps")
+    ResponseEntity<List<FreeGapResponse>> getNextGaps(
+            @PathVariable UUID id,
+            @RequestParam @Min(1) @Max(366) int nights,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate until,
+            @RequestParam(defaultValue = "1") @Min(1) @Max(100) int count
+    ) {
+        LocalDate startAt = from != null ? from : LocalDate.now();
+        LocalDate endAt = until != null ? until : startAt.plusDays(DEFAULT_GAP_HORIZON_DAYS);
+        log.info("Received request to get the next [{}] gaps of [{}] nights of property [{}] between [{}] and [{}]", count, nights, id, startAt, endAt);
+
+        List<FreeGapResponse> response = propertyService.findNextGaps(id, new DateRange(startAt, endAt), nights, count);
+        log.info("Get next gaps finished: [{}] found", response.size());
+
+        return ok(response);
+    }
+
+    @GetMapping("/{id}/calendar")
+    ResponseEntity<PropertyCalendarResponse> getCalendar(
+            @PathVariable UUID id,
+            @RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate to
+    ) {
+        log.info("Received request to get calendar of property [{}] between [{}] and [{}]", id, from, to);
+
+        PropertyCalendarResponse response = propertyService.getCalendar(id, new DateRange(from, to));
+        log.info("Get calendar finished: [{}] runs", response.runs().size());
+
+        return ok(response);
+    }
+
+    /**
+     * Streams every available property as newline delimited JSON while it is read from the database, so memory stays
+     * flat whatever the number of results.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    ResponseEntity<StreamingResponseBody> streamAvailableProperties(
+            @RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate startAt,
+            @RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate endAt
+    ) {
+        log.info("Received request to stream properties between [{}] and [{}]", startAt, endAt);
+
+        DateRange range = new DateRange(startAt, endAt);
+        StreamingResponseBody body = output -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(output)) {
+                propertyService.streamAvailableProperties(range, property -> write(generator, property));
+            }
+            log.info("Stream properties finished");
+        };
+
+        return ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private static ResponseEntity.BodyBuilder withETag(ResponseEntity.BodyBuilder response, String etag) {
+        return etag != null ? response.eTag(etag) : response;
+    }
+
+    private static void write(JsonGenerator generator, PropertyResponse property) {
+        try {
+            generator.writeObject(property);
+            generator.writeRaw('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.brunozambiazi.bookingsystem.api.dto;
+
+import jakarta.validation.constraints.NotNull;
+import java.time.LocalDate;
+import java.util.UUID;
+
+public record AvailabilityCheckItem(
+
+    @NotNull(message = "Property ID is required")
+    UUID propertyId,
+
+    @NotNull(message = "Start date is required")
+    LocalDate startAt,
+
+    @NotNull(message = "End date is required")
+    LocalDate endAt
+
+) {}
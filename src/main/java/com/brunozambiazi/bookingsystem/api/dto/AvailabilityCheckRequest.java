@@ -0,0 +1,15 @@
+package com.brunozambiazi.bookingsystem.api.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+public record AvailabilityCheckRequest(
+
+    @Valid
+    @NotEmpty(message = "At least one check is required")
+    @Size(max = 10000, message = "At most 10000 checks are allowed per request")
+    List<AvailabilityCheckItem> checks
+
+) {}
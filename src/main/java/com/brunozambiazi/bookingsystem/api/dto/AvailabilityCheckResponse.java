@@ -0,0 +1,10 @@
+package com.brunozambiazi.bookingsystem.api.dto;
+
+import java.util.List;
+
+/**
+ * Whether each checked period is free on its (active) property, in the order of the checks.
+ */
+public record AvailabilityCheckResponse(
+    List<Boolean> available
+) {}
@@ -0,0 +1,21 @@
+package com.brunozambiazi.bookingsystem.api.dto;
+
+/**
+ * Outcome of one item of a booking batch, at the same {@code index} as in the request: either the created
+ * {@code booking} or the {@code errorCode} and {@code message} the single booking endpoint would have answered.
+ */
+public record BookingBatchItemResponse(
+    int index,
+    BookingResponse booking,
+    String errorCode,
+    String message
+) {
+
+    public static BookingBatchItemResponse created(int index, BookingResponse booking) {
+        return new BookingBatchItemResponse(index, booking, null, null);
+    }
+
+    public static BookingBatchItemResponse rejected(int index, String errorCode, String message) {
+        return new BookingBatchItemResponse(index, null, errorCode, message);
+    }
+}
@@ -0,0 +1,9 @@
+package com.brunozambiazi.bookingsystem.api.dto;
+
+import java.util.List;
+
+public record BookingBatchResponse(
+    int created,
+    int rejected,
+    List<BookingBatchItemResponse> items
+) {}
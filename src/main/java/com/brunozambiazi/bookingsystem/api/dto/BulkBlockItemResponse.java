@@ -0,0 +1,23 @@
+package com.brunozambiazi.bookingsystem.api.dto;
+
+import java.util.UUID;
+
+/**
+ * Outcome of a bulk block for one property: either the created {@code block} or the {@code errorCode} and
+ * {@code message} the single block endpoint would have answered.
+ */
+public record BulkBlockItemResponse(
+    UUID propertyId,
+    BlockResponse block,
+    String errorCode,
+    String message
+) {
+
+    public static BulkBlockItemResponse created(BlockResponse block) {
+        return new BulkBlockItemResponse(block.propertyId(), block, null, null);
+    }
+
+    public static BulkBlockItemResponse rejected(UUID propertyId, String errorCode, String message) {
+        return new BulkBlockItemResponse(propertyId, null, errorCode, message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.brunozambiazi.bookingsystem.api.dto;
+
+import com.brunozambiazi.bookingsystem.domain.model.CalendarRunType;
+import java.time.LocalDate;
+
+public record CalendarRunResponse(
+    LocalDate startAt,
+    LocalDate endAt,
+    CalendarRunType type
+) {}
@@ -0,0 +1,15 @@
+package com.brunozambiazi.bookingsystem.api.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+public record CreateBookingBatchRequest(
+
+    @Valid
+    @NotEmpty(message = "At least one booking is required")
+    @Size(max = 5000, message = "At most 5000 bookings are allowed per batch")
+    List<CreateBookingRequest> bookings
+
+) {}
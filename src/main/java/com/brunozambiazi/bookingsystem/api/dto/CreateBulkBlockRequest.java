@@ -0,0 +1,37 @@
+package com.brunozambiazi.bookingsystem.api.dto;
+
+import com.brunozambiazi.bookingsystem.domain.model.BlockReason;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Future;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+public record CreateBulkBlockRequest(
+
+    @Size(max = 10000, message = "At most 10000 properties are allowed per request")
+    List<UUID> propertyIds,
+
+    boolean allActiveProperties,
+
+    @NotNull(message = "Start date is required")
+    @Future(message = "Start date must be today or in the future")
+    LocalDate startAt,
+
+    @NotNull(message = "End date is required")
+    LocalDate endAt,
+
+    @NotNull(message = "Reason is required")
+    BlockReason reason
+
+) {
+
+    @JsonIgnore
+    @AssertTrue(message = "Either property IDs or all active properties must be given")
+    public boolean isPropertySelectionValid() {
+        return allActiveProperties == (propertyIds == null || propertyIds.isEmpty());
+    }
+}
@@ -0,0 +1,12 @@
+package com.brunozambiazi.bookingsystem.api.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * An available property with the start dates, in ascending order, on which the whole stay is free.
+ */
+public record FlexibleAvailabilityResponse(
+    PropertyResponse property,
+    List<LocalDate> startDates
+) {}
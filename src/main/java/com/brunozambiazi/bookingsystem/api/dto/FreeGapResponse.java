@@ -0,0 +1,12 @@
+package com.brunozambiazi.bookingsystem.api.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Free nights {@code [startAt, endAt)} of a property; a gap reaching the end of the searched period may go on after it.
+ */
+public record FreeGapResponse(
+    LocalDate startAt,
+    LocalDate endAt,
+    long nights
+) {}
@@ -0,0 +1,61 @@
+package com.brunozambiazi.bookingsystem.api.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Guests of a booking backed by the JSON stored in the {@code guests} column. Serializing it writes that JSON as is,
+ * and it is only parsed, once, when the list itself is read.
+ */
+@JsonSerialize(using = GuestList.RawJsonSerializer.class)
+public final class GuestList extends AbstractList<GuestDto> {
+
+    private final String json;
+    private final ObjectReader reader;
+    private List<GuestDto> guests;
+
+    public GuestList(String json, ObjectReader reader) {
+        this.json = json;
+        this.reader = reader;
+    }
+
+    public String json() {
+        return json;
+    }
+
+    @Override
+    public GuestDto get(int index) {
+        return guests().get(index);
+    }
+
+    @Override
+    public int size() {
+        return guests().size();
+    }
+
+    private List<GuestDto> guests() {
+        if (guests == null) {
+            try {
+                guests = List.copyOf(reader.<List<GuestDto>>readValue(json));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        return guests;
+    }
+
+    static class RawJsonSerializer extends JsonSerializer<GuestList> {
+
+        @Override
+        public void serialize(GuestList value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeRawValue(value.json);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.brunozambiazi.bookingsystem.api.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Consecutive runs covering {@code [from, to)} without gaps, adjacent runs of the same type merged.
+ */
+public record PropertyCalendarResponse(
+    UUID propertyId,
+    LocalDate from,
+    LocalDate to,
+    List<CalendarRunResponse> runs
+) {}
@@ -0,0 +1,11 @@
+package com.brunozambiazi.bookingsystem.api.dto;
+
+import java.util.List;
+
+/**
+ * A property with its free gaps of the searched minimum length, in date order.
+ */
+public record PropertyGapsResponse(
+    PropertyResponse property,
+    List<FreeGapResponse> gaps
+) {}
@@ -0,0 +1,13 @@
+package com.brunozambiazi.bookingsystem.api.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A keyset page of properties ordered by id; {@code nextCursor} is the id to pass as {@code after} for the next page,
+ * or {@code null} on the last one.
+ */
+public record PropertyPage(
+    List<PropertyResponse> properties,
+    UUID nextCursor
+) {}
@@ -1,10 +1,12 @@
 package com.brunozambiazi.bookingsystem.api.error;
 
 import com.brunozambiazi.bookingsystem.exception.CustomException;
+import com.brunozambiazi.bookingsystem.exception.LockTimeoutException;
 import jakarta.validation.ConstraintViolationException;
 import java.util.HashMap;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -31,6 +33,25 @@ class GlobalExceptionHandler {
         return status(ex.getHttpStatus()).body(error);
     }
 
+    /**
+     * Lock timeouts are expected under contention: logged without stack trace and answered with a {@code Retry-After}
+     * header (whole seconds, rounded up).
+     */
+    @ExceptionHandler(LockTimeoutException.class)
+    ResponseEntity<ErrorResponse> handleLockTimeout(LockTimeoutException ex) {
+        ErrorResponse error = new ErrorResponse(
+                ex.getErrorCode(),
+                ex.getMessage(),
+                null
+        );
+
+        long retryAfterSeconds = Math.max(1, (ex.getRetryAfter().toMillis() + 999) / 1000);
+        log.warn("Exception: "+error);
+        return status(ex.getHttpStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(error);
+    }
+
     @ExceptionHandler(HttpMessageNotReadableException.class)
     ResponseEntity<ErrorResponse> handleBodyMissing(HttpMessageNotReadableException ex) {
         ErrorResponse error = new ErrorResponse(
@@ -0,0 +1,20 @@
+package com.brunozambiazi.bookingsystem.datasource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registers {@link ReadYourWritesFilter.AsyncPin}, so the reads of async request processing (streamed responses run
+ * on the MVC task executor) are pinned to the primary like the ones of the request thread.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "booking.replica.enabled", havingValue = "true")
+class ReadYourWritesConfiguration implements WebMvcConfigurer {
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new ReadYourWritesFilter.AsyncPin());
+    }
+}
@@ -0,0 +1,94 @@
+package com.brunozambiazi.bookingsystem.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Read-your-writes for replica reads: every request that may write answers with a {@value #COOKIE} cookie valid for
+ * {@code booking.replica.read-your-writes}, and the reads of a request carrying a valid one are pinned to the primary,
+ * so a client reads its own writes even while the replica lags behind.
+ * <p>
+ * The pin is resolved once per request and kept as a request attribute; {@link AsyncPin} carries it to the thread
+ * running the async processing of the request (e.g. a streamed response body), which the filter doesn't wrap.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "booking.replica.enabled", havingValue = "true")
+class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "booking-primary-until";
+    static final String PINNED_ATTRIBUTE = ReadYourWritesFilter.class.getName() + ".pinned";
+
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private final ReplicaProperties properties;
+
+    static boolean isPinned() {
+        return Boolean.TRUE.equals(PINNED.get());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!READ_METHODS.contains(request.getMethod())) {
+            Cookie cookie = new Cookie(COOKIE, Long.toString(System.currentTimeMillis() + properties.readYourWrites().toMillis()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) properties.readYourWrites().toSeconds());
+            response.addCookie(cookie);
+        }
+
+        boolean pinned = pinned(request);
+        request.setAttribute(PINNED_ATTRIBUTE, pinned);
+        PINNED.set(pinned);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            PINNED.remove();
+        }
+    }
+
+    /** Pins the async processing of a request like the request itself. */
+    static class AsyncPin implements CallableProcessingInterceptor {
+
+        @Override
+        public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+            PINNED.set(Boolean.TRUE.equals(request.getAttribute(PINNED_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST)));
+        }
+
+        @Override
+        public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+            PINNED.remove();
+        }
+    }
+
+    private static boolean pinned(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return false;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue()) > System.currentTimeMillis();
+                } catch (NumberFormatException ex) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,63 @@
+package com.brunozambiazi.bookingsystem.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Replaces the single datasource with two pools, the {@code spring.datasource} primary and a {@code booking.replica}
+ * replica (the primary database when no url is set), behind a {@link LazyConnectionDataSourceProxy}. The proxy only
+ * fetches a connection on the first statement, once the transaction has flagged it read-only or not: writes and
+ * read-write transactions use the primary, and read-only transactions the replica, routed by
+ * {@link ReplicaRoutingDataSource}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "booking.replica.enabled", havingValue = "true")
+class ReplicaDataSourceConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    HikariDataSource replicaDataSource(DataSourceProperties properties, ReplicaProperties replica) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(replica.url() != null ? replica.url() : properties.determineUrl())
+                .username(replica.username() != null ? replica.username() : properties.determineUsername())
+                .password(replica.password() != null ? replica.password() : properties.determinePassword())
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setMaximumPoolSize(replica.maximumPoolSize());
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+            @Qualifier("replicaDataSource") DataSource replica, ReplicaLagMonitor lagMonitor) {
+        ReplicaRoutingDataSource readOnly = new ReplicaRoutingDataSource(lagMonitor);
+        readOnly.setTargetDataSources(Map.of(ReplicaRoutingDataSource.Target.PRIMARY, primary,
+                ReplicaRoutingDataSource.Target.REPLICA, replica));
+        readOnly.afterPropertiesSet();
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(readOnly);
+        return dataSource;
+    }
+}
@@ -0,0 +1,110 @@
+package com.brunozambiazi.bookingsystem.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Measures how far the replica lags behind the primary with a heartbeat: every {@code booking.replica.heartbeat-interval}
+ * the primary's {@code replica_heartbeat} row gets the current time, and the lag is the age of the newest heartbeat the
+ * replica has seen (zero when it has seen the last one written). The replica is fresh while the lag is within
+ * {@code booking.replica.max-staleness}; until the first heartbeat reaches it, or when it can't be read, it is stale.
+ * <p>
+ * The lag is published as {@value #LAG_METER} and the read-only connections as {@value #READS_METER}, tagged with the
+ * {@code target} they were routed to.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "booking.replica.enabled", havingValue = "true")
+class ReplicaLagMonitor {
+
+    static final String LAG_METER = "booking.replica.lag";
+    static final String READS_METER = "booking.replica.reads";
+
+    private static final String BEAT = "MERGE INTO replica_heartbeat (id, beat_at) KEY (id) VALUES (1, ?)";
+    private static final String LAST_BEAT = "SELECT beat_at FROM replica_heartbeat WHERE id = 1";
+
+    private final ReplicaProperties properties;
+    private final JdbcTemplate primary;
+    private final TransactionTemplate primaryTransaction;
+    private final JdbcTemplate replica;
+    private final Map<ReplicaRoutingDataSource.Target, Counter> reads;
+
+    private volatile LocalDateTime lastBeat;
+    private volatile Duration lag;
+
+    ReplicaLagMonitor(ReplicaProperties properties, @Qualifier("primaryDataSource") DataSource primary,
+            @Qualifier("replicaDataSource") DataSource replica, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.primary = new JdbcTemplate(primary);
+        this.primaryTransaction = new TransactionTemplate(new DataSourceTransactionManager(primary));
+        this.replica = new JdbcTemplate(replica);
+        this.reads = Map.of(
+                ReplicaRoutingDataSource.Target.PRIMARY, readsCounter(meterRegistry, "primary"),
+                ReplicaRoutingDataSource.Target.REPLICA, readsCounter(meterRegistry, "replica"));
+
+        Gauge.builder(LAG_METER, () -> lag == null ? Double.POSITIVE_INFINITY : lag.toMillis() / 1000.0)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    boolean isFresh() {
+        Duration current = lag;
+        return current != null && current.compareTo(properties.maxStaleness()) <= 0;
+    }
+
+    void countRead(ReplicaRoutingDataSource.Target target) {
+        reads.get(target).increment();
+    }
+
+    /**
+     * Measures the lag against the heartbeats written so far, then writes the next one in its own transaction, as the
+     * primary pool may hand out connections without auto-commit (the {@code virtual-threads} profile).
+     */
+    @Scheduled(fixedDelayString = "${booking.replica.heartbeat-interval:1s}")
+    void beat() {
+        boolean wasFresh = isFresh();
+        lag = measure();
+        if (wasFresh != isFresh()) {
+            log.warn("Replica is now [{}], lag [{}]", isFresh() ? "fresh" : "stale", lag);
+        }
+
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        primaryTransaction.executeWithoutResult(status -> primary.update(BEAT, now));
+        lastBeat = now;
+    }
+
+    private Duration measure() {
+        try {
+            List<LocalDateTime> seen = replica.queryForList(LAST_BEAT, LocalDateTime.class);
+            if (seen.isEmpty() || lastBeat == null) {
+                return null;
+            }
+            return seen.getFirst().equals(lastBeat) ? Duration.ZERO : Duration.between(seen.getFirst(), LocalDateTime.now());
+        } catch (DataAccessException ex) {
+            log.debug("Could not read the replica heartbeat", ex);
+            return null;
+        }
+    }
+
+    private static Counter readsCounter(MeterRegistry meterRegistry, String target) {
+        return Counter.builder(READS_METER)
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,22 @@
+package com.brunozambiazi.bookingsystem.datasource;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "booking.replica")
+public record ReplicaProperties(
+        @DefaultValue("false") boolean enabled,
+        String url,
+        String username,
+        String password,
+        @DefaultValue("10") int maximumPoolSize,
+        @DefaultValue("5s") Duration maxStaleness,
+        @DefaultValue("10s") Duration readYourWrites
+) {
+
+    /** How old the data read by a read-only transaction may be: {@code max-staleness}, or none without a replica. */
+    public Duration readStaleness() {
+        return enabled ? maxStaleness : Duration.ZERO;
+    }
+}
@@ -0,0 +1,26 @@
+package com.brunozambiazi.bookingsystem.datasource;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Datasource of the read-only transactions: the replica while its lag is within {@code booking.replica.max-staleness},
+ * otherwise the primary, and always the primary for clients that wrote in the last {@code booking.replica.read-your-writes}.
+ */
+@RequiredArgsConstructor
+class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Target target = ReadYourWritesFilter.isPinned() || !lagMonitor.isFresh() ? Target.PRIMARY : Target.REPLICA;
+        lagMonitor.countRead(target);
+        return target;
+    }
+}
@@ -2,19 +2,29 @@ package com.brunozambiazi.bookingsystem.domain.entity;
 
 import com.brunozambiazi.bookingsystem.domain.model.BlockReason;
 import com.brunozambiazi.bookingsystem.domain.model.DateRange;
+import com.brunozambiazi.bookingsystem.domain.model.Occupancy;
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Embedded;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import java.time.LocalDateTime;
 import java.util.UUID;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import org.hibernate.annotations.DynamicInsert;
 import org.hibernate.annotations.DynamicUpdate;
+import org.springframework.data.domain.Persistable;
 
 import static java.time.LocalDateTime.now;
 import static java.util.UUID.randomUUID;
@@ -25,7 +35,7 @@ import static java.util.UUID.randomUUID;
 @DynamicUpdate
 @Table(name = "blocks")
 @EqualsAndHashCode(of = "id")
-public class BlockEntity {
+public class BlockEntity implements Persistable<UUID> {
 
     @Id
     private UUID id;
@@ -45,11 +55,34 @@ public class BlockEntity {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /** Ids are assigned up front, so this tells {@code save} to persist new blocks instead of merging them. */
+    @Transient
+    @ToString.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean newEntity;
+
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        newEntity = false;
+    }
+
+    public Occupancy toOccupancy() {
+        return new Occupancy(id, propertyId, OccupancyType.BLOCK, period);
+    }
 
     public static BlockEntity newBlock() {
         BlockEntity block = new BlockEntity();
         block.setId(randomUUID());
         block.setCreatedAt(now());
+        block.newEntity = true;
         return block;
     }
 }
\ No newline at end of file
@@ -2,19 +2,30 @@ package com.brunozambiazi.bookingsystem.domain.entity;
 
 import com.brunozambiazi.bookingsystem.domain.model.BookingStatus;
 import com.brunozambiazi.bookingsystem.domain.model.DateRange;
+import com.brunozambiazi.bookingsystem.domain.model.Occupancy;
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Embedded;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import java.time.LocalDateTime;
 import java.util.UUID;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnTransformer;
 import org.hibernate.annotations.DynamicInsert;
 import org.hibernate.annotations.DynamicUpdate;
+import org.springframework.data.domain.Persistable;
 
 import static java.time.LocalDateTime.now;
 import static java.util.UUID.randomUUID;
@@ -25,7 +36,7 @@ import static java.util.UUID.randomUUID;
 @DynamicUpdate
 @Table(name = "bookings")
 @EqualsAndHashCode(of = "id")
-public class BookingEntity {
+public class BookingEntity implements Persistable<UUID> {
 
     @Id
     private UUID id;
@@ -36,7 +47,9 @@ public class BookingEntity {
     @Embedded
     private DateRange period;
 
+    /** JSON text, bound as JSON so the column holds the array itself rather than a JSON string of it. */
     @Column(columnDefinition = "json")
+    @ColumnTransformer(write = "? FORMAT JSON")
     private String guests;
 
     @Enumerated(EnumType.STRING)
@@ -54,6 +67,13 @@ public class BookingEntity {
     @Column(name = "rebooked_at")
     private LocalDateTime rebookedAt;
 
+    /** Ids are assigned up front, so this tells {@code save} to persist new bookings instead of merging them. */
+    @Transient
+    @ToString.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean newEntity;
+
 
     public void cancel() {
         status = BookingStatus.CANCELLED;
@@ -73,6 +93,17 @@ public class BookingEntity {
         return status == BookingStatus.CANCELLED;
     }
 
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        newEntity = false;
+    }
+
     public boolean isRebookable() {
         return isCancelled();
     }
@@ -83,11 +114,16 @@ public class BookingEntity {
         rebookedAt = now();
     }
 
+    public Occupancy toOccupancy() {
+        return isActive() ? new Occupancy(id, propertyId, OccupancyType.BOOKING, period) : null;
+    }
+
     public static BookingEntity newBooking() {
         BookingEntity booking = new BookingEntity();
         booking.setId(randomUUID());
         booking.setStatus(BookingStatus.ACTIVE);
         booking.setCreatedAt(now());
+        booking.newEntity = true;
         return booking;
     }
 }
\ No newline at end of file
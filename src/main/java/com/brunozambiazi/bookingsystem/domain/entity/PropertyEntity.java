@@ -1,5 +1,6 @@
 package com.brunozambiazi.bookingsystem.domain.entity;
 
+import com.brunozambiazi.bookingsystem.domain.model.PropertyChangedEvent;
 import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -8,11 +9,14 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import org.hibernate.annotations.DynamicInsert;
 import org.hibernate.annotations.DynamicUpdate;
+import org.springframework.data.domain.DomainEvents;
 
 @Data
 @Entity
@@ -42,4 +46,9 @@ public class PropertyEntity {
     public boolean isActive() {
         return status == PropertyStatus.ACTIVE;
     }
+
+    @DomainEvents
+    Collection<PropertyChangedEvent> changes() {
+        return List.of(new PropertyChangedEvent(id));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,8 @@
+package com.brunozambiazi.bookingsystem.domain.model;
+
+public enum CalendarRunType {
+
+    FREE,
+    BLOCK,
+    BOOKING
+}
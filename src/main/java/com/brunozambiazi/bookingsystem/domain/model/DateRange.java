@@ -20,4 +20,8 @@ public record DateRange(
             throw new InvalidDataException("Start date must be before than end date");
         }
     }
+
+    public boolean overlaps(DateRange other) {
+        return startAt.isBefore(other.endAt) && other.startAt.isBefore(endAt);
+    }
 }
@@ -0,0 +1,15 @@
+package com.brunozambiazi.bookingsystem.domain.model;
+
+import java.util.UUID;
+
+public record Occupancy(
+    UUID id,
+    UUID propertyId,
+    OccupancyType type,
+    DateRange period
+) {
+
+    public boolean overlaps(DateRange other) {
+        return period.overlaps(other);
+    }
+}
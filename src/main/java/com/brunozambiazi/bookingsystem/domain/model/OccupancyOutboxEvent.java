@@ -0,0 +1,28 @@
+package com.brunozambiazi.bookingsystem.domain.model;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A booking or block change drained from the outbox, published after the writing transaction committed. Events are
+ * published in {@code sequence} order, at least once: consumers should ignore sequences already seen. Sequences may
+ * have gaps, left by changes rolled back after being recorded.
+ * {@code previous} is {@code null} for new occupancies and {@code current} is {@code null} for released ones.
+ */
+public record OccupancyOutboxEvent(
+        long sequence,
+        UUID occupancyId,
+        OccupancyType type,
+        UUID propertyId,
+        Change change,
+        DateRange previous,
+        DateRange current,
+        LocalDateTime createdAt
+) {
+
+    public enum Change {
+        OCCUPIED,
+        MOVED,
+        RELEASED
+    }
+}
@@ -0,0 +1,7 @@
+package com.brunozambiazi.bookingsystem.domain.model;
+
+public enum OccupancyType {
+
+    BLOCK,
+    BOOKING
+}
@@ -0,0 +1,11 @@
+package com.brunozambiazi.bookingsystem.domain.model;
+
+import java.util.UUID;
+
+/**
+ * Published whenever a property is saved through its repository.
+ */
+public record PropertyChangedEvent(
+        UUID propertyId
+) {
+}
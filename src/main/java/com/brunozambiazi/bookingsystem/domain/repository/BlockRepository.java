@@ -3,8 +3,13 @@ package com.brunozambiazi.bookingsystem.domain.repository;
 import com.brunozambiazi.bookingsystem.domain.entity.BlockEntity;
 import com.brunozambiazi.bookingsystem.exception.NotFoundException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -31,4 +36,120 @@ public interface BlockRepository extends JpaRepository<BlockEntity, UUID> {
             @Param("propertyId") UUID propertyId,
             @Param("startAt") LocalDate startAt,
             @Param("endAt") LocalDate endAt);
-}
\ No newline at end of file
+
+    /**
+     * Inserts a block only if its property is active and no other block or active booking overlaps it, in a single
+     * statement: returns {@code 0} instead of inserting otherwise.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO blocks (id, property_id, start_at, end_at, reason, created_at)
+        SELECT :id, prp.id, :startAt, :endAt, :reason, :createdAt
+        FROM properties prp
+        WHERE prp.id = :propertyId
+          AND prp.status = 'ACTIVE'
+          AND NOT EXISTS (
+              SELECT 1
+              FROM blocks blc
+              WHERE blc.property_id = prp.id
+                AND blc.start_at < :endAt
+                AND blc.end_at > :startAt
+            )
+          AND NOT EXISTS (
+              SELECT 1
+              FROM bookings bkn
+              WHERE bkn.property_id = prp.id
+                AND bkn.status = 'ACTIVE'
+                AND bkn.start_at < :endAt
+                AND bkn.end_at > :startAt
+            )
+    """, nativeQuery = true)
+    int insertIfAvailable(
+            @Param("id") UUID id,
+            @Param("propertyId") UUID propertyId,
+            @Param("startAt") LocalDate startAt,
+            @Param("endAt") LocalDate endAt,
+            @Param("reason") String reason,
+            @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * Updates a block only if no other block or active booking overlaps its new period, in a single statement: returns
+     * {@code 0} instead of updating otherwise, or when the block no longer exists.
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE blocks
+        SET start_at = :startAt,
+            end_at = :endAt,
+            reason = :reason,
+            updated_at = :updatedAt
+        WHERE id = :id
+          AND NOT EXISTS (
+              SELECT 1
+              FROM blocks blc
+              WHERE blc.id != :id
+                AND blc.property_id = :propertyId
+                AND blc.start_at < :endAt
+                AND blc.end_at > :startAt
+            )
+          AND NOT EXISTS (
+              SELECT 1
+              FROM bookings bkn
+              WHERE bkn.property_id = :propertyId
+                AND bkn.status = 'ACTIVE'
+                AND bkn.start_at < :endAt
+                AND bkn.end_at > :startAt
+            )
+    """, nativeQuery = true)
+    int updateIfAvailable(
+            @Param("id") UUID id,
+            @Param("propertyId") UUID propertyId,
+            @Param("startAt") LocalDate startAt,
+            @Param("endAt") LocalDate endAt,
+            @Param("reason") String reason,
+            @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Read-only lookup of an archived block, for reads falling back to the archive: the entity is not stored in
+     * {@code blocks} and must not be saved.
+     */
+    @Query(value = "SELECT * FROM blocks_archive WHERE id = :id", nativeQuery = true)
+    Optional<BlockEntity> findArchivedById(@Param("id") UUID id);
+
+    /** Time of the last change of a live or archived block, its version for conditional reads, without loading it. */
+    @Query(value = """
+        SELECT COALESCE(updated_at, created_at) FROM blocks WHERE id = :id
+        UNION ALL
+        SELECT COALESCE(updated_at, created_at) FROM blocks_archive WHERE id = :id
+        LIMIT 1
+    """, nativeQuery = true)
+    Optional<LocalDateTime> findVersionById(@Param("id") UUID id);
+
+    /**
+     * Next chunk of ended blocks to archive, locked until the archiving transaction completes.
+     */
+    @Query(value = """
+        SELECT *
+        FROM blocks
+        WHERE end_at < :endedBefore
+        ORDER BY id
+        LIMIT :limit
+        FOR UPDATE
+    """, nativeQuery = true)
+    List<BlockEntity> findArchivable(
+            @Param("endedBefore") LocalDate endedBefore,
+            @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO blocks_archive (id, property_id, start_at, end_at, reason, created_at, updated_at)
+        SELECT id, property_id, start_at, end_at, reason, created_at, updated_at
+        FROM blocks
+        WHERE id IN (:ids)
+    """, nativeQuery = true)
+    int copyToArchive(@Param("ids") Collection<UUID> ids);
+
+    @Modifying
+    @Query(value = "DELETE FROM blocks WHERE id IN (:ids)", nativeQuery = true)
+    int deleteAllByIdIn(@Param("ids") Collection<UUID> ids);
+}
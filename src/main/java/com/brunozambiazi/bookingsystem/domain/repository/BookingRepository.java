@@ -3,8 +3,13 @@ package com.brunozambiazi.bookingsystem.domain.repository;
 import com.brunozambiazi.bookingsystem.domain.entity.BookingEntity;
 import com.brunozambiazi.bookingsystem.exception.NotFoundException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -32,4 +37,127 @@ public interface BookingRepository extends JpaRepository<BookingEntity, UUID> {
             @Param("propertyId") UUID propertyId,
             @Param("startAt") LocalDate startAt,
             @Param("endAt") LocalDate endAt);
-}
\ No newline at end of file
+
+    /**
+     * Inserts an active booking only if its property is active and no block or active booking overlaps it, in a single
+     * statement: returns {@code 0} instead of inserting otherwise.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO bookings (id, property_id, start_at, end_at, guests, status, created_at)
+        SELECT :id, prp.id, :startAt, :endAt, :guests FORMAT JSON, 'ACTIVE', :createdAt
+        FROM properties prp
+        WHERE prp.id = :propertyId
+          AND prp.status = 'ACTIVE'
+          AND NOT EXISTS (
+              SELECT 1
+              FROM blocks blc
+              WHERE blc.property_id = prp.id
+                AND blc.start_at < :endAt
+                AND blc.end_at > :startAt
+            )
+          AND NOT EXISTS (
+              SELECT 1
+              FROM bookings bkn
+              WHERE bkn.property_id = prp.id
+                AND bkn.status = 'ACTIVE'
+                AND bkn.start_at < :endAt
+                AND bkn.end_at > :startAt
+            )
+    """, nativeQuery = true)
+    int insertIfAvailable(
+            @Param("id") UUID id,
+            @Param("propertyId") UUID propertyId,
+            @Param("startAt") LocalDate startAt,
+            @Param("endAt") LocalDate endAt,
+            @Param("guests") String guests,
+            @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * Updates a booking only if no block or other active booking overlaps its new period, in a single statement:
+     * returns {@code 0} instead of updating otherwise, or when the booking no longer exists.
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE bookings
+        SET start_at = :startAt,
+            end_at = :endAt,
+            guests = :guests FORMAT JSON,
+            status = :status,
+            updated_at = :updatedAt,
+            rebooked_at = :rebookedAt
+        WHERE id = :id
+          AND NOT EXISTS (
+              SELECT 1
+              FROM blocks blc
+              WHERE blc.property_id = :propertyId
+                AND blc.start_at < :endAt
+                AND blc.end_at > :startAt
+            )
+          AND NOT EXISTS (
+              SELECT 1
+              FROM bookings bkn
+              WHERE bkn.id != :id
+                AND bkn.property_id = :propertyId
+                AND bkn.status = 'ACTIVE'
+                AND bkn.start_at < :endAt
+                AND bkn.end_at > :startAt
+            )
+    """, nativeQuery = true)
+    int updateIfAvailable(
+            @Param("id") UUID id,
+            @Param("propertyId") UUID propertyId,
+            @Param("startAt") LocalDate startAt,
+            @Param("endAt") LocalDate endAt,
+            @Param("guests") String guests,
+            @Param("status") String status,
+            @Param("updatedAt") LocalDateTime updatedAt,
+            @Param("rebookedAt") LocalDateTime rebookedAt);
+
+    /**
+     * Read-only lookup of an archived booking, for reads falling back to the archive: the entity is not stored in
+     * {@code bookings} and must not be saved.
+     */
+    @Query(value = "SELECT * FROM bookings_archive WHERE id = :id", nativeQuery = true)
+    Optional<BookingEntity> findArchivedById(@Param("id") UUID id);
+
+    /** Time of the last change of a live or archived booking, its version for conditional reads, without loading it. */
+    @Query(value = """
+        SELECT COALESCE(updated_at, created_at) FROM bookings WHERE id = :id
+        UNION ALL
+        SELECT COALESCE(updated_at, created_at) FROM bookings_archive WHERE id = :id
+        LIMIT 1
+    """, nativeQuery = true)
+    Optional<LocalDateTime> findVersionById(@Param("id") UUID id);
+
+    /**
+     * Next chunk of bookings to archive, locked until the archiving transaction completes so they can't be rebooked or
+     * updated while being moved.
+     */
+    @Query(value = """
+        SELECT *
+        FROM bookings
+        WHERE end_at < :endedBefore
+           OR (status = 'CANCELLED' AND COALESCE(cancelled_at, created_at) < :cancelledBefore)
+        ORDER BY id
+        LIMIT :limit
+        FOR UPDATE
+    """, nativeQuery = true)
+    List<BookingEntity> findArchivable(
+            @Param("endedBefore") LocalDate endedBefore,
+            @Param("cancelledBefore") LocalDateTime cancelledBefore,
+            @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO bookings_archive (id, property_id, start_at, end_at, guests, status, created_at, updated_at, cancelled_at, rebooked_at)
+        SELECT id, property_id, start_at, end_at, guests, status, created_at, updated_at, cancelled_at, rebooked_at
+        FROM bookings
+        WHERE id IN (:ids)
+    """, nativeQuery = true)
+    int copyToArchive(@Param("ids") Collection<UUID> ids);
+
+    @Modifying
+    @Query(value = "DELETE FROM bookings WHERE id IN (:ids)", nativeQuery = true)
+    int deleteAllByIdIn(@Param("ids") Collection<UUID> ids);
+}
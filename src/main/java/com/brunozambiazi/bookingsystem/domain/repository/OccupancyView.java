@@ -0,0 +1,24 @@
+package com.brunozambiazi.bookingsystem.domain.repository;
+
+import com.brunozambiazi.bookingsystem.domain.model.DateRange;
+import com.brunozambiazi.bookingsystem.domain.model.Occupancy;
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType;
+import java.time.LocalDate;
+import java.util.UUID;
+
+public interface OccupancyView {
+
+    UUID getId();
+
+    UUID getPropertyId();
+
+    OccupancyType getType();
+
+    LocalDate getStartAt();
+
+    LocalDate getEndAt();
+
+    default Occupancy toOccupancy() {
+        return new Occupancy(getId(), getPropertyId(), getType(), new DateRange(getStartAt(), getEndAt()));
+    }
+}
@@ -2,16 +2,21 @@ package com.brunozambiazi.bookingsystem.domain.repository;
 
 import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity;
 import com.brunozambiazi.bookingsystem.exception.NotFoundException;
+import jakarta.persistence.QueryHint;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import static jakarta.persistence.LockModeType.PESSIMISTIC_WRITE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface PropertyRepository extends JpaRepository<PropertyEntity, UUID> {
@@ -40,10 +45,192 @@ public interface PropertyRepository extends JpaRepository<PropertyEntity, UUID>
             @Param("startAt") LocalDate startAt,
             @Param("endAt") LocalDate endAt);
 
+    @Query(value = """
+        SELECT prp.*
+        FROM properties prp
+        WHERE prp.status = 'ACTIVE'
+          AND (:after IS NULL OR prp.id > :after)
+          AND NOT EXISTS (
+              SELECT 1
+              FROM bookings bkn
+              WHERE bkn.property_id = prp.id
+                AND bkn.status = 'ACTIVE'
+                AND bkn.start_at < :endAt
+                AND bkn.end_at > :startAt
+            )
+          AND NOT EXISTS (
+              SELECT 1
+              FROM blocks blc
+              WHERE blc.property_id = prp.id
+                AND blc.start_at < :endAt
+                AND blc.end_at > :startAt
+            )
+        ORDER BY prp.id
+        LIMIT :limit
+    """, nativeQuery = true)
+    List<PropertyEntity> findAvailablePage(
+            @Param("startAt") LocalDate startAt,
+            @Param("endAt") LocalDate endAt,
+            @Param("after") UUID after,
+            @Param("limit") int limit);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(value = """
+        SELECT prp.*
+        FROM properties prp
+        WHERE prp.status = 'ACTIVE'
+          AND NOT EXISTS (
+              SELECT 1
+              FROM bookings bkn
+              WHERE bkn.property_id = prp.id
+                AND bkn.status = 'ACTIVE'
+                AND bkn.start_at < :endAt
+                AND bkn.end_at > :startAt
+            )
+          AND NOT EXISTS (
+              SELECT 1
+              FROM blocks blc
+              WHERE blc.property_id = prp.id
+                AND blc.start_at < :endAt
+                AND blc.end_at > :startAt
+            )
+        ORDER BY prp.id
+    """, nativeQuery = true)
+    Stream<PropertyEntity> streamAllAvailable(
+            @Param("startAt") LocalDate startAt,
+            @Param("endAt") LocalDate endAt);
+
+    @Query(value = """
+        SELECT CAST(bkn.id AS VARCHAR) AS "id", CAST(bkn.property_id AS VARCHAR) AS "propertyId",
+               'BOOKING' AS "type", bkn.start_at AS "startAt", bkn.end_at AS "endAt"
+        FROM bookings bkn
+        WHERE bkn.status = 'ACTIVE'
+        UNION ALL
+        SELECT CAST(blc.id AS VARCHAR), CAST(blc.property_id AS VARCHAR), 'BLOCK', blc.start_at, blc.end_at
+        FROM blocks blc
+    """, nativeQuery = true)
+    List<OccupancyView> findAllOccupancies();
+
+    @Query(value = """
+        SELECT CAST(bkn.id AS VARCHAR) AS "id", CAST(bkn.property_id AS VARCHAR) AS "propertyId",
+               'BOOKING' AS "type", bkn.start_at AS "startAt", bkn.end_at AS "endAt"
+        FROM bookings bkn
+        WHERE bkn.status = 'ACTIVE'
+          AND bkn.start_at < :endAt
+          AND bkn.end_at > :startAt
+        UNION ALL
+        SELECT CAST(blc.id AS VARCHAR), CAST(blc.property_id AS VARCHAR), 'BLOCK', blc.start_at, blc.end_at
+        FROM blocks blc
+        WHERE blc.start_at < :endAt
+          AND blc.end_at > :startAt
+    """, nativeQuery = true)
+    List<OccupancyView> findAllOccupancies(
+            @Param("startAt") LocalDate startAt,
+            @Param("endAt") LocalDate endAt);
+
+    @Query(value = """
+        SELECT CAST(bkn.id AS VARCHAR) AS "id", CAST(bkn.property_id AS VARCHAR) AS "propertyId",
+               'BOOKING' AS "type", bkn.start_at AS "startAt", bkn.end_at AS "endAt"
+        FROM bookings bkn
+        WHERE bkn.property_id IN (:propertyIds)
+          AND bkn.status = 'ACTIVE'
+          AND bkn.start_at < :endAt
+          AND bkn.end_at > :startAt
+        UNION ALL
+        SELECT CAST(blc.id AS VARCHAR), CAST(blc.property_id AS VARCHAR), 'BLOCK', blc.start_at, blc.end_at
+        FROM blocks blc
+        WHERE blc.property_id IN (:propertyIds)
+          AND blc.start_at < :endAt
+          AND blc.end_at > :startAt
+    """, nativeQuery = true)
+    List<OccupancyView> findAllOccupancies(
+            @Param("propertyIds") Collection<UUID> propertyIds,
+            @Param("startAt") LocalDate startAt,
+            @Param("endAt") LocalDate endAt);
+
+    @Query(value = """
+        SELECT CAST(bkn.id AS VARCHAR) AS "id", CAST(bkn.property_id AS VARCHAR) AS "propertyId",
+               'BOOKING' AS "type", bkn.start_at AS "startAt", bkn.end_at AS "endAt"
+        FROM bookings bkn
+        WHERE bkn.property_id = :propertyId
+          AND bkn.status = 'ACTIVE'
+          AND bkn.start_at < :endAt
+          AND bkn.end_at > :startAt
+        UNION ALL
+        SELECT CAST(blc.id AS VARCHAR), CAST(blc.property_id AS VARCHAR), 'BLOCK', blc.start_at, blc.end_at
+        FROM blocks blc
+        WHERE blc.property_id = :propertyId
+          AND blc.start_at < :endAt
+          AND blc.end_at > :startAt
+        ORDER BY "startAt"
+    """, nativeQuery = true)
+    List<OccupancyView> findOccupanciesOrdered(
+            @Param("propertyId") UUID propertyId,
+            @Param("startAt") LocalDate startAt,
+            @Param("endAt") LocalDate endAt);
+
+    /**
+     * Active bookings and blocks overlapping the period, ordered by property and start date so each property can be
+     * swept in one pass. The lower-case text form of a UUID sorts like the UUID itself, so the rows follow the order of
+     * {@link #streamAllActive()}.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(value = """
+        SELECT CAST(bkn.id AS VARCHAR) AS "id", CAST(bkn.property_id AS VARCHAR) AS "propertyId",
+               'BOOKING' AS "type", bkn.start_at AS "startAt", bkn.end_at AS "endAt"
+        FROM bookings bkn
+        WHERE bkn.status = 'ACTIVE'
+          AND bkn.start_at < :endAt
+          AND bkn.end_at > :startAt
+        UNION ALL
+        SELECT CAST(blc.id AS VARCHAR), CAST(blc.property_id AS VARCHAR), 'BLOCK', blc.start_at, blc.end_at
+        FROM blocks blc
+        WHERE blc.start_at < :endAt
+          AND blc.end_at > :startAt
+        ORDER BY "propertyId", "startAt"
+    """, nativeQuery = true)
+    Stream<OccupancyView> streamOccupanciesOrdered(
+            @Param("startAt") LocalDate startAt,
+            @Param("endAt") LocalDate endAt);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "100"))
+    @Query(value = """
+        SELECT CAST(bkn.id AS VARCHAR) AS "id", CAST(bkn.property_id AS VARCHAR) AS "propertyId",
+               'BOOKING' AS "type", bkn.start_at AS "startAt", bkn.end_at AS "endAt"
+        FROM bookings bkn
+        WHERE bkn.property_id = :propertyId
+          AND bkn.status = 'ACTIVE'
+          AND bkn.start_at < :endAt
+          AND bkn.end_at > :startAt
+        UNION ALL
+        SELECT CAST(blc.id AS VARCHAR), CAST(blc.property_id AS VARCHAR), 'BLOCK', blc.start_at, blc.end_at
+        FROM blocks blc
+        WHERE blc.property_id = :propertyId
+          AND blc.start_at < :endAt
+          AND blc.end_at > :startAt
+        ORDER BY "startAt"
+    """, nativeQuery = true)
+    Stream<OccupancyView> streamOccupanciesOrdered(
+            @Param("propertyId") UUID propertyId,
+            @Param("startAt") LocalDate startAt,
+            @Param("endAt") LocalDate endAt);
+
+    /** Active properties ordered by id, fetched in chunks so they can be merged with the occupancies of the same order. */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("FROM PropertyEntity WHERE status = com.brunozambiazi.bookingsystem.domain.model.PropertyStatus.ACTIVE ORDER BY id")
+    Stream<PropertyEntity> streamAllActive();
+
+    @Query("SELECT id FROM PropertyEntity WHERE status = com.brunozambiazi.bookingsystem.domain.model.PropertyStatus.ACTIVE")
+    List<UUID> findAllActiveIds();
+
     @Lock(PESSIMISTIC_WRITE)
     @Query("FROM PropertyEntity WHERE id = :id")
     PropertyEntity findByIdWithLock(@Param("id") UUID id);
 
+    @Lock(PESSIMISTIC_WRITE)
+    @Query("FROM PropertyEntity WHERE id IN :ids ORDER BY id")
+    List<PropertyEntity> findAllByIdWithLock(@Param("ids") Collection<UUID> ids);
+
     default PropertyEntity getById(UUID id) {
         return findById(id).orElseThrow(() -> new NotFoundException("Property not found"));
     }
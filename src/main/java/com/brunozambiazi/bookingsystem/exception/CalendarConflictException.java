@@ -0,0 +1,10 @@
+package com.brunozambiazi.bookingsystem.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class CalendarConflictException extends CustomException {
+
+    public CalendarConflictException(String message) {
+        super("CALENDAR_CONFLICT", message, HttpStatus.CONFLICT);
+    }
+}
@@ -0,0 +1,19 @@
+package com.brunozambiazi.bookingsystem.exception;
+
+import java.time.Duration;
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * The property lock could not be acquired in time. The request can be retried as is, after {@link #getRetryAfter()}.
+ */
+@Getter
+public class LockTimeoutException extends CustomException {
+
+    private final Duration retryAfter;
+
+    public LockTimeoutException(String message, Duration retryAfter) {
+        super("LOCK_TIMEOUT", message, HttpStatus.LOCKED);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,25 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyOutboxEvent;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/** Publishes the drained events to the in-process {@code @EventListener}s of {@link OccupancyOutboxEvent}. */
+@Component
+@RequiredArgsConstructor
+class ApplicationEventOutboxSink implements OutboxSink {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public String name() {
+        return "events";
+    }
+
+    @Override
+    public void publish(List<OccupancyOutboxEvent> events) {
+        events.forEach(eventPublisher::publishEvent);
+    }
+}
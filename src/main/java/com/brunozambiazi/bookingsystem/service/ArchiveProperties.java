@@ -0,0 +1,13 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "booking.archive")
+record ArchiveProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("30d") Duration retention,
+        @DefaultValue("500") int chunkSize
+) {
+}
@@ -0,0 +1,39 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "booking.availability")
+record AvailabilityProperties(
+        @DefaultValue("DATABASE") OverlapMode overlapMode,
+        @DefaultValue("CHECKED") WriteMode writeMode
+) {
+
+    enum OverlapMode {
+
+        /** Overlaps are checked with the native EXISTS queries only. */
+        DATABASE,
+
+        /** Overlaps are answered by the in-memory {@link OccupancyIndex}. */
+        INDEX,
+
+        /** Overlaps are answered by the database and cross-checked against the index. */
+        VERIFY
+    }
+
+    enum WriteMode {
+
+        /** Writes are checked with the overlap queries (or the index) and then saved: three or four statements. */
+        CHECKED,
+
+        /** Writes are one {@code INSERT ... SELECT} or {@code UPDATE} that only affects a row when the period is free. */
+        CONDITIONAL,
+
+        /** Writes claim one {@link OccupancySlots} row per night, rejected by its primary key when already claimed. */
+        SLOTS
+    }
+
+    boolean indexEnabled() {
+        return overlapMode != OverlapMode.DATABASE;
+    }
+}
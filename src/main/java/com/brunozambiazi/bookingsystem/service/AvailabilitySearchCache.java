@@ -0,0 +1,167 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.api.dto.PropertyResponse;
+import com.brunozambiazi.bookingsystem.datasource.ReplicaProperties;
+import com.brunozambiazi.bookingsystem.domain.model.DateRange;
+import com.brunozambiazi.bookingsystem.domain.model.Occupancy;
+import com.brunozambiazi.bookingsystem.domain.model.PropertyChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Results of the unpaged availability search, keyed by searched period and evicted by size
+ * ({@code booking.search.result-cache-size}) and age ({@code booking.search.result-cache-ttl}).
+ * <p>
+ * A booking or block change only evicts the cached periods overlapping its previous or current period, and a saved
+ * property evicts everything. Evictions happen when the change is published and again once its transaction completes,
+ * so a search running concurrently with the writer cannot keep the uncommitted state. Every eviction also bumps a
+ * generation: a search result is only kept when no eviction happened while it was computed, nor, when searches read
+ * from a replica, within {@code booking.replica.max-staleness} before it started, as the replica may not show it yet.
+ * <p>
+ * The same changes stamp every night they touch with the generation, which makes the {@link #revision} of a searched
+ * period for conditional searches. Revisions only see the changes of this node, so they also roll over every
+ * {@code booking.search.result-cache-ttl}: a client may see another node's change that late, as with the cache. A
+ * zero TTL turns the cache off and, as nothing then bounds how late that would be, revisions too.
+ */
+@Component
+class AvailabilitySearchCache {
+
+    private final Cache<DateRange, List<PropertyResponse>> cache;
+    private final AtomicLong generation = new AtomicLong();
+    private final ConcurrentSkipListMap<LocalDate, Long> nightRevisions = new ConcurrentSkipListMap<>();
+    private final AtomicLong prunedRevision = new AtomicLong();
+    private final String bootId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final long ttlMillis;
+    private final long stalenessNanos;
+    private volatile long evictedAt;
+    private volatile long propertyRevision;
+
+    AvailabilitySearchCache(PropertySearchProperties properties, ReplicaProperties replicaProperties, MeterRegistry meterRegistry) {
+        this.ttlMillis = properties.resultCacheTtl().toMillis();
+        this.stalenessNanos = replicaProperties.readStaleness().toNanos();
+        this.evictedAt = System.nanoTime() - stalenessNanos;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.resultCacheSize())
+                .expireAfterWrite(properties.resultCacheTtl())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "availabilitySearch");
+    }
+
+    /** Returns the cached result of the period, or runs the search and caches its (unmodifiable) result. */
+    List<PropertyResponse> get(DateRange period, Supplier<List<PropertyResponse>> search) {
+        List<PropertyResponse> cached = cache.getIfPresent(period);
+        if (cached != null) {
+            return cached;
+        }
+
+        long observed = generation.get();
+        long startedAt = System.nanoTime();
+        List<PropertyResponse> result = List.copyOf(search.get());
+        if (startedAt - evictedAt < stalenessNanos) {
+            return result;
+        }
+        cache.put(period, result);
+
+        if (generation.get() != observed) {
+            cache.asMap().remove(period, result);
+        }
+        return result;
+    }
+
+    /**
+     * Revision of the search results of the period: it changes whenever a booking or block change touching one of its
+     * nights, or a property change, happened since. Empty while searches may read a replica not showing the last change,
+     * and when the cache TTL is zero.
+     */
+    Optional<String> revision(DateRange period) {
+        if (ttlMillis == 0 || System.nanoTime() - evictedAt < stalenessNanos) {
+            return Optional.empty();
+        }
+
+        long revision = propertyRevision;
+        for (long night : nightRevisions.subMap(period.startAt(), period.endAt()).values()) {
+            revision = Math.max(revision, night);
+        }
+        if (period.startAt().isBefore(LocalDate.now())) {
+            revision = Math.max(revision, prunedRevision.get());
+        }
+        return Optional.of(bootId + "-" + Long.toHexString(System.currentTimeMillis() / ttlMillis) + "-" + Long.toHexString(revision));
+    }
+
+    void invalidateAll() {
+        evict(period -> true);
+    }
+
+    @EventListener
+    void onOccupancyChanged(OccupancyChangedEvent event) {
+        Predicate<DateRange> overlapping = period -> overlaps(event.previous(), period) || overlaps(event.current(), period);
+        evictNowAndOnCompletion(overlapping, () -> {
+            stamp(event.previous());
+            stamp(event.current());
+        });
+    }
+
+    @EventListener
+    void onPropertyChanged(PropertyChangedEvent event) {
+        evictNowAndOnCompletion(period -> true, () -> propertyRevision = generation.get());
+    }
+
+    private void evictNowAndOnCompletion(Predicate<DateRange> periods, Runnable stamp) {
+        evict(periods);
+        stamp.run();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(periods);
+                    stamp.run();
+                }
+            });
+        }
+    }
+
+    private void evict(Predicate<DateRange> periods) {
+        generation.incrementAndGet();
+        evictedAt = System.nanoTime();
+        cache.asMap().keySet().removeIf(periods);
+    }
+
+    /** Stamps the nights of the occupancy with the current generation, forgetting nights already past. */
+    private void stamp(Occupancy occupancy) {
+        if (occupancy == null) {
+            return;
+        }
+
+        long revision = generation.get();
+        for (LocalDate night = occupancy.period().startAt(); night.isBefore(occupancy.period().endAt()); night = night.plusDays(1)) {
+            nightRevisions.merge(night, revision, Math::max);
+        }
+
+        var past = nightRevisions.headMap(LocalDate.now());
+        for (long night : past.values()) {
+            prunedRevision.accumulateAndGet(night, Math::max);
+        }
+        past.clear();
+    }
+
+    private static boolean overlaps(Occupancy occupancy, DateRange period) {
+        return occupancy != null && occupancy.overlaps(period);
+    }
+}
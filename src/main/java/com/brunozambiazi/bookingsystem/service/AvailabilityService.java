@@ -1,36 +1,109 @@
 package com.brunozambiazi.bookingsystem.service;
 
+import com.brunozambiazi.bookingsystem.api.dto.AvailabilityCheckItem;
 import com.brunozambiazi.bookingsystem.domain.entity.BlockEntity;
 import com.brunozambiazi.bookingsystem.domain.entity.BookingEntity;
 import com.brunozambiazi.bookingsystem.domain.model.DateRange;
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType;
 import com.brunozambiazi.bookingsystem.domain.repository.BlockRepository;
 import com.brunozambiazi.bookingsystem.domain.repository.BookingRepository;
+import com.brunozambiazi.bookingsystem.domain.repository.OccupancyView;
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository;
 import com.brunozambiazi.bookingsystem.exception.OverlapException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import static com.brunozambiazi.bookingsystem.service.AvailabilityProperties.OverlapMode.INDEX;
+
+/**
+ * Overlap checks of booking and block writes. Each check is observed as {@value #OVERLAP_CHECK_METER} and each query it
+ * runs as {@value #OVERLAP_QUERY_METER} (timers and tracing spans tagged with the overlap {@code mode}, the {@code type}
+ * being written and the {@code query}), and rejected writes are counted as {@value #OVERLAP_CONFLICTS_METER}.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 class AvailabilityService {
 
+    static final String OVERLAP_CHECK_METER = "booking.overlap.check";
+    static final String OVERLAP_QUERY_METER = "booking.overlap.query";
+    static final String OVERLAP_CONFLICTS_METER = "booking.overlap.conflicts";
+
+    private static final int CHECK_CHUNK_SIZE = 500;
+
+    private static final String CHECK_ROW = "(CAST(? AS INT), CAST(? AS UUID), CAST(? AS DATE), CAST(? AS DATE))";
+
+    private static final String CHECK = """
+        SELECT chk.idx
+        FROM (VALUES %s) AS chk (idx, property_id, start_at, end_at)
+        JOIN properties prp ON prp.id = chk.property_id
+        WHERE prp.status = 'ACTIVE'
+          AND NOT EXISTS (
+              SELECT 1
+              FROM bookings bkn
+              WHERE bkn.property_id = chk.property_id
+                AND bkn.status = 'ACTIVE'
+                AND bkn.start_at < chk.end_at
+                AND bkn.end_at > chk.start_at
+            )
+          AND NOT EXISTS (
+              SELECT 1
+              FROM blocks blc
+              WHERE blc.property_id = chk.property_id
+                AND blc.start_at < chk.end_at
+                AND blc.end_at > chk.start_at
+            )
+    """;
+
+    private final AvailabilityProperties properties;
     private final BookingRepository bookingRepository;
     private final BlockRepository blockRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
+    private final OccupancyIndex occupancyIndex;
+    private final PropertyRepository propertyRepository;
 
     void checkOverlap(BlockEntity block) {
         UUID propertyId = block.getPropertyId();
         DateRange period = block.getPeriod();
         log.info("Checking overlap for property [{}] on [{}] for a block", propertyId, period);
 
-        if (blockRepository.overlapOtherBlock(block.getId(), propertyId, period.startAt(), period.endAt())) {
-            throw new OverlapException("There is a block overlap");
-        }
+        observed(OVERLAP_CHECK_METER, OccupancyType.BLOCK).observe(() -> {
+            Optional<OccupancyType> overlap = findOverlap(block.getId(), propertyId, period, () -> {
+                if (query(OccupancyType.BLOCK, OccupancyType.BLOCK,
+                        () -> blockRepository.overlapOtherBlock(block.getId(), propertyId, period.startAt(), period.endAt()))) {
+                    return Optional.of(OccupancyType.BLOCK);
+                }
+                if (query(OccupancyType.BLOCK, OccupancyType.BOOKING,
+                        () -> bookingRepository.overlapOtherBooking(null, propertyId, period.startAt(), period.endAt()))) {
+                    return Optional.of(OccupancyType.BOOKING);
+                }
+                return Optional.empty();
+            });
 
-        if (bookingRepository.overlapOtherBooking(null, propertyId, period.startAt(), period.endAt())) {
-            throw new OverlapException("There is a booking overlap");
-        }
+            overlap.ifPresent(type -> {
+                countConflict(OccupancyType.BLOCK, "single");
+                throwOverlap(type);
+            });
+        });
     }
 
     void checkOverlap(BookingEntity booking) {
@@ -38,12 +111,138 @@ class AvailabilityService {
         DateRange period = booking.getPeriod();
         log.info("Checking overlap for property [{}] on [{}] for a booking", propertyId, period);
 
-        if (blockRepository.overlapOtherBlock(null, propertyId, period.startAt(), period.endAt())) {
-            throw new OverlapException("There is a block overlap");
+        observed(OVERLAP_CHECK_METER, OccupancyType.BOOKING).observe(() -> {
+            Optional<OccupancyType> overlap = findOverlap(booking.getId(), propertyId, period, () -> {
+                if (query(OccupancyType.BOOKING, OccupancyType.BLOCK,
+                        () -> blockRepository.overlapOtherBlock(null, propertyId, period.startAt(), period.endAt()))) {
+                    return Optional.of(OccupancyType.BLOCK);
+                }
+                if (query(OccupancyType.BOOKING, OccupancyType.BOOKING,
+                        () -> bookingRepository.overlapOtherBooking(booking.getId(), propertyId, period.startAt(), period.endAt()))) {
+                    return Optional.of(OccupancyType.BOOKING);
+                }
+                return Optional.empty();
+            });
+
+            overlap.ifPresent(type -> {
+                countConflict(OccupancyType.BOOKING, "single");
+                throwOverlap(type);
+            });
+        });
+    }
+
+    /**
+     * Counts a write rejected because of an overlap, {@code single} for the checks above and {@code bulk} for the
+     * in-memory checks of batch and bulk writes.
+     */
+    void countConflict(OccupancyType type, String scope) {
+        Counter.builder(OVERLAP_CONFLICTS_METER)
+                .description("Writes rejected because of an overlapping booking or block")
+                .tag("type", type.name().toLowerCase())
+                .tag("scope", scope)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Runs a conditional write that checks the overlaps itself, observed as an overlap query with
+     * {@code query=conditional}. Returns whether it affected a row, that is, whether the period was free.
+     */
+    boolean writeIfAvailable(OccupancyType type, IntSupplier write) {
+        return observed(OVERLAP_QUERY_METER, type)
+                .lowCardinalityKeyValue("query", "conditional")
+                .observe(() -> write.getAsInt() > 0);
+    }
+
+    /**
+     * Bulk variant of the overlap checks: loads every occupancy of the given properties within the window with a
+     * single query, to be checked and reserved in memory while the properties are locked.
+     */
+    Map<UUID, OccupancyCalendar> loadCalendars(Collection<UUID> propertyIds, DateRange window) {
+        log.info("Loading calendars of [{}] properties on [{}]", propertyIds.size(), window);
+
+        Map<UUID, OccupancyCalendar> calendars = new TreeMap<>();
+        propertyIds.forEach(propertyId -> calendars.put(propertyId, new OccupancyCalendar()));
+        if (propertyIds.isEmpty()) {
+            return calendars;
         }
 
-        if (bookingRepository.overlapOtherBooking(booking.getId(), propertyId, period.startAt(), period.endAt())) {
-            throw new OverlapException("There is a booking overlap");
+        List<OccupancyView> views = observed(OVERLAP_QUERY_METER, null)
+                .lowCardinalityKeyValue("query", "calendars")
+                .observe(() -> propertyRepository.findAllOccupancies(propertyIds, window.startAt(), window.endAt()));
+        for (OccupancyView view : views) {
+            calendars.get(view.getPropertyId()).add(view.toOccupancy());
         }
+        return calendars;
+    }
+
+    /**
+     * Read-only variant of the overlap checks for many explicit periods: whether each one is free on its property, which
+     * must be active, in the order given. Nothing is locked; the checks are joined as a {@code VALUES} table against
+     * properties, bookings and blocks with the same overlap conditions as the write checks, one query (observed as an
+     * overlap query with {@code query=check}) per {@value #CHECK_CHUNK_SIZE} checks.
+     */
+    List<Boolean> checkAvailable(List<AvailabilityCheckItem> checks) {
+        List<DateRange> periods = checks.stream().map(check -> new DateRange(check.startAt(), check.endAt())).toList();
+        log.info("Checking availability of [{}] periods", checks.size());
+
+        Boolean[] available = new Boolean[checks.size()];
+        Arrays.fill(available, false);
+        for (int from = 0; from < checks.size(); from += CHECK_CHUNK_SIZE) {
+            int to = Math.min(from + CHECK_CHUNK_SIZE, checks.size());
+            List<Object> parameters = new ArrayList<>(4 * (to - from));
+            for (int index = from; index < to; index++) {
+                parameters.addAll(List.of(index, checks.get(index).propertyId(), periods.get(index).startAt(), periods.get(index).endAt()));
+            }
+
+            String sql = CHECK.formatted(String.join(", ", Collections.nCopies(to - from, CHECK_ROW)));
+            List<Integer> free = observed(OVERLAP_QUERY_METER, null)
+                    .lowCardinalityKeyValue("query", "check")
+                    .observe(() -> jdbcTemplate.queryForList(sql, Integer.class, parameters.toArray()));
+            free.forEach(index -> available[index] = true);
+        }
+        return Arrays.asList(available);
+    }
+
+    private Optional<OccupancyType> findOverlap(
+            UUID id,
+            UUID propertyId,
+            DateRange period,
+            Supplier<Optional<OccupancyType>> databaseCheck
+    ) {
+        if (!occupancyIndex.isReady()) {
+            return databaseCheck.get();
+        }
+
+        Optional<OccupancyType> indexed = occupancyIndex.findOverlap(propertyId, period, id);
+        if (properties.overlapMode() == INDEX) {
+            return indexed;
+        }
+
+        Optional<OccupancyType> stored = databaseCheck.get();
+        if (!stored.equals(indexed)) {
+            log.warn("Occupancy index disagrees with database for property [{}] on [{}]: index [{}], database [{}]",
+                    propertyId, period, indexed, stored);
+        }
+        return stored;
+    }
+
+    private boolean query(OccupancyType type, OccupancyType query, Supplier<Boolean> check) {
+        return observed(OVERLAP_QUERY_METER, type)
+                .lowCardinalityKeyValue("query", query.name().toLowerCase())
+                .observe(check);
+    }
+
+    private Observation observed(String name, OccupancyType type) {
+        return Observation.createNotStarted(name, observationRegistry)
+                .lowCardinalityKeyValue("mode", properties.overlapMode().name())
+                .lowCardinalityKeyValue("type", type == null ? "any" : type.name().toLowerCase());
+    }
+
+    static void throwOverlap(OccupancyType type) {
+        throw switch (type) {
+            case BLOCK -> new OverlapException("There is a block overlap");
+            case BOOKING -> new OverlapException("There is a booking overlap");
+        };
     }
 }
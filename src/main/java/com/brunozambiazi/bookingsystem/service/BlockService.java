@@ -1,14 +1,25 @@
 package com.brunozambiazi.bookingsystem.service;
 
 import com.brunozambiazi.bookingsystem.api.dto.BlockResponse;
+import com.brunozambiazi.bookingsystem.api.dto.BulkBlockItemResponse;
+import com.brunozambiazi.bookingsystem.api.dto.BulkBlockResponse;
 import com.brunozambiazi.bookingsystem.api.dto.CreateBlockRequest;
+import com.brunozambiazi.bookingsystem.api.dto.CreateBulkBlockRequest;
 import com.brunozambiazi.bookingsystem.api.dto.UpdateBlockRequest;
 import com.brunozambiazi.bookingsystem.domain.entity.BlockEntity;
+import com.brunozambiazi.bookingsystem.domain.model.DateRange;
+import com.brunozambiazi.bookingsystem.domain.model.Occupancy;
 import com.brunozambiazi.bookingsystem.domain.repository.BlockRepository;
+import com.brunozambiazi.bookingsystem.exception.NotFoundException;
 import com.brunozambiazi.bookingsystem.service.mapper.BlockMapper;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,50 +28,88 @@ import org.springframework.transaction.annotation.Transactional;
 @RequiredArgsConstructor
 public class BlockService {
 
-    private final AvailabilityService availabilityService;
+    static final int BULK_CHUNK_SIZE = 1000;
+
+    private final ApplicationEventPublisher eventPublisher;
     private final BlockMapper blockMapper;
     private final BlockRepository blockRepository;
+    private final BulkBlockWriter bulkBlockWriter;
     private final LockService lockService;
+    private final OccupancyWriter occupancyWriter;
     private final PropertyService propertyService;
 
     @Transactional
+    @RetryOnCalendarConflict
     public BlockResponse createBlock(CreateBlockRequest request) {
-        propertyService.checkActiveProperty(request.propertyId());
-
         BlockEntity block = blockMapper.toEntity(request);
         log.info("Creating block: [{}]", block);
-        validateAndSave(block);
+        occupancyWriter.create(block, lockService.acquireLockFor(block));
+        eventPublisher.publishEvent(new OccupancyChangedEvent(null, block.toOccupancy()));
 
         return blockMapper.toResponse(block);
     }
 
+    /**
+     * Creates the same block on many properties. Properties are sorted and written in chunks of
+     * {@value #BULK_CHUNK_SIZE}, each one in its own transaction with a single overlap query and batched inserts, so
+     * locks are taken in property id order and only held for the chunk being written.
+     */
+    public BulkBlockResponse createBlocks(CreateBulkBlockRequest request) {
+        DateRange period = new DateRange(request.startAt(), request.endAt());
+        List<UUID> propertyIds = request.allActiveProperties()
+                ? propertyService.findActivePropertyIds()
+                : request.propertyIds();
+        propertyIds = propertyIds.stream().distinct().sorted().toList();
+        log.info("Creating block on [{}] for [{}] properties", period, propertyIds.size());
+
+        List<BulkBlockItemResponse> items = new ArrayList<>(propertyIds.size());
+        for (int from = 0; from < propertyIds.size(); from += BULK_CHUNK_SIZE) {
+            List<UUID> chunk = propertyIds.subList(from, Math.min(from + BULK_CHUNK_SIZE, propertyIds.size()));
+            items.addAll(bulkBlockWriter.createBlocks(chunk, period, request.reason()));
+        }
+
+        int created = (int) items.stream().filter(item -> item.block() != null).count();
+        return new BulkBlockResponse(created, items.size() - created, items);
+    }
+
     @Transactional
     public void deleteBlock(UUID blockId) {
-        BlockEntity block = blockRepository.getById(blockId);
+        BlockEntity block = lockService.getBlockForUpdate(blockId);
         log.info("Deleting block: [{}]", block);
         blockRepository.delete(block);
+        eventPublisher.publishEvent(new OccupancyChangedEvent(block.toOccupancy(), null));
     }
 
+    /** Falls back to the archive for blocks moved there by {@link OccupancyArchiver}. */
+    @Transactional(readOnly = true)
     public BlockResponse getBlockById(UUID blockId) {
-        BlockEntity block = blockRepository.getById(blockId);
+        BlockEntity block = blockRepository.findById(blockId)
+                .or(() -> blockRepository.findArchivedById(blockId))
+                .orElseThrow(() -> new NotFoundException("Block not found"));
         return blockMapper.toResponse(block);
     }
 
+    /** Time of the last change of the block, live or archived, read without loading it. */
+    @Transactional(readOnly = true)
+    public Optional<LocalDateTime> findBlockVersion(UUID blockId) {
+        return blockRepository.findVersionById(blockId);
+    }
+
     @Transactional
+    @RetryOnCalendarConflict
     public BlockResponse updateBlock(UUID blockId, UpdateBlockRequest request) {
-        BlockEntity block = blockRepository.getById(blockId);
+        BlockEntity block = lockService.getBlockForUpdate(blockId);
+        Occupancy previous = block.toOccupancy();
         blockMapper.updateEntity(block, request);
         log.info("Updating block: [{}]", block);
-        validateAndSave(block);
+        validateAndSave(block, previous);
 
         return blockMapper.toResponse(block);
     }
 
-    private void validateAndSave(BlockEntity block) {
+    private void validateAndSave(BlockEntity block, Occupancy previous) {
         lockService.acquireLockFor(block);
-        availabilityService.checkOverlap(block);
-
-        log.info("Saving block: [{}]", block);
-        blockRepository.save(block);
+        occupancyWriter.update(block);
+        eventPublisher.publishEvent(new OccupancyChangedEvent(previous, block.toOccupancy()));
     }
 }
@@ -1,15 +1,32 @@
 package com.brunozambiazi.bookingsystem.service;
 
+import com.brunozambiazi.bookingsystem.api.dto.BookingBatchItemResponse;
+import com.brunozambiazi.bookingsystem.api.dto.BookingBatchResponse;
 import com.brunozambiazi.bookingsystem.api.dto.BookingResponse;
 import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest;
 import com.brunozambiazi.bookingsystem.api.dto.UpdateBookingRequest;
 import com.brunozambiazi.bookingsystem.domain.entity.BookingEntity;
+import com.brunozambiazi.bookingsystem.domain.model.DateRange;
+import com.brunozambiazi.bookingsystem.domain.model.Occupancy;
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType;
 import com.brunozambiazi.bookingsystem.domain.repository.BookingRepository;
+import com.brunozambiazi.bookingsystem.exception.CustomException;
 import com.brunozambiazi.bookingsystem.exception.InvalidStateException;
+import com.brunozambiazi.bookingsystem.exception.NotFoundException;
+import com.brunozambiazi.bookingsystem.exception.OverlapException;
 import com.brunozambiazi.bookingsystem.service.mapper.BookingMapper;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,51 +35,120 @@ import org.springframework.transaction.annotation.Transactional;
 @RequiredArgsConstructor
 public class BookingService {
 
+    private final ApplicationEventPublisher eventPublisher;
     private final AvailabilityService availabilityService;
     private final BookingMapper bookingMapper;
     private final BookingRepository bookingRepository;
     private final LockService lockService;
+    private final OccupancyWriter occupancyWriter;
     private final PropertyService propertyService;
 
     @Transactional
     public void cancelBooking(UUID bookingId) {
-        BookingEntity booking = bookingRepository.getById(bookingId);
+        BookingEntity booking = lockService.getBookingForUpdate(bookingId);
         log.info("Cancelling booking: [{}]", booking);
 
         if (!booking.isCancellable()) {
             throw new InvalidStateException("Booking cannot be cancelled");
         }
 
+        Occupancy previous = booking.toOccupancy();
         booking.cancel();
         bookingRepository.save(booking);
+        eventPublisher.publishEvent(new OccupancyChangedEvent(previous, null));
     }
 
     @Transactional
+    @RetryOnCalendarConflict
     public BookingResponse createBooking(CreateBookingRequest request) {
-        propertyService.checkActiveProperty(request.propertyId());
-
         BookingEntity booking = bookingMapper.toEntity(request);
         log.info("Creating booking: [{}]", booking);
-        validateAndSave(booking);
+        occupancyWriter.create(booking, lockService.acquireLockFor(booking));
+        publishChange(null, booking);
 
         return bookingMapper.toResponse(booking);
     }
 
+    /**
+     * Creates many bookings in a single transaction: every property is checked and locked once, in a deterministic
+     * order, and their calendars are loaded with one query and checked in memory, items of the same batch included.
+     * Items are processed in request order and each one is reported as created or rejected with the error the single
+     * booking creation would have raised.
+     */
+    @Transactional
+    @RetryOnCalendarConflict
+    public BookingBatchResponse createBookings(List<CreateBookingRequest> requests) {
+        List<BookingEntity> bookings = bookingMapper.toEntities(requests);
+        log.info("Creating [{}] bookings in batch", bookings.size());
+
+        Set<UUID> propertyIds = new TreeSet<>();
+        bookings.forEach(booking -> propertyIds.add(booking.getPropertyId()));
+
+        Map<UUID, CustomException> failures = propertyService.checkActiveProperties(propertyIds);
+        propertyIds.removeAll(failures.keySet());
+        lockService.acquireLocksFor(OccupancyType.BOOKING, propertyIds);
+
+        Map<UUID, OccupancyCalendar> calendars = availabilityService.loadCalendars(propertyIds, window(bookings));
+
+        List<BookingEntity> accepted = new ArrayList<>();
+        List<BookingBatchItemResponse> items = new ArrayList<>(bookings.size());
+        for (int index = 0; index < bookings.size(); index++) {
+            BookingEntity booking = bookings.get(index);
+            CustomException failure = failures.get(booking.getPropertyId());
+            if (failure == null) {
+                try {
+                    calendars.get(booking.getPropertyId()).reserve(booking.toOccupancy());
+                } catch (OverlapException ex) {
+                    availabilityService.countConflict(OccupancyType.BOOKING, "bulk");
+                    failure = ex;
+                }
+            }
+
+            if (failure == null) {
+                accepted.add(booking);
+                items.add(BookingBatchItemResponse.created(index, bookingMapper.toResponse(booking)));
+            } else {
+                items.add(BookingBatchItemResponse.rejected(index, failure.getErrorCode(), failure.getMessage()));
+            }
+        }
+
+        log.info("Saving [{}] bookings, [{}] rejected", accepted.size(), bookings.size() - accepted.size());
+        bookingRepository.saveAll(accepted);
+        accepted.forEach(booking -> eventPublisher.publishEvent(new OccupancyChangedEvent(null, booking.toOccupancy())));
+
+        return new BookingBatchResponse(accepted.size(), bookings.size() - accepted.size(), items);
+    }
+
     @Transactional
     public void deleteBooking(UUID bookingId) {
-        BookingEntity booking = bookingRepository.getById(bookingId);
+        BookingEntity booking = lockService.getBookingForUpdate(bookingId);
         log.info("Deleting booking: [{}]", booking);
         bookingRepository.delete(booking);
+
+        if (booking.isActive()) {
+            eventPublisher.publishEvent(new OccupancyChangedEvent(booking.toOccupancy(), null));
+        }
     }
 
+    /** Falls back to the archive for bookings moved there by {@link OccupancyArchiver}. */
+    @Transactional(readOnly = true)
     public BookingResponse getBookingById(UUID bookingId) {
-        BookingEntity booking = bookingRepository.getById(bookingId);
+        BookingEntity booking = bookingRepository.findById(bookingId)
+                .or(() -> bookingRepository.findArchivedById(bookingId))
+                .orElseThrow(() -> new NotFoundException("Booking not found"));
         return bookingMapper.toResponse(booking);
     }
 
+    /** Time of the last change of the booking, live or archived, read without loading it. */
+    @Transactional(readOnly = true)
+    public Optional<LocalDateTime> findBookingVersion(UUID bookingId) {
+        return bookingRepository.findVersionById(bookingId);
+    }
+
     @Transactional
+    @RetryOnCalendarConflict
     public void rebookBooking(UUID bookingId) {
-        BookingEntity booking = bookingRepository.getById(bookingId);
+        BookingEntity booking = lockService.getBookingForUpdate(bookingId);
         log.info("Rebooking booking: [{}]", booking);
 
         if (!booking.isRebookable()) {
@@ -70,24 +156,41 @@ public class BookingService {
         }
 
         booking.rebook();
-        validateAndSave(booking);
+        validateAndSave(booking, null);
     }
 
     @Transactional
+    @RetryOnCalendarConflict
     public BookingResponse updateBooking(UUID bookingId, UpdateBookingRequest request) {
-        BookingEntity booking = bookingRepository.getById(bookingId);
+        BookingEntity booking = lockService.getBookingForUpdate(bookingId);
+        Occupancy previous = booking.toOccupancy();
         bookingMapper.updateEntity(booking, request);
         log.info("Updating booking: [{}]", booking);
-        validateAndSave(booking);
+        validateAndSave(booking, previous);
 
         return bookingMapper.toResponse(booking);
     }
 
-    private void validateAndSave(BookingEntity booking) {
+    private static DateRange window(List<BookingEntity> bookings) {
+        LocalDate startAt = LocalDate.MAX;
+        LocalDate endAt = LocalDate.MIN;
+        for (BookingEntity booking : bookings) {
+            startAt = booking.getPeriod().startAt().isBefore(startAt) ? booking.getPeriod().startAt() : startAt;
+            endAt = booking.getPeriod().endAt().isAfter(endAt) ? booking.getPeriod().endAt() : endAt;
+        }
+        return new DateRange(startAt, endAt);
+    }
+
+    private void validateAndSave(BookingEntity booking, Occupancy previous) {
         lockService.acquireLockFor(booking);
-        availabilityService.checkOverlap(booking);
+        occupancyWriter.update(booking);
+        publishChange(previous, booking);
+    }
 
-        log.info("Saving booking: [{}]", booking);
-        bookingRepository.save(booking);
+    private void publishChange(Occupancy previous, BookingEntity booking) {
+        Occupancy current = booking.toOccupancy();
+        if (previous != null || current != null) {
+            eventPublisher.publishEvent(new OccupancyChangedEvent(previous, current));
+        }
     }
 }
@@ -0,0 +1,78 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.api.dto.BulkBlockItemResponse;
+import com.brunozambiazi.bookingsystem.domain.entity.BlockEntity;
+import com.brunozambiazi.bookingsystem.domain.model.BlockReason;
+import com.brunozambiazi.bookingsystem.domain.model.DateRange;
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType;
+import com.brunozambiazi.bookingsystem.domain.repository.BlockRepository;
+import com.brunozambiazi.bookingsystem.exception.CustomException;
+import com.brunozambiazi.bookingsystem.exception.OverlapException;
+import com.brunozambiazi.bookingsystem.service.mapper.BlockMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Writes one chunk of a bulk block in its own transaction, so property locks are only held for the chunk being written.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+class BulkBlockWriter {
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final AvailabilityService availabilityService;
+    private final BlockMapper blockMapper;
+    private final BlockRepository blockRepository;
+    private final LockService lockService;
+    private final PropertyService propertyService;
+
+    @Transactional
+    @RetryOnCalendarConflict
+    public List<BulkBlockItemResponse> createBlocks(List<UUID> propertyIds, DateRange period, BlockReason reason) {
+        log.info("Creating [{}] blocks on [{}]", propertyIds.size(), period);
+
+        Map<UUID, CustomException> failures = propertyService.checkActiveProperties(propertyIds);
+        Set<UUID> writable = new TreeSet<>(propertyIds);
+        writable.removeAll(failures.keySet());
+
+        lockService.acquireLocksFor(OccupancyType.BLOCK, writable);
+        Map<UUID, OccupancyCalendar> calendars = availabilityService.loadCalendars(writable, period);
+
+        List<BlockEntity> accepted = new ArrayList<>();
+        List<BulkBlockItemResponse> items = new ArrayList<>(propertyIds.size());
+        for (UUID propertyId : propertyIds) {
+            CustomException failure = failures.get(propertyId);
+            BlockEntity block = blockMapper.toEntity(propertyId, period, reason);
+            if (failure == null) {
+                try {
+                    calendars.get(propertyId).reserve(block.toOccupancy());
+                } catch (OverlapException ex) {
+                    availabilityService.countConflict(OccupancyType.BLOCK, "bulk");
+                    failure = ex;
+                }
+            }
+
+            if (failure == null) {
+                accepted.add(block);
+                items.add(BulkBlockItemResponse.created(blockMapper.toResponse(block)));
+            } else {
+                items.add(BulkBlockItemResponse.rejected(propertyId, failure.getErrorCode(), failure.getMessage()));
+            }
+        }
+
+        blockRepository.saveAll(accepted);
+        accepted.forEach(block -> eventPublisher.publishEvent(new OccupancyChangedEvent(null, block.toOccupancy())));
+
+        return items;
+    }
+}
@@ -0,0 +1,59 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.exception.CalendarConflictException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Runs before the transaction interceptor so every attempt gets its own transaction. Calls joining an outer
+ * transaction are not retried here: the conflict only shows up when the outer transaction commits.
+ */
+@Slf4j
+@Aspect
+@Component
+@RequiredArgsConstructor
+@Order(Ordered.HIGHEST_PRECEDENCE)
+class CalendarConflictRetryAspect {
+
+    private final LockProperties properties;
+
+    @Around("@annotation(com.brunozambiazi.bookingsystem.service.RetryOnCalendarConflict)")
+    Object retry(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (OptimisticLockingFailureException ex) {
+                if (attempt >= properties.retryAttempts()) {
+                    throw new CalendarConflictException("Property calendar changed concurrently, please try again");
+                }
+
+                log.warn("Calendar conflict on [{}], attempt [{}] of [{}]", joinPoint.getSignature().toShortString(),
+                        attempt, properties.retryAttempts());
+                backoff(attempt);
+            }
+        }
+    }
+
+    /** Exponential backoff with full jitter, so writers that collided do not collide again on the next attempt. */
+    private void backoff(int attempt) throws InterruptedException {
+        Duration base = properties.retryBackoff();
+        long ceiling = base.toNanos() << Math.min(attempt - 1, 16);
+        if (ceiling > 0) {
+            Thread.sleep(Duration.ofNanos(ThreadLocalRandom.current().nextLong(ceiling + 1)));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.domain.entity.BlockEntity;
+import com.brunozambiazi.bookingsystem.domain.entity.BookingEntity;
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity;
+import com.brunozambiazi.bookingsystem.domain.repository.BlockRepository;
+import com.brunozambiazi.bookingsystem.domain.repository.BookingRepository;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Checks the property status and the overlaps first, with the {@link AvailabilityService} checks, and then saves the
+ * entity through its repository.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "booking.availability.write-mode", havingValue = "CHECKED", matchIfMissing = true)
+class CheckedOccupancyWriter implements OccupancyWriter {
+
+    private final AvailabilityService availabilityService;
+    private final BlockRepository blockRepository;
+    private final BookingRepository bookingRepository;
+    private final PropertyService propertyService;
+
+    @Override
+    public void create(BookingEntity booking, Optional<PropertyEntity> locked) {
+        propertyService.checkActiveProperty(booking.getPropertyId(), locked);
+        update(booking);
+    }
+
+    @Override
+    public void create(BlockEntity block, Optional<PropertyEntity> locked) {
+        propertyService.checkActiveProperty(block.getPropertyId(), locked);
+        update(block);
+    }
+
+    @Override
+    public void update(BookingEntity booking) {
+        availabilityService.checkOverlap(booking);
+
+        log.info("Saving booking: [{}]", booking);
+        bookingRepository.save(booking);
+    }
+
+    @Override
+    public void update(BlockEntity block) {
+        availabilityService.checkOverlap(block);
+
+        log.info("Saving block: [{}]", block);
+        blockRepository.save(block);
+    }
+}
@@ -0,0 +1,109 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.domain.entity.BlockEntity;
+import com.brunozambiazi.bookingsystem.domain.entity.BookingEntity;
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity;
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType;
+import com.brunozambiazi.bookingsystem.domain.repository.BlockRepository;
+import com.brunozambiazi.bookingsystem.domain.repository.BookingRepository;
+import com.brunozambiazi.bookingsystem.exception.NotFoundException;
+import jakarta.persistence.EntityManager;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes each booking or block with a single conditional statement that also checks the property status (on insert)
+ * and the overlaps, so an accepted write costs one round trip after the lock instead of three or four. Only rejected
+ * writes run the {@link AvailabilityService} checks, to tell why they were rejected. When the checks find nothing, what
+ * rejected the statement is already gone (a booking cancelled meanwhile, which takes no property lock, or a stale cached
+ * status) and the write is retried by {@link CalendarConflictRetryAspect}.
+ * <p>
+ * The property lock is still taken: under READ COMMITTED two concurrent statements can both find the period free, as
+ * neither sees the other's uncommitted row.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "booking.availability.write-mode", havingValue = "CONDITIONAL")
+class ConditionalOccupancyWriter implements OccupancyWriter {
+
+    private final AvailabilityService availabilityService;
+    private final BlockRepository blockRepository;
+    private final BookingRepository bookingRepository;
+    private final EntityManager entityManager;
+    private final PropertyService propertyService;
+
+    @Override
+    public void create(BookingEntity booking, Optional<PropertyEntity> locked) {
+        log.info("Inserting booking if available: [{}]", booking);
+        boolean inserted = availabilityService.writeIfAvailable(OccupancyType.BOOKING, () -> bookingRepository.insertIfAvailable(
+                booking.getId(), booking.getPropertyId(), booking.getPeriod().startAt(), booking.getPeriod().endAt(),
+                booking.getGuests(), booking.getCreatedAt()));
+
+        if (!inserted) {
+            propertyService.checkActiveProperty(booking.getPropertyId(), locked);
+            availabilityService.checkOverlap(booking);
+            throw changedConcurrently(booking.getPropertyId());
+        }
+    }
+
+    @Override
+    public void create(BlockEntity block, Optional<PropertyEntity> locked) {
+        log.info("Inserting block if available: [{}]", block);
+        boolean inserted = availabilityService.writeIfAvailable(OccupancyType.BLOCK, () -> blockRepository.insertIfAvailable(
+                block.getId(), block.getPropertyId(), block.getPeriod().startAt(), block.getPeriod().endAt(),
+                block.getReason().name(), block.getCreatedAt()));
+
+        if (!inserted) {
+            propertyService.checkActiveProperty(block.getPropertyId(), locked);
+            availabilityService.checkOverlap(block);
+            throw changedConcurrently(block.getPropertyId());
+        }
+    }
+
+    @Override
+    public void update(BookingEntity booking) {
+        // the statement writes the changes itself: a managed entity would also be flushed before it runs
+        entityManager.detach(booking);
+
+        log.info("Updating booking if available: [{}]", booking);
+        boolean updated = availabilityService.writeIfAvailable(OccupancyType.BOOKING, () -> bookingRepository.updateIfAvailable(
+                booking.getId(), booking.getPropertyId(), booking.getPeriod().startAt(), booking.getPeriod().endAt(),
+                booking.getGuests(), booking.getStatus().name(), booking.getUpdatedAt(), booking.getRebookedAt()));
+
+        if (!updated) {
+            availabilityService.checkOverlap(booking);
+            if (!bookingRepository.existsById(booking.getId())) {
+                throw new NotFoundException("Booking not found");
+            }
+            throw changedConcurrently(booking.getPropertyId());
+        }
+    }
+
+    @Override
+    public void update(BlockEntity block) {
+        entityManager.detach(block);
+
+        log.info("Updating block if available: [{}]", block);
+        boolean updated = availabilityService.writeIfAvailable(OccupancyType.BLOCK, () -> blockRepository.updateIfAvailable(
+                block.getId(), block.getPropertyId(), block.getPeriod().startAt(), block.getPeriod().endAt(),
+                block.getReason().name(), block.getUpdatedAt()));
+
+        if (!updated) {
+            availabilityService.checkOverlap(block);
+            if (!blockRepository.existsById(block.getId())) {
+                throw new NotFoundException("Block not found");
+            }
+            throw changedConcurrently(block.getPropertyId());
+        }
+    }
+
+    private static OptimisticLockingFailureException changedConcurrently(UUID propertyId) {
+        return new OptimisticLockingFailureException("Calendar of property [" + propertyId + "] changed while writing");
+    }
+}
@@ -0,0 +1,59 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity;
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Pessimistic row lock ({@code SELECT ... FOR UPDATE}) on the property, released by the database on commit/rollback.
+ * Safe across any number of application nodes.
+ * <p>
+ * {@code FOR UPDATE} has no portable wait timeout (H2 and PostgreSQL ignore the JPA lock timeout hint), so writers of
+ * this node first queue on in-process {@link LockStripes} with the configured timeout and only reach the row lock when
+ * no other local writer holds it. Waits on writers of other nodes are bounded by the database lock timeout, reported
+ * the same way.
+ */
+@Component
+@ConditionalOnProperty(name = "booking.lock.strategy", havingValue = "DATABASE", matchIfMissing = true)
+class DatabasePropertyLock implements PropertyLock {
+
+    private final LockStripes gate;
+    private final PropertyRepository propertyRepository;
+
+    DatabasePropertyLock(LockProperties properties, PropertyRepository propertyRepository) {
+        this.gate = new LockStripes(properties);
+        this.propertyRepository = propertyRepository;
+    }
+
+    @Override
+    public Optional<PropertyEntity> lock(UUID propertyId, Duration timeout) {
+        gate.lock(propertyId, timeout);
+        try {
+            return Optional.ofNullable(propertyRepository.findByIdWithLock(propertyId));
+        } catch (PessimisticLockingFailureException ex) {
+            throw gate.timeout("Property [" + propertyId + "] is", timeout);
+        }
+    }
+
+    /** Locks all rows with one statement, ordered by id so concurrent bulk writers lock them in the same order. */
+    @Override
+    public void lockAll(Collection<UUID> propertyIds, Duration timeout) {
+        if (propertyIds.isEmpty()) {
+            return;
+        }
+
+        gate.lockAll(propertyIds, timeout);
+        try {
+            propertyRepository.findAllByIdWithLock(List.copyOf(propertyIds));
+        } catch (PessimisticLockingFailureException ex) {
+            throw gate.timeout("[" + propertyIds.size() + "] properties are", timeout);
+        }
+    }
+}
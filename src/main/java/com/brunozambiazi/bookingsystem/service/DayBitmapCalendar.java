@@ -0,0 +1,389 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.domain.model.DateRange;
+import com.brunozambiazi.bookingsystem.domain.model.Occupancy;
+import com.brunozambiazi.bookingsystem.domain.model.PropertyChangedEvent;
+import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus;
+import com.brunozambiazi.bookingsystem.domain.repository.OccupancyView;
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Availability engine keeping one day bitmap per active property (one {@code long} word per 64 days) over a rolling
+ * horizon starting at the day of the last rebuild.
+ * <p>
+ * Changes are applied inside the writing transaction, when the overlap check already passed, so a free bit always
+ * means a free day. A rolled back write resyncs the days it touched: the ones a committed occupancy (read again) or
+ * another in-flight change still covers stay occupied, the others are freed. Rebuilds replay in-flight and concurrent
+ * changes on top of the fresh tables read.
+ * <p>
+ * Once a transaction saving properties commits, a property activated (or created) without a bitmap, or deactivated
+ * with one, triggers a rebuild, so searches neither miss new properties nor return deactivated ones until the nightly
+ * rebuild. Property changes are rare enough for a full rebuild to be cheaper than keeping the bitmap set mutable.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+class DayBitmapCalendar implements SmartInitializingSingleton {
+
+    /** Order of UUID columns in the database (unsigned, byte by byte), so pages match the keyset query. */
+    static final Comparator<UUID> DATABASE_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    private final PropertySearchProperties properties;
+    private final PropertyRepository propertyRepository;
+
+    private final Lock rebuildLock = new ReentrantLock();
+    private final ReadWriteLock rollbackLock = new ReentrantReadWriteLock();
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Map<Object, Change> inFlight = new ConcurrentHashMap<>();
+    private final Object changedPropertiesKey = new Object();
+    private final Queue<Change> journal = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean rebuilding;
+    private volatile Snapshot snapshot;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (properties.bitmapEnabled()) {
+            rebuild();
+        }
+    }
+
+    @Scheduled(cron = "${booking.search.bitmap-rebuild-cron:0 0 0 * * *}")
+    void rollHorizon() {
+        if (properties.bitmapEnabled()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuilds are serialized with a {@link ReentrantLock} rather than {@code synchronized}, so a virtual thread
+     * waiting on the database while rebuilding does not pin its carrier thread.
+     */
+    void rebuild() {
+        rebuildLock.lock();
+        try {
+            rebuildSnapshot();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void rebuildSnapshot() {
+        rebuilding = true;
+        List<Change> pending = List.copyOf(inFlight.values());
+
+        LocalDate origin = LocalDate.now();
+        Snapshot fresh = new Snapshot(origin, properties.bitmapHorizonDays());
+        propertyRepository.findAllActiveIds().forEach(fresh::addProperty);
+
+        for (OccupancyView view : propertyRepository.findAllOccupancies(origin, fresh.end())) {
+            fresh.set(view.toOccupancy());
+        }
+
+        swapLock.writeLock().lock();
+        try {
+            pending.forEach(fresh::apply);
+            for (Change change = journal.poll(); change != null; change = journal.poll()) {
+                fresh.apply(change);
+            }
+
+            snapshot = fresh;
+            rebuilding = false;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        log.info("Day bitmap calendar rebuilt for [{}] properties from [{}] to [{}]", fresh.bitmaps.size(), origin, fresh.end());
+    }
+
+    /**
+     * Returns the active properties free during the whole period, or an empty optional when the calendar is not built
+     * or the period is not fully within its horizon.
+     */
+    Optional<List<UUID>> findAvailable(DateRange period) {
+        return findAvailable(period, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Keyset variant of {@link #findAvailable(DateRange)}: at most {@code limit} properties after the given one, in
+     * {@link #DATABASE_ORDER}.
+     */
+    Optional<List<UUID>> findAvailable(DateRange period, UUID after, int limit) {
+        Snapshot current = snapshot;
+        if (current == null || !current.covers(period)) {
+            return Optional.empty();
+        }
+
+        int from = current.dayOf(period.startAt());
+        int to = current.dayOf(period.endAt());
+        Map<UUID, AtomicLongArray> candidates = after == null ? current.bitmaps : current.bitmaps.tailMap(after, false);
+
+        List<UUID> available = new ArrayList<>();
+        for (Map.Entry<UUID, AtomicLongArray> entry : candidates.entrySet()) {
+            if (available.size() == limit) {
+                break;
+            }
+            if (isFree(entry.getValue(), from, to)) {
+                available.add(entry.getKey());
+            }
+        }
+        return Optional.of(available);
+    }
+
+    @EventListener
+    void onOccupancyChanged(OccupancyChangedEvent event) {
+        if (!properties.bitmapEnabled()) {
+            return;
+        }
+
+        Change change = new Change(event.previous(), event.current());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(change);
+            return;
+        }
+
+        Object token = new Object();
+        rollbackLock.readLock().lock();
+        try {
+            inFlight.put(token, change);
+            apply(change);
+        } finally {
+            rollbackLock.readLock().unlock();
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                inFlight.remove(token);
+                if (status != STATUS_COMMITTED) {
+                    rollBack(change);
+                }
+            }
+        });
+    }
+
+    @EventListener
+    void onPropertyChanged(PropertyChangedEvent event) {
+        if (!properties.bitmapEnabled()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh(Set.of(event.propertyId()));
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<UUID> changed = (Set<UUID>) TransactionSynchronizationManager.getResource(changedPropertiesKey);
+        if (changed == null) {
+            Set<UUID> saved = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(changedPropertiesKey, saved);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refresh(saved);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(changedPropertiesKey);
+                }
+            });
+            changed = saved;
+        }
+        changed.add(event.propertyId());
+    }
+
+    /** Rebuilds when one of the properties is active without a bitmap or has one while no longer active. */
+    private void refresh(Set<UUID> propertyIds) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+
+        boolean stale = propertyRepository.findAllById(propertyIds)
+                .stream()
+                .anyMatch(property -> (property.getStatus() == PropertyStatus.ACTIVE) != current.bitmaps.containsKey(property.getId()));
+        if (stale) {
+            log.info("Active properties changed, rebuilding day bitmap calendar");
+            rebuild();
+        }
+    }
+
+    /**
+     * Resyncs the periods of a rolled back change with the committed occupancies of their property, read again, and the
+     * other in-flight changes. In-flight changes are taken before reading, and no change is applied until the days are
+     * freed, so a change committing meanwhile is either taken or read.
+     */
+    private void rollBack(Change change) {
+        rollbackLock.writeLock().lock();
+        try {
+            List<Occupancy> inFlightSet = inFlight.values().stream()
+                    .map(Change::set)
+                    .filter(Objects::nonNull)
+                    .toList();
+
+            Stream.of(change.cleared(), change.set())
+                    .filter(Objects::nonNull)
+                    .forEach(written -> resync(written, inFlightSet));
+        } finally {
+            rollbackLock.writeLock().unlock();
+        }
+    }
+
+    /** Occupies the days of the period covered by a committed or in-flight occupancy and frees the others. */
+    private void resync(Occupancy written, List<Occupancy> inFlightSet) {
+        DateRange period = written.period();
+        List<Occupancy> covering = new ArrayList<>();
+        for (OccupancyView view : propertyRepository.findOccupanciesOrdered(written.propertyId(), period.startAt(), period.endAt())) {
+            Occupancy committed = view.toOccupancy();
+            covering.add(committed);
+            apply(new Change(null, committed));
+        }
+        inFlightSet.stream()
+                .filter(occupancy -> occupancy.propertyId().equals(written.propertyId()) && occupancy.overlaps(period))
+                .forEach(covering::add);
+        covering.sort(Comparator.comparing(occupancy -> occupancy.period().startAt()));
+
+        FreeGaps free = new FreeGaps(period, 1, gap -> {
+            apply(new Change(new Occupancy(written.id(), written.propertyId(), written.type(), gap), null));
+        });
+        covering.forEach(occupancy -> free.occupied(occupancy.period().startAt(), occupancy.period().endAt()));
+        free.finish();
+    }
+
+    private void apply(Change change) {
+        swapLock.readLock().lock();
+        try {
+            Snapshot current = snapshot;
+            if (current != null) {
+                current.apply(change);
+            }
+            if (rebuilding) {
+                journal.add(change);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private static boolean isFree(AtomicLongArray words, int from, int to) {
+        int firstWord = from >>> 6;
+        int lastWord = (to - 1) >>> 6;
+
+        for (int word = firstWord; word <= lastWord; word++) {
+            if ((words.get(word) & mask(word, from, to)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Bits of the given word covering days {@code [from, to)}. */
+    private static long mask(int word, int from, int to) {
+        int first = Math.max(from - (word << 6), 0);
+        int last = Math.min(to - (word << 6), 64);
+
+        long upTo = last == 64 ? -1L : (1L << last) - 1;
+        return upTo & (-1L << first);
+    }
+
+    private record Change(
+            Occupancy cleared,
+            Occupancy set
+    ) {
+    }
+
+    private static class Snapshot {
+
+        private final LocalDate origin;
+        private final int days;
+        private final NavigableMap<UUID, AtomicLongArray> bitmaps = new TreeMap<>(DATABASE_ORDER);
+
+        private Snapshot(LocalDate origin, int days) {
+            this.origin = origin;
+            this.days = days;
+        }
+
+        private LocalDate end() {
+            return origin.plusDays(days);
+        }
+
+        private boolean covers(DateRange period) {
+            return !period.startAt().isBefore(origin) && !period.endAt().isAfter(end());
+        }
+
+        private int dayOf(LocalDate date) {
+            return (int) ChronoUnit.DAYS.between(origin, date);
+        }
+
+        private void addProperty(UUID propertyId) {
+            bitmaps.put(propertyId, new AtomicLongArray((days + 63) >>> 6));
+        }
+
+        private void apply(Change change) {
+            if (change.cleared() != null) {
+                update(change.cleared(), false);
+            }
+            if (change.set() != null) {
+                update(change.set(), true);
+            }
+        }
+
+        private void set(Occupancy occupancy) {
+            update(occupancy, true);
+        }
+
+        private void update(Occupancy occupancy, boolean occupied) {
+            AtomicLongArray words = bitmaps.get(occupancy.propertyId());
+            if (words == null) {
+                return;
+            }
+
+            int from = Math.max(dayOf(occupancy.period().startAt()), 0);
+            int to = Math.min(dayOf(occupancy.period().endAt()), days);
+            if (from >= to) {
+                return;
+            }
+
+            for (int word = from >>> 6; word <= (to - 1) >>> 6; word++) {
+                long mask = mask(word, from, to);
+                if (occupied) {
+                    words.getAndAccumulate(word, mask, (bits, bitsToSet) -> bits | bitsToSet);
+                } else {
+                    words.getAndAccumulate(word, mask, (bits, bitsToClear) -> bits & ~bitsToClear);
+                }
+            }
+        }
+    }
+}
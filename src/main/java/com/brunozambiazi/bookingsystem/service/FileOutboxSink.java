@@ -0,0 +1,39 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyOutboxEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Appends the drained events as JSON lines to {@code booking.outbox.file-path}, a stand-in for a message broker that
+ * consumers can tail.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "booking.outbox.file-path")
+class FileOutboxSink implements OutboxSink {
+
+    private final ObjectMapper objectMapper;
+    private final OutboxProperties properties;
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @Override
+    public void publish(List<OccupancyOutboxEvent> events) throws IOException {
+        List<String> lines = new ArrayList<>(events.size());
+        for (OccupancyOutboxEvent event : events) {
+            lines.add(objectMapper.writeValueAsString(event));
+        }
+        Files.write(properties.filePath(), lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,87 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.domain.model.DateRange;
+import com.brunozambiazi.bookingsystem.domain.repository.OccupancyView;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Free gaps of at least {@code minNights} nights within a period, swept from the occupancies of one property ordered by
+ * start date: a cursor walks the rows once, so it is linear in their number and keeps nothing but the cursor.
+ */
+class FreeGaps {
+
+    private final DateRange period;
+    private final int minNights;
+    private final Consumer<DateRange> consumer;
+    private LocalDate cursor;
+
+    FreeGaps(DateRange period, int minNights, Consumer<DateRange> consumer) {
+        this.period = period;
+        this.minNights = minNights;
+        this.consumer = consumer;
+        this.cursor = period.startAt();
+    }
+
+    /**
+     * Merges active properties ordered by id with their rows ordered by property and start date, both in
+     * {@link DayBitmapCalendar#DATABASE_ORDER}, handing each property and its gaps to the consumer as soon as its rows
+     * are swept. Properties without rows have no occupancy in the period; rows of properties not streamed (inactive
+     * ones) are skipped. Only the current property's gaps are kept, however many properties and rows are streamed.
+     */
+    static <P> void byProperty(Stream<P> properties, Function<P, UUID> ids, Stream<OccupancyView> rows, DateRange period, int minNights,
+            BiConsumer<P, List<DateRange>> consumer) {
+        Iterator<OccupancyView> iterator = rows.iterator();
+        OccupancyView row = next(iterator);
+
+        for (Iterator<P> candidates = properties.iterator(); candidates.hasNext(); ) {
+            P property = candidates.next();
+            UUID propertyId = ids.apply(property);
+            while (row != null && DayBitmapCalendar.DATABASE_ORDER.compare(row.getPropertyId(), propertyId) < 0) {
+                row = next(iterator);
+            }
+
+            List<DateRange> gaps = new ArrayList<>();
+            FreeGaps sweep = new FreeGaps(period, minNights, gaps::add);
+            while (row != null && row.getPropertyId().equals(propertyId)) {
+                sweep.occupied(row.getStartAt(), row.getEndAt());
+                row = next(iterator);
+            }
+            sweep.finish();
+            consumer.accept(property, gaps);
+        }
+    }
+
+    void occupied(LocalDate startAt, LocalDate endAt) {
+        if (startAt.isAfter(cursor)) {
+            emit(cursor, startAt.isBefore(period.endAt()) ? startAt : period.endAt());
+        }
+        if (endAt.isAfter(cursor)) {
+            cursor = endAt;
+        }
+    }
+
+    /** Emits the gap after the last occupancy. */
+    void finish() {
+        emit(cursor, period.endAt());
+        cursor = period.endAt();
+    }
+
+    private static OccupancyView next(Iterator<OccupancyView> rows) {
+        return rows.hasNext() ? rows.next() : null;
+    }
+
+    private void emit(LocalDate startAt, LocalDate endAt) {
+        if (startAt.isBefore(endAt) && ChronoUnit.DAYS.between(startAt, endAt) >= minNights) {
+            consumer.accept(new DateRange(startAt, endAt));
+        }
+    }
+}
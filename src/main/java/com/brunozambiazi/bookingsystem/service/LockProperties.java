@@ -0,0 +1,56 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "booking.lock")
+record LockProperties(
+        @DefaultValue("DATABASE") Strategy strategy,
+        @DefaultValue("1024") int stripes,
+        @DefaultValue("5") int retryAttempts,
+        @DefaultValue("5ms") Duration retryBackoff,
+        @DefaultValue WaitTimeout waitTimeout,
+        @DefaultValue("1s") Duration retryAfter
+) {
+
+    enum Strategy {
+
+        /** Pessimistic {@code SELECT ... FOR UPDATE} on the property row. */
+        DATABASE,
+
+        /** In-process {@link java.util.concurrent.locks.ReentrantLock} stripes keyed by property id. */
+        STRIPED,
+
+        /** Conditional bump of the revisions of the written months of the property on commit, retried on conflict. */
+        OPTIMISTIC,
+
+        /** No lock: only valid with the {@code SLOTS} write mode, whose day slots reject conflicting writes. */
+        NONE;
+
+        /**
+         * Whether holding the lock keeps out every other writer of the property, and so of each of its bookings and
+         * blocks. Optimistic writers of disjoint months and unlocked writers run concurrently.
+         */
+        boolean serializesWriters() {
+            return this == DATABASE || this == STRIPED;
+        }
+    }
+
+    /**
+     * How long a writer waits for the property lock before failing with a retryable error, per type written.
+     */
+    record WaitTimeout(
+            @DefaultValue("2s") Duration booking,
+            @DefaultValue("5s") Duration block
+    ) {
+
+        Duration of(OccupancyType type) {
+            return switch (type) {
+                case BOOKING -> booking;
+                case BLOCK -> block;
+            };
+        }
+    }
+}
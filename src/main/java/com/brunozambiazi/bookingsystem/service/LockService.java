@@ -2,28 +2,116 @@ package com.brunozambiazi.bookingsystem.service;
 
 import com.brunozambiazi.bookingsystem.domain.entity.BlockEntity;
 import com.brunozambiazi.bookingsystem.domain.entity.BookingEntity;
-import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository;
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity;
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType;
+import com.brunozambiazi.bookingsystem.domain.repository.BlockRepository;
+import com.brunozambiazi.bookingsystem.domain.repository.BookingRepository;
+import com.brunozambiazi.bookingsystem.exception.LockTimeoutException;
+import com.brunozambiazi.bookingsystem.exception.NotFoundException;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PessimisticLockException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import static jakarta.persistence.LockModeType.PESSIMISTIC_WRITE;
+import static org.hibernate.jpa.SpecHints.HINT_SPEC_LOCK_TIMEOUT;
+
+/**
+ * Acquires property locks, observing how long each writer waits for them as {@value #LOCK_WAIT_METER} (a timer and a
+ * tracing span), tagged with the lock {@code strategy}, whether one property or many were locked ({@code scope}) and
+ * whether a booking or a block is being written ({@code type}). Writers give up after the wait timeout of their type
+ * ({@code booking.lock.wait-timeout}) with a retryable {@link LockTimeoutException}.
+ * <p>
+ * Also reads the bookings and blocks about to be changed: with strategies that don't serialize all writers of a
+ * property ({@link LockProperties.Strategy#serializesWriters()}) their row is locked, so concurrent changes of the same
+ * booking or block (e.g. a rebook and a date change) are applied one after the other instead of merged.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 class LockService {
 
-    private final PropertyRepository propertyRepository;
+    static final String LOCK_WAIT_METER = "booking.lock.wait";
+
+    private final BlockRepository blockRepository;
+    private final BookingRepository bookingRepository;
+    private final EntityManager entityManager;
+    private final LockProperties lockProperties;
+    private final ObservationRegistry observationRegistry;
+    private final PropertyLock propertyLock;
 
-    void acquireLockFor(BlockEntity block) {
+    Optional<PropertyEntity> acquireLockFor(BlockEntity block) {
         UUID propertyId = block.getPropertyId();
         log.info("Acquiring lock for block property [{}]", propertyId);
-        propertyRepository.findByIdWithLock(propertyId);
+        return observed(OccupancyType.BLOCK, "single", () -> propertyLock.lock(propertyId, timeoutFor(OccupancyType.BLOCK)));
     }
 
-    void acquireLockFor(BookingEntity booking) {
+    Optional<PropertyEntity> acquireLockFor(BookingEntity booking) {
         UUID propertyId = booking.getPropertyId();
         log.info("Acquiring lock for booking property [{}]", propertyId);
-        propertyRepository.findByIdWithLock(propertyId);
+        return observed(OccupancyType.BOOKING, "single", () -> propertyLock.lock(propertyId, timeoutFor(OccupancyType.BOOKING)));
+    }
+
+    void acquireLocksFor(OccupancyType type, Collection<UUID> propertyIds) {
+        log.info("Acquiring locks for [{}] properties", propertyIds.size());
+        observed(type, "bulk", () -> {
+            propertyLock.lockAll(propertyIds, timeoutFor(type));
+            return null;
+        });
+    }
+
+    BlockEntity getBlockForUpdate(UUID blockId) {
+        if (lockProperties.strategy().serializesWriters()) {
+            return blockRepository.getById(blockId);
+        }
+        return findForUpdate(BlockEntity.class, blockId, OccupancyType.BLOCK)
+                .orElseThrow(() -> new NotFoundException("Block not found"));
+    }
+
+    BookingEntity getBookingForUpdate(UUID bookingId) {
+        if (lockProperties.strategy().serializesWriters()) {
+            return bookingRepository.getById(bookingId);
+        }
+        return findForUpdate(BookingEntity.class, bookingId, OccupancyType.BOOKING)
+                .orElseThrow(() -> new NotFoundException("Booking not found"));
+    }
+
+    /**
+     * Locks the row with the wait timeout of its type as lock timeout hint. Databases ignoring the hint bound the wait
+     * with their own lock timeout instead, reported the same way.
+     */
+    private <T> Optional<T> findForUpdate(Class<T> entity, UUID id, OccupancyType type) {
+        log.info("Locking {} [{}] for update", type.name().toLowerCase(), id);
+        Duration timeout = timeoutFor(type);
+        return observed(type, "row", () -> {
+            try {
+                return Optional.ofNullable(entityManager.find(entity, id, PESSIMISTIC_WRITE, Map.of(HINT_SPEC_LOCK_TIMEOUT, timeout.toMillis())));
+            } catch (PessimisticLockException | jakarta.persistence.LockTimeoutException ex) {
+                throw new LockTimeoutException("The " + type.name().toLowerCase() + " [" + id + "] is busy, lock not acquired within "
+                        + timeout.toMillis() + "ms", lockProperties.retryAfter());
+            }
+        });
+    }
+
+    private Duration timeoutFor(OccupancyType type) {
+        return lockProperties.waitTimeout().of(type);
+    }
+
+    private <T> T observed(OccupancyType type, String scope, Supplier<T> locking) {
+        return Observation.createNotStarted(LOCK_WAIT_METER, observationRegistry)
+                .contextualName("lock " + scope)
+                .lowCardinalityKeyValue("strategy", lockProperties.strategy().name())
+                .lowCardinalityKeyValue("scope", scope)
+                .lowCardinalityKeyValue("type", type.name().toLowerCase())
+                .observe(locking);
     }
 }
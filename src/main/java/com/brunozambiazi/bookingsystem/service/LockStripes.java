@@ -0,0 +1,75 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.exception.LockTimeoutException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In-process locks striped by property id, each held until the transaction that acquired it completes. Waits are
+ * bounded: a writer that does not get its stripe in time fails with a {@link LockTimeoutException} instead of keeping
+ * its request thread and connection busy behind a hot property.
+ */
+class LockStripes {
+
+    private final ReentrantLock[] stripes;
+    private final Duration retryAfter;
+
+    LockStripes(LockProperties properties) {
+        int size = Integer.highestOneBit(Math.max(properties.stripes(), 1));
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        retryAfter = properties.retryAfter();
+    }
+
+    void lock(UUID propertyId, Duration timeout) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Property locks must be acquired within a transaction");
+        }
+
+        ReentrantLock stripe = stripes[stripeIndex(propertyId)];
+        try {
+            if (!stripe.tryLock(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw timeout("Property [" + propertyId + "] is", timeout);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw timeout("Property [" + propertyId + "] is", timeout);
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                stripe.unlock();
+            }
+        });
+    }
+
+    /**
+     * Orders by stripe rather than by property id: two properties sharing a stripe share its lock, so only the stripe
+     * order is deadlock free. The timeout bounds the whole acquisition, not each stripe.
+     */
+    void lockAll(Collection<UUID> propertyIds, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        propertyIds.stream()
+                .distinct()
+                .sorted(Comparator.comparingInt(this::stripeIndex).thenComparing(Comparator.naturalOrder()))
+                .forEach(propertyId -> lock(propertyId, Duration.ofNanos(Math.max(deadline - System.nanoTime(), 0))));
+    }
+
+    int stripeIndex(UUID propertyId) {
+        int hash = propertyId.hashCode();
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+
+    LockTimeoutException timeout(String properties, Duration timeout) {
+        return new LockTimeoutException(properties + " busy, lock not acquired within " + timeout.toMillis() + "ms", retryAfter);
+    }
+}
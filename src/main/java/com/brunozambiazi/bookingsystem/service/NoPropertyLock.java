@@ -0,0 +1,35 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import static com.brunozambiazi.bookingsystem.service.AvailabilityProperties.WriteMode.SLOTS;
+
+/**
+ * Does not serialize writers at all. Only valid with the {@code SLOTS} write mode, where concurrent writes of the same
+ * nights are rejected by the primary key of the {@link OccupancySlots} instead.
+ */
+@Component
+@ConditionalOnProperty(name = "booking.lock.strategy", havingValue = "NONE")
+class NoPropertyLock implements PropertyLock {
+
+    NoPropertyLock(AvailabilityProperties properties) {
+        if (properties.writeMode() != SLOTS) {
+            throw new IllegalStateException("booking.lock.strategy=NONE requires booking.availability.write-mode=SLOTS");
+        }
+    }
+
+    @Override
+    public Optional<PropertyEntity> lock(UUID propertyId, Duration timeout) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void lockAll(Collection<UUID> propertyIds, Duration timeout) {
+    }
+}
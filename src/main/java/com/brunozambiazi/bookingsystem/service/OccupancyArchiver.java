@@ -0,0 +1,102 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.domain.entity.BlockEntity;
+import com.brunozambiazi.bookingsystem.domain.entity.BookingEntity;
+import com.brunozambiazi.bookingsystem.domain.model.Occupancy;
+import com.brunozambiazi.bookingsystem.domain.repository.BlockRepository;
+import com.brunozambiazi.bookingsystem.domain.repository.BookingRepository;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntSupplier;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Moves bookings and blocks that no longer matter for availability out of the live tables, so overlap checks and
+ * searches only walk index ranges of live rows: bookings and blocks ended, and bookings cancelled, longer than
+ * {@code booking.archive.retention} ago.
+ * <p>
+ * Rows are moved in chunks of {@code booking.archive.chunk-size}, each one in its own transaction: the chunk is locked,
+ * copied to the archive table and deleted, and the occupancies it held are released as archived, so the occupancy
+ * index, bitmap calendar and day slots forget them too while the change outbox, which already recorded how they ended,
+ * records nothing.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+class OccupancyArchiver {
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final ArchiveProperties properties;
+    private final BlockRepository blockRepository;
+    private final BookingRepository bookingRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Scheduled(cron = "${booking.archive.cron:0 30 0 * * *}")
+    void archiveOnSchedule() {
+        if (properties.enabled()) {
+            archive();
+        }
+    }
+
+    /** Archives until nothing is left to archive, returning how many bookings and blocks were moved. */
+    int archive() {
+        LocalDate endedBefore = LocalDate.now().minusDays(properties.retention().toDays());
+        LocalDateTime cancelledBefore = LocalDateTime.now().minus(properties.retention());
+        log.info("Archiving bookings and blocks ended before [{}] and bookings cancelled before [{}]", endedBefore, cancelledBefore);
+
+        int bookings = drain(() -> archiveBookings(endedBefore, cancelledBefore));
+        int blocks = drain(() -> archiveBlocks(endedBefore));
+
+        log.info("Archived [{}] bookings and [{}] blocks", bookings, blocks);
+        return bookings + blocks;
+    }
+
+    private int drain(IntSupplier chunk) {
+        int total = 0;
+        int moved;
+        do {
+            moved = transactionTemplate.execute(status -> chunk.getAsInt());
+            total += moved;
+        } while (moved == properties.chunkSize());
+        return total;
+    }
+
+    private int archiveBookings(LocalDate endedBefore, LocalDateTime cancelledBefore) {
+        List<BookingEntity> bookings = bookingRepository.findArchivable(endedBefore, cancelledBefore, properties.chunkSize());
+        if (bookings.isEmpty()) {
+            return 0;
+        }
+
+        List<UUID> ids = bookings.stream().map(BookingEntity::getId).toList();
+        bookingRepository.copyToArchive(ids);
+        bookingRepository.deleteAllByIdIn(ids);
+        bookings.forEach(booking -> release(booking.toOccupancy()));
+        return bookings.size();
+    }
+
+    private int archiveBlocks(LocalDate endedBefore) {
+        List<BlockEntity> blocks = blockRepository.findArchivable(endedBefore, properties.chunkSize());
+        if (blocks.isEmpty()) {
+            return 0;
+        }
+
+        List<UUID> ids = blocks.stream().map(BlockEntity::getId).toList();
+        blockRepository.copyToArchive(ids);
+        blockRepository.deleteAllByIdIn(ids);
+        blocks.forEach(block -> release(block.toOccupancy()));
+        return blocks.size();
+    }
+
+    private void release(Occupancy occupancy) {
+        if (occupancy != null) {
+            eventPublisher.publishEvent(OccupancyChangedEvent.archived(occupancy));
+        }
+    }
+}
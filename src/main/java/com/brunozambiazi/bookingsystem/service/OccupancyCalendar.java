@@ -0,0 +1,47 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.domain.model.DateRange;
+import com.brunozambiazi.bookingsystem.domain.model.Occupancy;
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType;
+import java.time.LocalDate;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Occupancies of one property within a window, loaded once for bulk writes. Relies on stored occupancies never
+ * overlapping each other, so walking back from the last one starting before a period ends can stop at the first one
+ * ending before the period starts.
+ */
+class OccupancyCalendar {
+
+    private final NavigableMap<LocalDate, Occupancy> byStart = new TreeMap<>();
+
+    void add(Occupancy occupancy) {
+        byStart.put(occupancy.period().startAt(), occupancy);
+    }
+
+    /** Same precedence as the single write checks: blocks are reported before bookings. */
+    Optional<OccupancyType> findOverlap(DateRange period) {
+        Optional<OccupancyType> overlap = Optional.empty();
+        for (Occupancy candidate : byStart.headMap(period.endAt(), false).descendingMap().values()) {
+            if (!candidate.overlaps(period)) {
+                break;
+            }
+            if (candidate.type() == OccupancyType.BLOCK) {
+                return Optional.of(OccupancyType.BLOCK);
+            }
+            overlap = Optional.of(candidate.type());
+        }
+        return overlap;
+    }
+
+    /**
+     * Adds the occupancy when it is free, otherwise throws the same {@link com.brunozambiazi.bookingsystem.exception.OverlapException}
+     * as the single write checks.
+     */
+    void reserve(Occupancy occupancy) {
+        findOverlap(occupancy.period()).ifPresent(AvailabilityService::throwOverlap);
+        add(occupancy);
+    }
+}
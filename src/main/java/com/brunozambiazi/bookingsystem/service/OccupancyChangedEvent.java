@@ -0,0 +1,24 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.domain.model.Occupancy;
+
+/**
+ * Published inside the writing transaction whenever a booking or block starts, stops or changes occupying a property.
+ * {@code previous} is {@code null} for new occupancies and {@code current} is {@code null} for released ones.
+ * {@code archived} releases are rows moved out of the live tables, not changes of the booking or block: in-memory
+ * structures forget them, but they are not recorded as changes.
+ */
+record OccupancyChangedEvent(
+        Occupancy previous,
+        Occupancy current,
+        boolean archived
+) {
+
+    OccupancyChangedEvent(Occupancy previous, Occupancy current) {
+        this(previous, current, false);
+    }
+
+    static OccupancyChangedEvent archived(Occupancy occupancy) {
+        return new OccupancyChangedEvent(occupancy, null, true);
+    }
+}
@@ -0,0 +1,166 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.domain.model.DateRange;
+import com.brunozambiazi.bookingsystem.domain.model.Occupancy;
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType;
+import com.brunozambiazi.bookingsystem.domain.repository.OccupancyView;
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In-memory occupancy index with one sorted interval set per property, holding active bookings and blocks.
+ * <p>
+ * New occupancies are added as soon as they are written (still under the property lock), while replaced or released
+ * ones are only removed after commit, so the index may briefly report a conflict that no longer exists but never
+ * misses one. Rolled back writes are undone on transaction completion.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+class OccupancyIndex implements SmartInitializingSingleton {
+
+    private static final UUID LOWEST_ID = new UUID(Long.MIN_VALUE, Long.MIN_VALUE);
+
+    private static final Comparator<Occupancy> ORDER = Comparator
+            .comparing((Occupancy occupancy) -> occupancy.period().startAt())
+            .thenComparing(occupancy -> occupancy.period().endAt())
+            .thenComparing(Occupancy::id);
+
+    private final AvailabilityProperties properties;
+    private final PropertyRepository propertyRepository;
+
+    private final Map<UUID, Timeline> timelines = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (properties.indexEnabled()) {
+            load();
+        }
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+
+    void load() {
+        log.info("Loading occupancy index");
+        timelines.clear();
+
+        for (OccupancyView view : propertyRepository.findAllOccupancies()) {
+            add(view.toOccupancy());
+        }
+
+        ready = true;
+        log.info("Occupancy index loaded for [{}] properties", timelines.size());
+    }
+
+    /**
+     * Returns the type of the occupancy overlapping the given period, ignoring {@code excludedId}. Blocks take
+     * precedence over bookings, mirroring the order in which the database checks run.
+     */
+    Optional<OccupancyType> findOverlap(UUID propertyId, DateRange period, UUID excludedId) {
+        Timeline timeline = timelines.get(propertyId);
+        if (timeline == null) {
+            return Optional.empty();
+        }
+
+        LocalDate from = period.startAt().minusDays(timeline.longestStay.get());
+        OccupancyType found = null;
+
+        for (Occupancy occupancy : timeline.entries.subSet(probe(from), true, probe(period.endAt()), false)) {
+            if (occupancy.id().equals(excludedId) || !occupancy.overlaps(period)) {
+                continue;
+            }
+
+            if (occupancy.type() == OccupancyType.BLOCK) {
+                return Optional.of(OccupancyType.BLOCK);
+            }
+            found = occupancy.type();
+        }
+
+        return Optional.ofNullable(found);
+    }
+
+    @EventListener
+    void onOccupancyChanged(OccupancyChangedEvent event) {
+        if (!properties.indexEnabled()) {
+            return;
+        }
+
+        Occupancy previous = event.previous();
+        Occupancy current = event.current();
+
+        if (current != null) {
+            add(current);
+        }
+
+        afterCompletion(committed -> {
+            if (committed && previous != null && !previous.equals(current)) {
+                remove(previous);
+            }
+            if (!committed && current != null && !current.equals(previous)) {
+                remove(current);
+            }
+        });
+    }
+
+    private void add(Occupancy occupancy) {
+        Timeline timeline = timelines.computeIfAbsent(occupancy.propertyId(), id -> new Timeline());
+        timeline.entries.add(occupancy);
+
+        long nights = ChronoUnit.DAYS.between(occupancy.period().startAt(), occupancy.period().endAt());
+        timeline.longestStay.accumulateAndGet(nights, Math::max);
+    }
+
+    private void remove(Occupancy occupancy) {
+        Timeline timeline = timelines.get(occupancy.propertyId());
+        if (timeline != null) {
+            timeline.entries.remove(occupancy);
+        }
+    }
+
+    private static void afterCompletion(Consumer<Boolean> callback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            callback.accept(true);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                callback.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    private static Occupancy probe(LocalDate startAt) {
+        return new Occupancy(LOWEST_ID, null, null, new DateRange(startAt, startAt.plusDays(1)));
+    }
+
+    private static class Timeline {
+
+        private final NavigableSet<Occupancy> entries = new ConcurrentSkipListSet<>(ORDER);
+
+        /** Longest stay ever seen, bounding how far back an overlapping interval may start. */
+        private final AtomicLong longestStay = new AtomicLong();
+    }
+}
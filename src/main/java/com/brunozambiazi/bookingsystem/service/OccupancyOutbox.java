@@ -0,0 +1,208 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.domain.model.DateRange;
+import com.brunozambiazi.bookingsystem.domain.model.Occupancy;
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyOutboxEvent;
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyOutboxEvent.Change;
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Transactional outbox of booking and block changes. Every {@link OccupancyChangedEvent} but archived releases is
+ * written to {@code occupancy_outbox} inside the writing transaction, so a change is recorded if and only if it
+ * commits, and a background drainer publishes the recorded changes to every {@link OutboxSink} as
+ * {@link OccupancyOutboxEvent}s, off the request path.
+ * <p>
+ * Each drain locks the position of the last published sequence, publishes the next {@code booking.outbox.batch-size}
+ * rows, deletes them and moves the position in one transaction, batch after batch until the outbox is empty. A failing
+ * sink rolls the batch back and the drain stops until the next run, so events are published at least once and in order.
+ * <p>
+ * Sequences are taken when a change is recorded, not when it commits, so with writers not serialized per property
+ * (e.g. {@code OPTIMISTIC} or {@code NONE} locks) a later sequence may commit first. A batch therefore stops at the
+ * first gap in the sequence, holding back the events behind a change that may still commit. Rolled back changes leave
+ * gaps that never fill: gaps before an event older than {@code booking.outbox.gap-timeout} are skipped, so that timeout
+ * has to outlast any writing transaction. Rows are read from the lowest sequence left, not from the position, so a
+ * change committing after its gap was skipped is still published, first and out of order, and deleted.
+ * <p>
+ * The delay between writing and publishing an event is recorded as {@value #LAG_METER}, the age of the oldest event
+ * still waiting as {@value #PENDING_AGE_METER} and the published events are counted as {@value #PUBLISHED_METER}.
+ */
+@Slf4j
+@Component
+class OccupancyOutbox {
+
+    static final String LAG_METER = "booking.outbox.lag";
+    static final String PENDING_AGE_METER = "booking.outbox.pending.age";
+    static final String PUBLISHED_METER = "booking.outbox.published";
+
+    private static final String RECORD = """
+        INSERT INTO occupancy_outbox (occupancy_id, occupancy_type, property_id, change_type,
+                                      previous_start_at, previous_end_at, start_at, end_at)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+    """;
+
+    private static final String POSITION = "SELECT published_seq FROM occupancy_outbox_position WHERE id = 1 FOR UPDATE";
+
+    private static final String NEXT = """
+        SELECT *
+        FROM occupancy_outbox
+        ORDER BY seq
+        LIMIT ?
+    """;
+
+    private static final String ADVANCE = "UPDATE occupancy_outbox_position SET published_seq = ? WHERE id = 1";
+
+    private static final String DELETE = "DELETE FROM occupancy_outbox WHERE seq = ?";
+
+    private final OutboxProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final List<OutboxSink> sinks;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer lag;
+    private final Counter published;
+    private final AtomicReference<LocalDateTime> oldestPending = new AtomicReference<>();
+
+    OccupancyOutbox(OutboxProperties properties, JdbcTemplate jdbcTemplate, List<OutboxSink> sinks,
+            TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.sinks = sinks;
+        this.transactionTemplate = transactionTemplate;
+        this.lag = Timer.builder(LAG_METER)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.published = Counter.builder(PUBLISHED_METER)
+                .register(meterRegistry);
+        Gauge.builder(PENDING_AGE_METER, this::pendingAgeSeconds)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    void onOccupancyChanged(OccupancyChangedEvent event) {
+        if (!properties.enabled() || event.archived()) {
+            return;
+        }
+
+        Occupancy previous = event.previous();
+        Occupancy current = event.current();
+        Occupancy occupancy = current != null ? current : previous;
+        Change change = previous == null ? Change.OCCUPIED : current == null ? Change.RELEASED : Change.MOVED;
+
+        jdbcTemplate.update(RECORD, occupancy.id(), occupancy.type().name(), occupancy.propertyId(), change.name(),
+                previous == null ? null : previous.period().startAt(), previous == null ? null : previous.period().endAt(),
+                current == null ? null : current.period().startAt(), current == null ? null : current.period().endAt());
+        oldestPending.compareAndSet(null, LocalDateTime.now());
+    }
+
+    @Scheduled(fixedDelayString = "${booking.outbox.drain-interval:1s}")
+    void drainOnSchedule() {
+        if (properties.enabled()) {
+            drain();
+        }
+    }
+
+    /** Publishes batches until the outbox is empty or a sink fails, returning how many events were published. */
+    int drain() {
+        int total = 0;
+        try {
+            int drained;
+            do {
+                drained = transactionTemplate.execute(status -> drainBatch());
+                total += drained;
+            } while (drained == properties.batchSize());
+        } catch (RuntimeException ex) {
+            log.warn("Outbox drain stopped after [{}] events, retrying on the next run", total, ex);
+        } finally {
+            oldestPending.set(jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM occupancy_outbox", LocalDateTime.class));
+        }
+        return total;
+    }
+
+    private int drainBatch() {
+        long position = jdbcTemplate.queryForObject(POSITION, Long.class);
+        List<OccupancyOutboxEvent> events = inSequence(jdbcTemplate.query(NEXT, OccupancyOutbox::toEvent, properties.batchSize()), position);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        for (OutboxSink sink : sinks) {
+            try {
+                sink.publish(events);
+            } catch (Exception ex) {
+                throw new IllegalStateException("Outbox sink [" + sink.name() + "] failed", ex);
+            }
+        }
+
+        jdbcTemplate.batchUpdate(DELETE, events, events.size(), (statement, event) -> statement.setLong(1, event.sequence()));
+        jdbcTemplate.update(ADVANCE, Math.max(position, events.getLast().sequence()));
+        LocalDateTime now = LocalDateTime.now();
+        events.forEach(event -> lag.record(Duration.between(event.createdAt(), now)));
+        published.increment(events.size());
+        log.debug("Published [{}] outbox events up to sequence [{}]", events.size(), events.getLast().sequence());
+        return events.size();
+    }
+
+    /**
+     * The late events (at or before the position, committed after their gap was skipped) and the events up to the first
+     * gap after the position, unless the event behind the gap is older than the timeout.
+     */
+    private List<OccupancyOutboxEvent> inSequence(List<OccupancyOutboxEvent> events, long position) {
+        LocalDateTime settled = LocalDateTime.now().minus(properties.gapTimeout());
+        long expected = position + 1;
+        for (int i = 0; i < events.size(); i++) {
+            OccupancyOutboxEvent event = events.get(i);
+            if (event.sequence() <= position) {
+                log.warn("Publishing outbox sequence [{}] out of order, committed after its gap was skipped", event.sequence());
+                continue;
+            }
+            if (event.sequence() != expected) {
+                if (event.createdAt().isAfter(settled)) {
+                    log.debug("Holding back outbox events from sequence [{}] until [{}] commits", event.sequence(), expected);
+                    return events.subList(0, i);
+                }
+                log.warn("Skipping outbox sequences [{}] to [{}], never committed", expected, event.sequence() - 1);
+            }
+            expected = event.sequence() + 1;
+        }
+        return events;
+    }
+
+    private double pendingAgeSeconds() {
+        LocalDateTime oldest = oldestPending.get();
+        return oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).toMillis() / 1000.0;
+    }
+
+    private static OccupancyOutboxEvent toEvent(ResultSet rs, int rowNum) throws SQLException {
+        return new OccupancyOutboxEvent(
+                rs.getLong("seq"),
+                rs.getObject("occupancy_id", UUID.class),
+                OccupancyType.valueOf(rs.getString("occupancy_type")),
+                rs.getObject("property_id", UUID.class),
+                Change.valueOf(rs.getString("change_type")),
+                toRange(rs.getDate("previous_start_at"), rs.getDate("previous_end_at")),
+                toRange(rs.getDate("start_at"), rs.getDate("end_at")),
+                rs.getTimestamp("created_at").toLocalDateTime());
+    }
+
+    private static DateRange toRange(Date startAt, Date endAt) {
+        return startAt == null ? null : new DateRange(startAt.toLocalDate(), endAt.toLocalDate());
+    }
+}
@@ -0,0 +1,124 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.domain.model.Occupancy;
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType;
+import com.brunozambiazi.bookingsystem.domain.repository.OccupancyView;
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository;
+import com.brunozambiazi.bookingsystem.exception.LockTimeoutException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Day slots of the {@code SLOTS} write mode: every active booking and block claims one {@code occupancy_days} row per
+ * night, keyed by {@code (property_id, night)}, so the primary key rejects a second claim of the same night without
+ * any property lock. A writer claiming a night another transaction has claimed but not committed yet waits for it, and
+ * fails once it commits.
+ * <p>
+ * Claims follow the {@link OccupancyChangedEvent}s, inside the writing transaction: released occupancies are deleted
+ * with one statement and new ones inserted with one batch, in night order so two claims of overlapping ranges never
+ * deadlock. A duplicate key is reported as the usual overlap.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "booking.availability.write-mode", havingValue = "SLOTS")
+class OccupancySlots implements SmartInitializingSingleton {
+
+    private static final String CLAIM = """
+        INSERT INTO occupancy_days (property_id, night, occupancy_id, occupancy_type)
+        VALUES (?, ?, ?, ?)
+    """;
+
+    private static final String RELEASE = "DELETE FROM occupancy_days WHERE occupancy_id = ?";
+
+    private static final String HOLDER = """
+        SELECT occupancy_type
+        FROM occupancy_days
+        WHERE property_id = ?
+          AND night >= ?
+          AND night < ?
+          AND occupancy_id != ?
+        ORDER BY occupancy_type
+        LIMIT 1
+    """;
+
+    private final AvailabilityService availabilityService;
+    private final JdbcTemplate jdbcTemplate;
+    private final LockProperties lockProperties;
+    private final PropertyRepository propertyRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    /** Claims the nights of the occupancies written before slots were enabled, when there are no slots yet. */
+    @Override
+    public void afterSingletonsInstantiated() {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS(SELECT 1 FROM occupancy_days)", Boolean.class))) {
+                return;
+            }
+
+            List<OccupancyView> views = propertyRepository.findAllOccupancies();
+            log.info("Claiming day slots of [{}] occupancies", views.size());
+            for (OccupancyView view : views) {
+                Occupancy occupancy = view.toOccupancy();
+                try {
+                    insert(occupancy);
+                } catch (DuplicateKeyException ex) {
+                    log.warn("Occupancy [{}] overlaps nights already claimed, left unclaimed", occupancy);
+                }
+            }
+        });
+    }
+
+    @EventListener
+    void onOccupancyChanged(OccupancyChangedEvent event) {
+        if (event.previous() != null) {
+            jdbcTemplate.update(RELEASE, event.previous().id());
+        }
+        if (event.current() != null) {
+            claim(event.current());
+        }
+    }
+
+    private void claim(Occupancy occupancy) {
+        try {
+            insert(occupancy);
+        } catch (DuplicateKeyException ex) {
+            availabilityService.countConflict(occupancy.type(), "slots");
+            AvailabilityService.throwOverlap(holderOf(occupancy));
+        } catch (PessimisticLockingFailureException ex) {
+            throw new LockTimeoutException("Nights of property [" + occupancy.propertyId() + "] are being claimed by another writer",
+                    lockProperties.retryAfter());
+        }
+    }
+
+    private void insert(Occupancy occupancy) {
+        List<LocalDate> nights = occupancy.period().startAt().datesUntil(occupancy.period().endAt()).toList();
+        jdbcTemplate.batchUpdate(CLAIM, nights, nights.size(), (statement, night) -> {
+            statement.setObject(1, occupancy.propertyId());
+            statement.setObject(2, night);
+            statement.setObject(3, occupancy.id());
+            statement.setString(4, occupancy.type().name());
+        });
+    }
+
+    /** Type of the occupancy holding one of the nights, blocks first, as the overlap checks report them. */
+    private OccupancyType holderOf(Occupancy occupancy) {
+        return jdbcTemplate.queryForList(HOLDER, String.class, occupancy.propertyId(), occupancy.period().startAt(),
+                        occupancy.period().endAt(), occupancy.id())
+                .stream()
+                .findFirst()
+                .map(OccupancyType::valueOf)
+                .orElse(OccupancyType.BOOKING);
+    }
+}
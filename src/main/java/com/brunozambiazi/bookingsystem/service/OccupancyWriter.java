@@ -0,0 +1,27 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.domain.entity.BlockEntity;
+import com.brunozambiazi.bookingsystem.domain.entity.BookingEntity;
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity;
+import java.util.Optional;
+
+/**
+ * Saves single bookings and blocks once their property is locked, rejecting them when the property is not active or
+ * their period overlaps another booking or block. Selected through {@code booking.availability.write-mode}.
+ */
+interface OccupancyWriter {
+
+    /**
+     * Inserts a new booking, given the property row read by the lock when there is one.
+     */
+    void create(BookingEntity booking, Optional<PropertyEntity> locked);
+
+    void create(BlockEntity block, Optional<PropertyEntity> locked);
+
+    /**
+     * Writes the changes of an existing booking: its period, guests and status.
+     */
+    void update(BookingEntity booking);
+
+    void update(BlockEntity block);
+}
@@ -0,0 +1,141 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity;
+import com.brunozambiazi.bookingsystem.domain.model.DateRange;
+import jakarta.persistence.EntityManager;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Versions the calendar of a property per month ({@code calendar_months}). Locking reads the revisions of the
+ * property's months without locking anything; every occupancy the transaction then writes marks the months its nights
+ * fall in, and their revisions are bumped conditionally ({@code UPDATE ... WHERE revision = ?}, or an insert for a
+ * month never written before) when the transaction commits. Writers of the same month run concurrently and only the
+ * first one to commit wins; the others fail with an optimistic locking failure and are retried by
+ * {@link CalendarConflictRetryAspect}. Writers of different months of the same property never conflict.
+ * <p>
+ * Two writers of the same night always share its month, and the revision is read before the overlap checks, so either
+ * the second writer's checks see the first one's committed occupancy or its bump finds the revision changed. Released
+ * nights are not bumped: freeing a night can't double-book it.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "booking.lock.strategy", havingValue = "OPTIMISTIC")
+class OptimisticPropertyLock implements PropertyLock {
+
+    private static final String REVISIONS = "SELECT month_start, revision FROM calendar_months WHERE property_id = ?";
+
+    private static final String BUMP = """
+        UPDATE calendar_months
+        SET revision = revision + 1
+        WHERE property_id = ?
+          AND month_start = ?
+          AND revision = ?
+    """;
+
+    private static final String FIRST = "INSERT INTO calendar_months (property_id, month_start, revision) VALUES (?, ?, 1)";
+
+    private final Object calendarsKey = new Object();
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Never waits, so the timeout does not apply: conflicts are detected on commit instead. */
+    @Override
+    public Optional<PropertyEntity> lock(UUID propertyId, Duration timeout) {
+        Calendars calendars = calendars();
+        if (calendars != null && !calendars.read.containsKey(propertyId)) {
+            Map<LocalDate, Long> revisions = new HashMap<>();
+            jdbcTemplate.query(REVISIONS, row -> {
+                revisions.put(row.getObject("month_start", LocalDate.class), row.getLong("revision"));
+            }, propertyId);
+            calendars.read.put(propertyId, revisions);
+        }
+        return Optional.ofNullable(entityManager.find(PropertyEntity.class, propertyId));
+    }
+
+    @EventListener
+    void onOccupancyChanged(OccupancyChangedEvent event) {
+        Calendars calendars = (Calendars) TransactionSynchronizationManager.getResource(calendarsKey);
+        if (calendars == null || event.current() == null || !calendars.read.containsKey(event.current().propertyId())) {
+            return;
+        }
+
+        DateRange period = event.current().period();
+        LocalDate last = period.endAt().minusDays(1).with(TemporalAdjusters.firstDayOfMonth());
+        for (LocalDate month = period.startAt().with(TemporalAdjusters.firstDayOfMonth()); !month.isAfter(last); month = month.plusMonths(1)) {
+            calendars.written.add(new CalendarMonth(event.current().propertyId(), month));
+        }
+    }
+
+    /** State of the current transaction, bound on its first lock; {@code null} outside of transactions. */
+    private Calendars calendars() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+
+        Calendars calendars = (Calendars) TransactionSynchronizationManager.getResource(calendarsKey);
+        if (calendars == null) {
+            Calendars bound = new Calendars();
+            TransactionSynchronizationManager.bindResource(calendarsKey, bound);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    bound.written.forEach(month -> bump(month, bound.read.get(month.propertyId()).get(month.monthStart())));
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(calendarsKey);
+                }
+            });
+            calendars = bound;
+        }
+        return calendars;
+    }
+
+    private void bump(CalendarMonth month, Long revision) {
+        try {
+            int updated = revision == null
+                    ? jdbcTemplate.update(FIRST, month.propertyId(), month.monthStart())
+                    : jdbcTemplate.update(BUMP, month.propertyId(), month.monthStart(), revision);
+            if (updated == 0) {
+                throw conflict(month, null);
+            }
+        } catch (DuplicateKeyException | ConcurrencyFailureException ex) {
+            throw conflict(month, ex);
+        }
+    }
+
+    private static OptimisticLockingFailureException conflict(CalendarMonth month, Exception cause) {
+        return new OptimisticLockingFailureException("Calendar of property [" + month.propertyId() + "] for ["
+                + month.monthStart() + "] changed concurrently", cause);
+    }
+
+    /** Bumped in (property, month) order, so writers of several months can't deadlock each other on their rows. */
+    private record CalendarMonth(UUID propertyId, LocalDate monthStart) {
+    }
+
+    private static class Calendars {
+
+        private final Map<UUID, Map<LocalDate, Long>> read = new HashMap<>();
+        private final TreeSet<CalendarMonth> written = new TreeSet<>(Comparator.comparing(CalendarMonth::propertyId)
+                .thenComparing(CalendarMonth::monthStart));
+    }
+}
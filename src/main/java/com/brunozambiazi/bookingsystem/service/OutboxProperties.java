@@ -0,0 +1,15 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "booking.outbox")
+record OutboxProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("200") int batchSize,
+        @DefaultValue("10s") Duration gapTimeout,
+        Path filePath
+) {
+}
@@ -0,0 +1,15 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyOutboxEvent;
+import java.util.List;
+
+/**
+ * Destination of the events drained from the outbox. Every sink bean receives every batch, in sequence order; a sink
+ * that throws makes the whole batch be drained again later, so sinks must tolerate events they have already seen.
+ */
+interface OutboxSink {
+
+    String name();
+
+    void publish(List<OccupancyOutboxEvent> events) throws Exception;
+}
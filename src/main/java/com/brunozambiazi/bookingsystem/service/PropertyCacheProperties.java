@@ -0,0 +1,12 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "booking.property-cache")
+record PropertyCacheProperties(
+        @DefaultValue("10000") long maximumSize,
+        @DefaultValue("5m") Duration expireAfterWrite
+) {
+}
@@ -0,0 +1,34 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity;
+import com.brunozambiazi.bookingsystem.exception.LockTimeoutException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Serializes writers of a property's calendar until the current transaction completes.
+ * Selected through {@code booking.lock.strategy}.
+ */
+interface PropertyLock {
+
+    /**
+     * Locks the property, returning its row when the strategy reads it to do so (empty when it does not, or when the
+     * property does not exist). Fails with a {@link LockTimeoutException} when the lock is not acquired within the
+     * timeout, for strategies that wait.
+     */
+    Optional<PropertyEntity> lock(UUID propertyId, Duration timeout);
+
+    /**
+     * Locks several properties in a deterministic order, so concurrent bulk writers can never deadlock each other. The
+     * timeout bounds the whole acquisition.
+     */
+    default void lockAll(Collection<UUID> propertyIds, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        propertyIds.stream()
+                .distinct()
+                .sorted()
+                .forEach(propertyId -> lock(propertyId, Duration.ofNanos(Math.max(deadline - System.nanoTime(), 0))));
+    }
+}
@@ -0,0 +1,27 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "booking.search")
+record PropertySearchProperties(
+        @DefaultValue("DATABASE") SearchMode mode,
+        @DefaultValue("730") int bitmapHorizonDays,
+        @DefaultValue("256") long resultCacheSize,
+        @DefaultValue("10m") Duration resultCacheTtl
+) {
+
+    enum SearchMode {
+
+        /** Available properties are found with the native NOT EXISTS query. */
+        DATABASE,
+
+        /** Available properties are found by scanning the {@link DayBitmapCalendar}, falling back to the database. */
+        BITMAP
+    }
+
+    boolean bitmapEnabled() {
+        return mode == SearchMode.BITMAP;
+    }
+}
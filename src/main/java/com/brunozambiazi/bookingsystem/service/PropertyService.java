@@ -1,37 +1,367 @@
 package com.brunozambiazi.bookingsystem.service;
 
+import com.brunozambiazi.bookingsystem.api.dto.AvailabilityCheckItem;
+import com.brunozambiazi.bookingsystem.api.dto.AvailabilityCheckResponse;
+import com.brunozambiazi.bookingsystem.api.dto.CalendarRunResponse;
+import com.brunozambiazi.bookingsystem.api.dto.FlexibleAvailabilityResponse;
+import com.brunozambiazi.bookingsystem.api.dto.FreeGapResponse;
+import com.brunozambiazi.bookingsystem.api.dto.PropertyCalendarResponse;
+import com.brunozambiazi.bookingsystem.api.dto.PropertyGapsResponse;
+import com.brunozambiazi.bookingsystem.api.dto.PropertyPage;
 import com.brunozambiazi.bookingsystem.api.dto.PropertyResponse;
 import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity;
+import com.brunozambiazi.bookingsystem.domain.model.CalendarRunType;
 import com.brunozambiazi.bookingsystem.domain.model.DateRange;
+import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus;
+import com.brunozambiazi.bookingsystem.domain.repository.OccupancyView;
 import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository;
+import com.brunozambiazi.bookingsystem.exception.CustomException;
 import com.brunozambiazi.bookingsystem.exception.InvalidStateException;
+import com.brunozambiazi.bookingsystem.exception.NotFoundException;
 import com.brunozambiazi.bookingsystem.service.mapper.PropertyMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.persistence.EntityManager;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class PropertyService {
 
+    static final String SEARCH_METER = "booking.search";
+    static final String SEARCH_RESULTS_METER = "booking.search.results";
+
+    private static final int STREAM_CHUNK_SIZE = 500;
+
+    private final AvailabilitySearchCache availabilitySearchCache;
+    private final AvailabilityService availabilityService;
+    private final DayBitmapCalendar dayBitmapCalendar;
+    private final EntityManager entityManager;
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
     private final PropertyMapper propertyMapper;
     private final PropertyRepository propertyRepository;
+    private final PropertySearchProperties searchProperties;
+    private final PropertyStatusCache propertyStatusCache;
 
     public void checkActiveProperty(UUID propertyId) {
-        PropertyEntity entity = propertyRepository.getById(propertyId);
+        if (propertyStatusCache.get(propertyId) != PropertyStatus.ACTIVE) {
+            throw new InvalidStateException("Property is not active");
+        }
+    }
 
+    /**
+     * Variant of {@link #checkActiveProperty(UUID)} for writers already holding the property lock: checks the row read
+     * by the lock, when there is one, instead of reading the property again.
+     */
+    void checkActiveProperty(UUID propertyId, Optional<PropertyEntity> locked) {
+        if (locked.isEmpty()) {
+            checkActiveProperty(propertyId);
+            return;
+        }
+
+        PropertyEntity entity = locked.get();
+        propertyStatusCache.put(entity);
         if (!entity.isActive()) {
             throw new InvalidStateException("Property is not active");
         }
     }
 
+    /**
+     * Bulk variant of {@link #checkActiveProperty(UUID)}: returns the failure of every property that is missing or not
+     * active, reading the uncached ones with a single query.
+     */
+    Map<UUID, CustomException> checkActiveProperties(Collection<UUID> propertyIds) {
+        Map<UUID, PropertyStatus> statuses = propertyStatusCache.getAll(propertyIds);
+
+        Map<UUID, CustomException> failures = new HashMap<>();
+        for (UUID propertyId : propertyIds) {
+            PropertyStatus status = statuses.get(propertyId);
+            if (status == null) {
+                failures.put(propertyId, new NotFoundException("Property not found"));
+            } else if (status != PropertyStatus.ACTIVE) {
+                failures.put(propertyId, new InvalidStateException("Property is not active"));
+            }
+        }
+        return failures;
+    }
+
+    List<UUID> findActivePropertyIds() {
+        return propertyRepository.findAllActiveIds();
+    }
+
+    @Transactional(readOnly = true)
     public List<PropertyResponse> findAvailableProperties(DateRange period) {
-        return propertyRepository.findAllAvailable(period.startAt(), period.endAt())
+        return observedSearch("all", List::size, () -> availabilitySearchCache.get(period, () -> findAvailableEntities(period)
                 .stream()
                 .map(propertyMapper::toResponse)
+                .toList()));
+    }
+
+    /**
+     * Available properties with every start date from {@code earliestStart} to {@code latestStart} on which a stay of
+     * {@code nights} nights is free, ordered by id. All candidate stays are answered from the free gaps of at least
+     * {@code nights} nights over the whole span.
+     */
+    @Transactional(readOnly = true)
+    public List<FlexibleAvailabilityResponse> findFlexibleStarts(LocalDate earliestStart, LocalDate latestStart, int nights) {
+        DateRange span = new DateRange(earliestStart, latestStart.plusDays(nights));
+
+        return observedSearch("flexible", List::size, () -> findFreeGaps(span, nights, (property, gaps) -> {
+            List<LocalDate> starts = new ArrayList<>();
+            gaps.forEach(gap -> addStarts(starts, gap, latestStart, nights));
+            return new FlexibleAvailabilityResponse(propertyMapper.toResponse(property), starts);
+        }));
+    }
+
+    /** Active properties with a free gap of at least {@code minNights} nights within the period, ordered by id. */
+    @Transactional(readOnly = true)
+    public List<PropertyGapsResponse> findPropertiesWithGaps(DateRange period, int minNights) {
+        return observedSearch("gaps", List::size, () -> findFreeGaps(period, minNights,
+                (property, gaps) -> new PropertyGapsResponse(propertyMapper.toResponse(property), toResponses(gaps))));
+    }
+
+    /**
+     * First {@code count} free gaps of at least {@code minNights} nights of the property within the period. Its
+     * occupancies are streamed in start date order and swept until enough gaps are found; the last gap ends with the
+     * period.
+     */
+    @Transactional(readOnly = true)
+    public List<FreeGapResponse> findNextGaps(UUID propertyId, DateRange period, int minNights, int count) {
+        propertyRepository.getById(propertyId);
+
+        List<DateRange> found = new ArrayList<>();
+        FreeGaps gaps = new FreeGaps(period, minNights, found::add);
+        try (Stream<OccupancyView> occupancies = propertyRepository.streamOccupanciesOrdered(propertyId, period.startAt(), period.endAt())) {
+            Iterator<OccupancyView> rows = occupancies.iterator();
+            while (found.size() < count && rows.hasNext()) {
+                OccupancyView row = rows.next();
+                gaps.occupied(row.getStartAt(), row.getEndAt());
+            }
+        }
+        if (found.size() < count) {
+            gaps.finish();
+        }
+        return toResponses(found.subList(0, Math.min(count, found.size())));
+    }
+
+    /** Whether each period is free on its active property, in request order, without taking any lock. */
+    @Transactional(readOnly = true)
+    public AvailabilityCheckResponse checkAvailability(List<AvailabilityCheckItem> checks) {
+        return new AvailabilityCheckResponse(availabilityService.checkAvailable(checks));
+    }
+
+    /**
+     * Revision of the availability of the period, the entity tag of its searches; empty when it cannot be told.
+     */
+    public Optional<String> searchRevision(DateRange period) {
+        return availabilitySearchCache.revision(period);
+    }
+
+    /**
+     * Free and occupied runs of the property over the period, from a single query ordered by start date merged with a
+     * linear sweep.
+     */
+    @Transactional(readOnly = true)
+    public PropertyCalendarResponse getCalendar(UUID propertyId, DateRange period) {
+        propertyRepository.getById(propertyId);
+
+        List<OccupancyView> occupancies = propertyRepository.findOccupanciesOrdered(propertyId, period.startAt(), period.endAt());
+        return new PropertyCalendarResponse(propertyId, period.startAt(), period.endAt(), sweep(occupancies, period));
+    }
+
+    /**
+     * Keyset page of the available properties ordered by id, starting after the given one ({@code null} for the first
+     * page).
+     */
+    @Transactional(readOnly = true)
+    public PropertyPage findAvailableProperties(DateRange period, UUID after, int size) {
+        return observedSearch("page", page -> page.properties().size(), () -> {
+            List<PropertyEntity> entities = findAvailablePage(period, after, size + 1);
+
+            UUID nextCursor = null;
+            if (entities.size() > size) {
+                entities = entities.subList(0, size);
+                nextCursor = entities.getLast().getId();
+            }
+
+            return new PropertyPage(entities.stream().map(propertyMapper::toResponse).toList(), nextCursor);
+        });
+    }
+
+    /**
+     * Hands every available property to the consumer as it is read, ordered by id, keeping only a chunk of entities in
+     * memory at a time.
+     */
+    @Transactional(readOnly = true)
+    public void streamAvailableProperties(DateRange period, Consumer<PropertyResponse> consumer) {
+        if (searchProperties.bitmapEnabled()) {
+            Optional<List<UUID>> available = dayBitmapCalendar.findAvailable(period);
+            if (available.isPresent()) {
+                List<UUID> propertyIds = available.get();
+                for (int from = 0; from < propertyIds.size(); from += STREAM_CHUNK_SIZE) {
+                    List<UUID> chunk = propertyIds.subList(from, Math.min(from + STREAM_CHUNK_SIZE, propertyIds.size()));
+                    findAllInOrder(chunk).forEach(entity -> consumer.accept(propertyMapper.toResponse(entity)));
+                    entityManager.clear();
+                }
+                return;
+            }
+            log.info("Period [{}] is out of the day bitmap horizon, streaming from database", period);
+        }
+
+        try (Stream<PropertyEntity> entities = propertyRepository.streamAllAvailable(period.startAt(), period.endAt())) {
+            entities.forEach(entity -> {
+                consumer.accept(propertyMapper.toResponse(entity));
+                entityManager.detach(entity);
+            });
+        }
+    }
+
+    /**
+     * Observes a search as {@value #SEARCH_METER} (a timer and a tracing span) and records the number of properties it
+     * returned as {@value #SEARCH_RESULTS_METER}, both tagged with the search {@code mode} and whether the whole list
+     * or a page was asked ({@code result}).
+     */
+    private <T> T observedSearch(String result, ToIntFunction<T> size, Supplier<T> search) {
+        T found = Observation.createNotStarted(SEARCH_METER, observationRegistry)
+                .lowCardinalityKeyValue("mode", searchProperties.mode().name())
+                .lowCardinalityKeyValue("result", result)
+                .observe(search);
+
+        DistributionSummary.builder(SEARCH_RESULTS_METER)
+                .description("Number of available properties returned by a search")
+                .baseUnit("properties")
+                .tag("mode", searchProperties.mode().name())
+                .tag("result", result)
+                .register(meterRegistry)
+                .record(size.applyAsInt(found));
+        return found;
+    }
+
+    private List<PropertyEntity> findAvailablePage(DateRange period, UUID after, int limit) {
+        if (searchProperties.bitmapEnabled()) {
+            Optional<List<UUID>> available = dayBitmapCalendar.findAvailable(period, after, limit);
+            if (available.isPresent()) {
+                return findAllInOrder(available.get());
+            }
+            log.info("Period [{}] is out of the day bitmap horizon, searching on database", period);
+        }
+
+        return propertyRepository.findAvailablePage(period.startAt(), period.endAt(), after, limit);
+    }
+
+    /**
+     * Free gaps of at least {@code minNights} nights of every active property over the period, mapped as each property
+     * is swept, properties without any left out, ordered by id: the active properties and their bookings and blocks are
+     * streamed in the same order and merged, so only the current property and its rows are held besides the results.
+     */
+    private <T> List<T> findFreeGaps(DateRange period, int minNights, BiFunction<PropertyEntity, List<DateRange>, T> mapper) {
+        List<T> found = new ArrayList<>();
+        try (Stream<PropertyEntity> properties = propertyRepository.streamAllActive();
+             Stream<OccupancyView> occupancies = propertyRepository.streamOccupanciesOrdered(period.startAt(), period.endAt())) {
+            FreeGaps.byProperty(properties, PropertyEntity::getId, occupancies, period, minNights, (property, gaps) -> {
+                if (!gaps.isEmpty()) {
+                    found.add(mapper.apply(property, gaps));
+                }
+                entityManager.detach(property);
+            });
+        }
+        return found;
+    }
+
+    private static List<FreeGapResponse> toResponses(List<DateRange> gaps) {
+        return gaps.stream()
+                .map(gap -> new FreeGapResponse(gap.startAt(), gap.endAt(), ChronoUnit.DAYS.between(gap.startAt(), gap.endAt())))
                 .toList();
     }
+
+    /** Adds the start dates, up to {@code latestStart}, of the stays of {@code nights} nights fitting in the gap. */
+    private static List<LocalDate> addStarts(List<LocalDate> starts, DateRange gap, LocalDate latestStart, int nights) {
+        LocalDate lastFitting = gap.endAt().minusDays(nights);
+        LocalDate last = lastFitting.isBefore(latestStart) ? lastFitting : latestStart;
+        for (LocalDate start = gap.startAt(); !start.isAfter(last); start = start.plusDays(1)) {
+            starts.add(start);
+        }
+        return starts;
+    }
+
+    private static List<CalendarRunResponse> sweep(List<OccupancyView> occupancies, DateRange period) {
+        List<CalendarRunResponse> runs = new ArrayList<>();
+        LocalDate cursor = period.startAt();
+
+        for (OccupancyView occupancy : occupancies) {
+            LocalDate startAt = occupancy.getStartAt().isAfter(cursor) ? occupancy.getStartAt() : cursor;
+            LocalDate endAt = occupancy.getEndAt().isBefore(period.endAt()) ? occupancy.getEndAt() : period.endAt();
+            if (!startAt.isBefore(endAt)) {
+                continue;
+            }
+
+            append(runs, cursor, startAt, CalendarRunType.FREE);
+            append(runs, startAt, endAt, CalendarRunType.valueOf(occupancy.getType().name()));
+            cursor = endAt;
+        }
+
+        append(runs, cursor, period.endAt(), CalendarRunType.FREE);
+        return runs;
+    }
+
+    private static void append(List<CalendarRunResponse> runs, LocalDate startAt, LocalDate endAt, CalendarRunType type) {
+        if (!startAt.isBefore(endAt)) {
+            return;
+        }
+
+        if (!runs.isEmpty() && runs.getLast().type() == type) {
+            CalendarRunResponse last = runs.removeLast();
+            runs.add(new CalendarRunResponse(last.startAt(), endAt, type));
+        } else {
+            runs.add(new CalendarRunResponse(startAt, endAt, type));
+        }
+    }
+
+    private List<PropertyEntity> findAllInOrder(List<UUID> propertyIds) {
+        Map<UUID, PropertyEntity> byId = propertyRepository.findAllById(propertyIds)
+                .stream()
+                .collect(Collectors.toMap(PropertyEntity::getId, Function.identity()));
+
+        return propertyIds.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private List<PropertyEntity> findAvailableEntities(DateRange period) {
+        if (searchProperties.bitmapEnabled()) {
+            Optional<List<UUID>> available = dayBitmapCalendar.findAvailable(period);
+            if (available.isPresent()) {
+                return propertyRepository.findAllById(available.get());
+            }
+            log.info("Period [{}] is out of the day bitmap horizon, searching on database", period);
+        }
+
+        return propertyRepository.findAllAvailable(period.startAt(), period.endAt());
+    }
 }
\ No newline at end of file
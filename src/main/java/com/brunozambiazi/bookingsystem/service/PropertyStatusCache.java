@@ -0,0 +1,99 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity;
+import com.brunozambiazi.bookingsystem.domain.model.PropertyChangedEvent;
+import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus;
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bounded cache of property statuses, checked by every booking and block write. Entries expire after
+ * {@code booking.property-cache.expire-after-write} and are dropped whenever a property is saved, again once the
+ * saving transaction completes so a concurrent miss cannot keep the uncommitted status. Changes made outside the
+ * repository (e.g. by SQL) are only seen after expiry or an explicit {@link #invalidate(UUID)}.
+ * <p>
+ * Hits and misses are published as the {@code cache.*} meters tagged {@code cache=propertyStatus}.
+ */
+@Slf4j
+@Component
+class PropertyStatusCache {
+
+    private final PropertyRepository propertyRepository;
+    private final LoadingCache<UUID, PropertyStatus> cache;
+
+    PropertyStatusCache(PropertyCacheProperties properties, PropertyRepository propertyRepository, MeterRegistry meterRegistry) {
+        this.propertyRepository = propertyRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.expireAfterWrite())
+                .recordStats()
+                .build(this::load);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "propertyStatus");
+    }
+
+    /** Returns the status of the property, throwing {@code NotFoundException} when it does not exist. */
+    PropertyStatus get(UUID propertyId) {
+        return cache.get(propertyId);
+    }
+
+    /** Bulk variant of {@link #get(UUID)}, loading the missing entries with a single query. Unknown ids are left out. */
+    Map<UUID, PropertyStatus> getAll(Collection<UUID> propertyIds) {
+        return cache.getAll(propertyIds, this::loadAll);
+    }
+
+    /** Stores the status of an entity just read from the database, e.g. by the property lock. */
+    void put(PropertyEntity entity) {
+        cache.put(entity.getId(), entity.getStatus());
+    }
+
+    void invalidate(UUID propertyId) {
+        cache.invalidate(propertyId);
+    }
+
+    void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @EventListener
+    void onPropertyChanged(PropertyChangedEvent event) {
+        UUID propertyId = event.propertyId();
+        invalidate(propertyId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(propertyId);
+                }
+            });
+        }
+    }
+
+    private PropertyStatus load(UUID propertyId) {
+        log.debug("Loading status of property [{}]", propertyId);
+        return propertyRepository.getById(propertyId).getStatus();
+    }
+
+    private Map<UUID, PropertyStatus> loadAll(Collection<? extends UUID> propertyIds) {
+        log.debug("Loading status of [{}] properties", propertyIds.size());
+
+        Map<UUID, PropertyStatus> statuses = new HashMap<>();
+        propertyRepository.findAllById(List.copyOf(propertyIds))
+                .forEach(entity -> statuses.put(entity.getId(), entity.getStatus()));
+        return statuses;
+    }
+}
@@ -0,0 +1,15 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Retries the whole transactional method when its commit loses a calendar revision race against another writer of
+ * the same property. Only relevant for the {@code OPTIMISTIC} lock strategy.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@interface RetryOnCalendarConflict {
+}
@@ -0,0 +1,51 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.domain.entity.BlockEntity;
+import com.brunozambiazi.bookingsystem.domain.entity.BookingEntity;
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity;
+import com.brunozambiazi.bookingsystem.domain.repository.BlockRepository;
+import com.brunozambiazi.bookingsystem.domain.repository.BookingRepository;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Checks the property status and saves the entity without any overlap query: the nights are claimed by
+ * {@link OccupancySlots} when the change is published, and a night already claimed rejects the write.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "booking.availability.write-mode", havingValue = "SLOTS")
+class SlotOccupancyWriter implements OccupancyWriter {
+
+    private final BlockRepository blockRepository;
+    private final BookingRepository bookingRepository;
+    private final PropertyService propertyService;
+
+    @Override
+    public void create(BookingEntity booking, Optional<PropertyEntity> locked) {
+        propertyService.checkActiveProperty(booking.getPropertyId(), locked);
+        update(booking);
+    }
+
+    @Override
+    public void create(BlockEntity block, Optional<PropertyEntity> locked) {
+        propertyService.checkActiveProperty(block.getPropertyId(), locked);
+        update(block);
+    }
+
+    @Override
+    public void update(BookingEntity booking) {
+        log.info("Saving booking: [{}]", booking);
+        bookingRepository.save(booking);
+    }
+
+    @Override
+    public void update(BlockEntity block) {
+        log.info("Saving block: [{}]", block);
+        blockRepository.save(block);
+    }
+}
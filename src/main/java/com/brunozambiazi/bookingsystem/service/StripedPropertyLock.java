@@ -0,0 +1,39 @@
+package com.brunozambiazi.bookingsystem.service;
+
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process lock striped by property id, held until the current transaction completes. Avoids holding a property
+ * row lock in the database but only serializes writers of the same JVM, so it is meant for single-node deployments.
+ */
+@Component
+@ConditionalOnProperty(name = "booking.lock.strategy", havingValue = "STRIPED")
+class StripedPropertyLock implements PropertyLock {
+
+    private final LockStripes stripes;
+
+    StripedPropertyLock(LockProperties properties) {
+        stripes = new LockStripes(properties);
+    }
+
+    @Override
+    public Optional<PropertyEntity> lock(UUID propertyId, Duration timeout) {
+        stripes.lock(propertyId, timeout);
+        return Optional.empty();
+    }
+
+    @Override
+    public void lockAll(Collection<UUID> propertyIds, Duration timeout) {
+        stripes.lockAll(propertyIds, timeout);
+    }
+
+    int stripeIndex(UUID propertyId) {
+        return stripes.stripeIndex(propertyId);
+    }
+}
@@ -4,7 +4,9 @@ import com.brunozambiazi.bookingsystem.api.dto.BlockResponse;
 import com.brunozambiazi.bookingsystem.api.dto.CreateBlockRequest;
 import com.brunozambiazi.bookingsystem.api.dto.UpdateBlockRequest;
 import com.brunozambiazi.bookingsystem.domain.entity.BlockEntity;
+import com.brunozambiazi.bookingsystem.domain.model.BlockReason;
 import com.brunozambiazi.bookingsystem.domain.model.DateRange;
+import java.util.UUID;
 import org.springframework.stereotype.Component;
 
 import static com.brunozambiazi.bookingsystem.domain.entity.BlockEntity.newBlock;
@@ -14,10 +16,14 @@ import static java.time.LocalDateTime.now;
 public class BlockMapper {
 
     public BlockEntity toEntity(CreateBlockRequest request) {
+        return toEntity(request.propertyId(), new DateRange(request.startAt(), request.endAt()), request.reason());
+    }
+
+    public BlockEntity toEntity(UUID propertyId, DateRange period, BlockReason reason) {
         BlockEntity entity = newBlock();
-        entity.setPropertyId(request.propertyId());
-        entity.setPeriod(new DateRange(request.startAt(), request.endAt()));
-        entity.setReason(request.reason());
+        entity.setPropertyId(propertyId);
+        entity.setPeriod(period);
+        entity.setReason(reason);
         return entity;
     }
 
@@ -3,24 +3,35 @@ package com.brunozambiazi.bookingsystem.service.mapper;
 import com.brunozambiazi.bookingsystem.api.dto.BookingResponse;
 import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest;
 import com.brunozambiazi.bookingsystem.api.dto.GuestDto;
+import com.brunozambiazi.bookingsystem.api.dto.GuestList;
 import com.brunozambiazi.bookingsystem.api.dto.UpdateBookingRequest;
 import com.brunozambiazi.bookingsystem.domain.entity.BookingEntity;
 import com.brunozambiazi.bookingsystem.domain.model.DateRange;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import java.util.List;
-import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import org.springframework.stereotype.Component;
 
 import static com.brunozambiazi.bookingsystem.domain.entity.BookingEntity.newBooking;
 import static java.time.LocalDateTime.now;
 
+/**
+ * Guests are stored as JSON and handed to responses as a {@link GuestList} over that JSON, so reading a booking
+ * neither parses nor re-serializes them. The reader and writer are built once, as they are immutable and thread-safe.
+ */
 @Component
-@RequiredArgsConstructor
 public class BookingMapper {
 
-    private final ObjectMapper objectMapper;
+    private final ObjectReader guestsReader;
+    private final ObjectWriter guestsWriter;
+
+    public BookingMapper(ObjectMapper objectMapper) {
+        this.guestsReader = objectMapper.readerForListOf(GuestDto.class);
+        this.guestsWriter = objectMapper.writerFor(new TypeReference<List<GuestDto>>() {});
+    }
 
     public BookingEntity toEntity(CreateBookingRequest request) {
         BookingEntity entity = newBooking();
@@ -30,13 +41,19 @@ public class BookingMapper {
         return entity;
     }
 
+    public List<BookingEntity> toEntities(List<CreateBookingRequest> requests) {
+        return requests.stream()
+                .map(this::toEntity)
+                .toList();
+    }
+
     public BookingResponse toResponse(BookingEntity entity) {
         return new BookingResponse(
                 entity.getId(),
                 entity.getPropertyId(),
                 entity.getPeriod().startAt(),
                 entity.getPeriod().endAt(),
-                convertToGuests(entity.getGuests()),
+                new GuestList(entity.getGuests(), guestsReader),
                 entity.getStatus(),
                 entity.getCreatedAt(),
                 entity.getUpdatedAt(),
@@ -50,13 +67,8 @@ public class BookingMapper {
         entity.setUpdatedAt(now());
     }
 
-    @SneakyThrows
-    private List<GuestDto> convertToGuests(String json) {
-        return objectMapper.readValue(json, new TypeReference<>() {});
-    }
-
     @SneakyThrows
     private String convertToString(List<GuestDto> guests) {
-        return objectMapper.writeValueAsString(guests);
+        return guestsWriter.writeValueAsString(guests);
     }
 }
@@ -11,4 +11,4 @@ INSERT INTO blocks
 INSERT INTO bookings
     (id, property_id, start_at, end_at, guests, status)
   VALUES
-    ('f170594d-7476-4b0a-b272-0132f1277f1c', 'bdad3baf-f65d-41eb-a190-677679dec204', '2026-01-10', '2026-01-30', '[{}]', 'ACTIVE');
\ No newline at end of file
+    ('f170594d-7476-4b0a-b272-0132f1277f1c', 'bdad3baf-f65d-41eb-a190-677679dec204', '2026-01-10', '2026-01-30', JSON '[{}]', 'ACTIVE');
\ No newline at end of file
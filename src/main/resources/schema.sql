@@ -46,4 +46,85 @@ CREATE TABLE bookings (
 );
 
 CREATE INDEX bookings_property_dates_idx ON bookings(property_id, start_at, end_at);
-CREATE INDEX bookings_property_idx ON bookings(property_id);
\ No newline at end of file
+CREATE INDEX bookings_property_idx ON bookings(property_id);
+--
+-- ARCHIVE (ended or cancelled bookings and ended blocks, moved out of the live tables by OccupancyArchiver)
+CREATE TABLE blocks_archive (
+    id UUID PRIMARY KEY,
+    property_id UUID NOT NULL,
+    start_at DATE NOT NULL,
+    end_at DATE NOT NULL,
+    reason VARCHAR(20) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP,
+    archived_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+CREATE TABLE bookings_archive (
+    id UUID PRIMARY KEY,
+    property_id UUID NOT NULL,
+    start_at DATE NOT NULL,
+    end_at DATE NOT NULL,
+    guests JSON NOT NULL,
+    status VARCHAR(20),
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP,
+    cancelled_at TIMESTAMP,
+    rebooked_at TIMESTAMP,
+    archived_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX bookings_archive_property_idx ON bookings_archive(property_id);
+
+--
+-- OCCUPANCY DAYS (write-mode SLOTS: one row per night of every active booking and block)
+CREATE TABLE occupancy_days (
+    property_id UUID NOT NULL,
+    night DATE NOT NULL,
+    occupancy_id UUID NOT NULL,
+    occupancy_type VARCHAR(20) NOT NULL,
+    PRIMARY KEY (property_id, night),
+    FOREIGN KEY (property_id) REFERENCES properties(id)
+);
+
+CREATE INDEX occupancy_days_occupancy_idx ON occupancy_days(occupancy_id);
+
+--
+-- CALENDAR MONTHS (lock strategy OPTIMISTIC: revision of each property month, bumped by every write occupying it)
+CREATE TABLE calendar_months (
+    property_id UUID NOT NULL,
+    month_start DATE NOT NULL,
+    revision BIGINT NOT NULL,
+    PRIMARY KEY (property_id, month_start),
+    FOREIGN KEY (property_id) REFERENCES properties(id)
+);
+
+--
+-- OUTBOX (booking and block changes waiting to be published to the outbox sinks)
+CREATE TABLE occupancy_outbox (
+    seq BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    occupancy_id UUID NOT NULL,
+    occupancy_type VARCHAR(20) NOT NULL,
+    property_id UUID NOT NULL,
+    change_type VARCHAR(20) NOT NULL,
+    previous_start_at DATE,
+    previous_end_at DATE,
+    start_at DATE,
+    end_at DATE,
+    created_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+-- last sequence published, locked by the drainer
+CREATE TABLE occupancy_outbox_position (
+    id INT PRIMARY KEY,
+    published_seq BIGINT NOT NULL
+);
+
+INSERT INTO occupancy_outbox_position (id, published_seq) VALUES (1, 0);
+
+--
+-- REPLICA HEARTBEAT (booking.replica: written to the primary, read from the replica to measure its lag)
+CREATE TABLE replica_heartbeat (
+    id INT PRIMARY KEY,
+    beat_at TIMESTAMP NOT NULL
+);
@@ -0,0 +1,102 @@
+package com.brunozambiazi.bookingsystem
+
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest
+import com.brunozambiazi.bookingsystem.api.dto.GuestDto
+import com.brunozambiazi.bookingsystem.api.dto.UpdateBookingRequest
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity
+import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository
+import com.brunozambiazi.bookingsystem.service.BookingService
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.test.web.servlet.MockMvc
+import spock.lang.Specification
+
+import java.time.LocalDate
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+
+/**
+ * Reads back, from the database rather than the persistence context, the guests of bookings written by every write
+ * path, so they have to be stored as a JSON array and not as a JSON string of it. Subclasses pick the write mode; all
+ * of them must store the very same JSON.
+ */
+@AutoConfigureMockMvc
+abstract class AbstractBookingGuestsIT extends Specification {
+
+    private static final List<GuestDto> GUESTS = [new GuestDto("Ana", "ana@test.com"), new GuestDto("Bia", "bia@test.com")]
+    private static final String STORED = '[{"name":"Ana","email":"ana@test.com"},{"name":"Bia","email":"bia@test.com"}]'
+
+    @Autowired
+    private MockMvc mockMvc
+
+    @Autowired
+    private BookingService bookingService
+
+    @Autowired
+    private PropertyRepository propertyRepository
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate
+
+    private final LocalDate base = LocalDate.now().plusYears(1)
+
+    def "should store and return the guests of created bookings as a JSON array"() {
+        given:
+        def propertyId = createProperty()
+
+        when:
+        def booking = bookingService.createBooking(new CreateBookingRequest(propertyId, base, base.plusDays(2), GUESTS))
+
+        then:
+        storedGuests(booking.id()) == STORED
+        bookingService.getBookingById(booking.id()).guests() == GUESTS
+        mockMvc.perform(get("/api/bookings/" + booking.id()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath('$.guests.length()').value(2))
+                .andExpect(jsonPath('$.guests[0].name').value("Ana"))
+                .andExpect(jsonPath('$.guests[1].email').value("bia@test.com"))
+    }
+
+    def "should store and return the guests of updated bookings as a JSON array"() {
+        given:
+        def propertyId = createProperty()
+        def booking = bookingService.createBooking(new CreateBookingRequest(propertyId, base, base.plusDays(2), [new GuestDto("Old", "old@test.com")]))
+
+        when:
+        bookingService.updateBooking(booking.id(), new UpdateBookingRequest(base, base.plusDays(3), GUESTS))
+
+        then:
+        storedGuests(booking.id()) == STORED
+        mockMvc.perform(get("/api/bookings/" + booking.id()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath('$.guests[0].name').value("Ana"))
+    }
+
+    def "should store and return the guests of batch bookings as a JSON array"() {
+        given:
+        def propertyId = createProperty()
+
+        when:
+        def batch = bookingService.createBookings([new CreateBookingRequest(propertyId, base, base.plusDays(2), GUESTS)])
+        def bookingId = batch.items()[0].booking().id()
+
+        then:
+        storedGuests(bookingId) == STORED
+        mockMvc.perform(get("/api/bookings/" + bookingId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath('$.guests[0].name').value("Ana"))
+    }
+
+    private String storedGuests(UUID bookingId) {
+        return jdbcTemplate.queryForObject("SELECT CAST(guests AS VARCHAR) FROM bookings WHERE id = ?", String, bookingId)
+    }
+
+    private UUID createProperty() {
+        def property = new PropertyEntity(id: UUID.randomUUID(), name: "Guests House", address: "Guests Street", status: PropertyStatus.ACTIVE)
+        return propertyRepository.save(property).id
+    }
+}
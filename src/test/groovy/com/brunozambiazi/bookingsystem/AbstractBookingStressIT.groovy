@@ -0,0 +1,194 @@
+package com.brunozambiazi.bookingsystem
+
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest
+import com.brunozambiazi.bookingsystem.api.dto.GuestDto
+import com.brunozambiazi.bookingsystem.api.dto.UpdateBookingRequest
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity
+import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository
+import com.brunozambiazi.bookingsystem.exception.CustomException
+import com.brunozambiazi.bookingsystem.service.BookingService
+import io.micrometer.core.instrument.MeterRegistry
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.jdbc.core.JdbcTemplate
+import spock.lang.Specification
+
+import java.time.LocalDate
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.Executors
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Fires concurrent create, update, cancel and rebook calls at a few hot properties and at many cold ones, then checks
+ * that no two active bookings of a property overlap. Each scenario logs its throughput, per operation p50/p99
+ * latencies and the distribution of the lock waits ({@code booking.lock.wait}). Subclasses pick the lock strategy;
+ * the number of operations per scenario can be raised with {@code -Dstress.operations}.
+ */
+abstract class AbstractBookingStressIT extends Specification {
+
+    static final String PROPERTIES = "management.metrics.distribution.percentiles[booking.lock.wait]=0.5,0.9,0.99"
+
+    protected static final Logger log = LoggerFactory.getLogger(AbstractBookingStressIT)
+    protected static final int THREADS = 8
+    protected static final int OPERATIONS = Integer.getInteger("stress.operations", 1_500)
+    protected static final int DAYS = 60
+
+    @Autowired
+    protected BookingService bookingService
+
+    @Autowired
+    protected PropertyRepository propertyRepository
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate
+
+    @Autowired
+    protected MeterRegistry meterRegistry
+
+    def "should never double-book under concurrent writers on #scenario properties"() {
+        given:
+        def propertyIds = (1..properties).collect { createProperty() }
+        def base = LocalDate.now().plusYears(2)
+        def bookingIds = new CopyOnWriteArrayList<UUID>()
+        def latencies = new ConcurrentHashMap<String, Queue<Long>>()
+        def outcomes = new ConcurrentHashMap<String, AtomicInteger>()
+        meterRegistry.find("booking.lock.wait").timers().each { meterRegistry.remove(it) }
+
+        when:
+        def startedAt = System.nanoTime()
+        def failures = concurrently(OPERATIONS) {
+            def random = ThreadLocalRandom.current()
+            def operation = pickOperation(random, bookingIds)
+            def startAt = base.plusDays(random.nextInt(DAYS))
+            def endAt = startAt.plusDays(1 + random.nextInt(5))
+            def bookingId = bookingIds ? bookingIds[random.nextInt(bookingIds.size())] : null
+
+            def operationStartedAt = System.nanoTime()
+            try {
+                switch (operation) {
+                    case "create":
+                        def propertyId = propertyIds[random.nextInt(propertyIds.size())]
+                        bookingIds << bookingService.createBooking(new CreateBookingRequest(propertyId, startAt, endAt, [guest()])).id()
+                        break
+                    case "update":
+                        bookingService.updateBooking(bookingId, new UpdateBookingRequest(startAt, endAt, [guest()]))
+                        break
+                    case "cancel":
+                        bookingService.cancelBooking(bookingId)
+                        break
+                    default:
+                        bookingService.rebookBooking(bookingId)
+                }
+                outcomes.computeIfAbsent("accepted") { new AtomicInteger() }.incrementAndGet()
+            } catch (CustomException ex) {
+                outcomes.computeIfAbsent(ex.class.simpleName) { new AtomicInteger() }.incrementAndGet()
+            } finally {
+                latencies.computeIfAbsent(operation) { new ConcurrentLinkedQueue<Long>() } << System.nanoTime() - operationStartedAt
+            }
+        }
+        def elapsed = System.nanoTime() - startedAt
+        report(scenario, elapsed, latencies, outcomes)
+
+        then:
+        failures.isEmpty()
+        overlappingActiveBookings(propertyIds) == 0
+        outcomes["accepted"].get() > 0
+
+        where:
+        scenario | properties
+        "hot"    | 3
+        "cold"   | 100
+    }
+
+    protected static String pickOperation(Random random, List<UUID> bookingIds) {
+        if (!bookingIds) {
+            return "create"
+        }
+        def roll = random.nextInt(100)
+        return roll < 50 ? "create" : roll < 70 ? "update" : roll < 85 ? "cancel" : "rebook"
+    }
+
+    protected int overlappingActiveBookings(List<UUID> propertyIds) {
+        return propertyIds.sum { propertyId ->
+            jdbcTemplate.queryForObject("""
+                    SELECT COUNT(*)
+                    FROM bookings a
+                    JOIN bookings b ON b.property_id = a.property_id AND b.id > a.id
+                    WHERE a.property_id = ?
+                      AND a.status = 'ACTIVE'
+                      AND b.status = 'ACTIVE'
+                      AND a.start_at < b.end_at
+                      AND b.start_at < a.end_at
+                    """, Integer, propertyId)
+        } as int
+    }
+
+    protected void report(String scenario, long elapsed, Map<String, Queue<Long>> latencies, Map<String, AtomicInteger> outcomes) {
+        def seconds = elapsed / 1_000_000_000d
+        def lines = ["[${strategy()}/${scenario}] ${OPERATIONS} operations in ${String.format('%.2f', seconds)}s " +
+                             "(${String.format('%.0f', OPERATIONS / seconds)} ops/s), outcomes ${outcomes}"]
+
+        latencies.sort().each { operation, samples ->
+            def sorted = samples.toList().sort()
+            lines << "  ${operation.padRight(6)} n=${sorted.size()} p50=${millis(percentile(sorted, 0.5))} p99=${millis(percentile(sorted, 0.99))}"
+        }
+
+        meterRegistry.find("booking.lock.wait").timers().each { timer ->
+            def snapshot = timer.takeSnapshot()
+            def percentiles = snapshot.percentileValues().collect { "p${(it.percentile() * 100) as int}=${String.format('%.2f', it.value(TimeUnit.MILLISECONDS))}ms" }
+            lines << "  lock wait [${timer.id.getTag('scope')}] n=${snapshot.count()} mean=${String.format('%.2f', snapshot.mean(TimeUnit.MILLISECONDS))}ms " +
+                    "${percentiles.join(' ')} max=${String.format('%.2f', snapshot.max(TimeUnit.MILLISECONDS))}ms"
+        }
+
+        log.info("Stress report\n{}", lines.join("\n"))
+    }
+
+    protected String strategy() {
+        return getClass().simpleName - "LockStressIT"
+    }
+
+    protected static long percentile(List<Long> sorted, double percentile) {
+        return sorted[Math.min((int) Math.ceil(percentile * sorted.size()) - 1, sorted.size() - 1)]
+    }
+
+    protected static String millis(long nanos) {
+        return String.format('%.2fms', nanos / 1_000_000d)
+    }
+
+    protected static List<Throwable> concurrently(int operations, Closure operation) {
+        def failures = new ConcurrentLinkedQueue<Throwable>()
+        def executor = Executors.newFixedThreadPool(THREADS)
+        try {
+            def tasks = (1..operations).collect {
+                { ->
+                    try {
+                        operation()
+                    } catch (Throwable ex) {
+                        failures << ex
+                    }
+                    return null
+                } as Callable<Object>
+            }
+            executor.invokeAll(tasks)
+        } finally {
+            executor.shutdown()
+        }
+        return failures.toList()
+    }
+
+    protected UUID createProperty() {
+        def property = new PropertyEntity(id: UUID.randomUUID(), name: "Stress House", address: "Stress Street", status: PropertyStatus.ACTIVE)
+        return propertyRepository.save(property).id
+    }
+
+    protected static GuestDto guest() {
+        return new GuestDto("Stress", "stress@test.com")
+    }
+}
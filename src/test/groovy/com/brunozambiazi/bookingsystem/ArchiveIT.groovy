@@ -0,0 +1,108 @@
+package com.brunozambiazi.bookingsystem
+
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest
+import com.brunozambiazi.bookingsystem.api.dto.GuestDto
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity
+import com.brunozambiazi.bookingsystem.domain.model.BookingStatus
+import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository
+import com.brunozambiazi.bookingsystem.service.BlockService
+import com.brunozambiazi.bookingsystem.service.BookingService
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.context.ApplicationContext
+import org.springframework.jdbc.core.JdbcTemplate
+import spock.lang.Specification
+
+import java.time.LocalDate
+import java.time.LocalDateTime
+
+@SpringBootTest(properties = [
+        "spring.datasource.url=jdbc:h2:mem:archive-it",
+        "booking.archive.retention=30d",
+        "booking.archive.chunk-size=2",
+        "booking.outbox.enabled=true",
+        "booking.outbox.drain-interval=1h"
+])
+class ArchiveIT extends Specification {
+
+    @Autowired
+    private ApplicationContext context
+
+    @Autowired
+    private BookingService bookingService
+
+    @Autowired
+    private BlockService blockService
+
+    @Autowired
+    private PropertyRepository propertyRepository
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate
+
+    def "should move ended and long cancelled rows to the archive in chunks and still read them by id"() {
+        given:
+        def propertyId = createProperty()
+        def today = LocalDate.now()
+        def ended = (1..3).collect { insertBooking(propertyId, today.minusDays(60 + it * 5), today.minusDays(58 + it * 5), "ACTIVE", null) }
+        def recentlyEnded = insertBooking(propertyId, today.minusDays(10), today.minusDays(5), "ACTIVE", null)
+        def longCancelled = insertBooking(propertyId, today.plusDays(10), today.plusDays(12), "CANCELLED", LocalDateTime.now().minusDays(40))
+        def recentlyCancelled = insertBooking(propertyId, today.plusDays(20), today.plusDays(22), "CANCELLED", LocalDateTime.now().minusDays(1))
+        def upcoming = bookingService.createBooking(new CreateBookingRequest(propertyId, today.plusDays(30), today.plusDays(33),
+                [new GuestDto("Live", "live@test.com")])).id
+        def endedBlock = insertBlock(propertyId, today.minusDays(90), today.minusDays(80))
+
+        when:
+        context.getBean("occupancyArchiver").archive()
+
+        then:
+        ids("bookings", propertyId) as Set == [recentlyEnded, recentlyCancelled, upcoming] as Set
+        ids("bookings_archive", propertyId) as Set == (ended + longCancelled) as Set
+        ids("blocks", propertyId).isEmpty()
+        ids("blocks_archive", propertyId) == [endedBlock]
+
+        and:
+        with(bookingService.getBookingById(longCancelled)) {
+            status == BookingStatus.CANCELLED
+            guests*.name == ["Old"]
+        }
+        bookingService.getBookingById(ended[0]).status == BookingStatus.ACTIVE
+        bookingService.getBookingById(upcoming).status == BookingStatus.ACTIVE
+        blockService.getBlockById(endedBlock).endAt == today.minusDays(80)
+
+        and: "the outbox only recorded the live booking"
+        jdbcTemplate.queryForList("SELECT change_type FROM occupancy_outbox WHERE property_id = ?", String, propertyId) == ["OCCUPIED"]
+
+        when: "nothing is left to archive"
+        def moved = context.getBean("occupancyArchiver").archive()
+
+        then:
+        moved == 0
+    }
+
+    private List<UUID> ids(String table, UUID propertyId) {
+        return jdbcTemplate.queryForList("SELECT id FROM ${table} WHERE property_id = ?".toString(), UUID, propertyId)
+    }
+
+    private UUID insertBooking(UUID propertyId, LocalDate startAt, LocalDate endAt, String status, LocalDateTime cancelledAt) {
+        def id = UUID.randomUUID()
+        jdbcTemplate.update("""
+                INSERT INTO bookings (id, property_id, start_at, end_at, guests, status, cancelled_at)
+                VALUES (?, ?, ?, ?, '[{"name":"Old","email":"old@test.com"}]' FORMAT JSON, ?, ?)
+                """, id, propertyId, startAt, endAt, status, cancelledAt)
+        return id
+    }
+
+    private UUID insertBlock(UUID propertyId, LocalDate startAt, LocalDate endAt) {
+        def id = UUID.randomUUID()
+        jdbcTemplate.update("INSERT INTO blocks (id, property_id, start_at, end_at, reason) VALUES (?, ?, ?, ?, 'MAINTENANCE')",
+                id, propertyId, startAt, endAt)
+        return id
+    }
+
+    private UUID createProperty() {
+        def property = new PropertyEntity(id: UUID.randomUUID(), name: "Archive House", address: "Archive Street", status: PropertyStatus.ACTIVE)
+        return propertyRepository.save(property).id
+    }
+}
@@ -0,0 +1,96 @@
+package com.brunozambiazi.bookingsystem
+
+import com.brunozambiazi.bookingsystem.api.dto.AvailabilityCheckItem
+import com.brunozambiazi.bookingsystem.api.dto.AvailabilityCheckRequest
+import com.brunozambiazi.bookingsystem.api.dto.CreateBlockRequest
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest
+import com.brunozambiazi.bookingsystem.api.dto.GuestDto
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity
+import com.brunozambiazi.bookingsystem.domain.model.BlockReason
+import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository
+import com.brunozambiazi.bookingsystem.service.BlockService
+import com.brunozambiazi.bookingsystem.service.BookingService
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.http.MediaType
+import org.springframework.test.web.servlet.MockMvc
+import spock.lang.Specification
+
+import java.time.LocalDate
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:availability-check-it")
+class AvailabilityCheckIT extends Specification {
+
+    @Autowired
+    private MockMvc mockMvc
+
+    @Autowired
+    private ObjectMapper objectMapper
+
+    @Autowired
+    private BookingService bookingService
+
+    @Autowired
+    private BlockService blockService
+
+    @Autowired
+    private PropertyRepository propertyRepository
+
+    def startAt = LocalDate.now().plusYears(1)
+
+    def "should answer every check in request order across chunks"() {
+        given:
+        def propertyId = propertyRepository.save(property(PropertyStatus.ACTIVE)).id
+        def inactiveId = propertyRepository.save(property(PropertyStatus.INACTIVE)).id
+        bookingService.createBooking(new CreateBookingRequest(propertyId, startAt.plusDays(2), startAt.plusDays(4), [new GuestDto("Check", "check@test.com")]))
+        blockService.createBlock(new CreateBlockRequest(propertyId, startAt.plusDays(6), startAt.plusDays(7), BlockReason.MAINTENANCE))
+
+        and: "each night of the first 10 checked 120 times, with an inactive and an unknown property in between"
+        def checks = (0..<1_200).collect { check(propertyId, it % 10, it % 10 + 1) }
+        checks.add(700, check(inactiveId, 0, 1))
+        checks.add(check(UUID.randomUUID(), 0, 1))
+
+        when:
+        def response = mockMvc.perform(post("/api/availability/check")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new AvailabilityCheckRequest(checks))))
+                .andExpect(status().isOk())
+                .andReturn().response.contentAsString
+        def available = objectMapper.readTree(response).get("available")*.asBoolean()
+
+        then:
+        available.size() == 1_202
+        available[0..<10] == [true, true, false, false, true, true, false, true, true, true]
+        !available[700]
+        available[701..<711] == available[0..<10]
+        !available.last()
+    }
+
+    def "should reject an invalid period"() {
+        given:
+        def propertyId = propertyRepository.save(property(PropertyStatus.ACTIVE)).id
+
+        expect:
+        mockMvc.perform(post("/api/availability/check")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new AvailabilityCheckRequest([check(propertyId, 3, 3)]))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath('$.code').exists())
+    }
+
+    private AvailabilityCheckItem check(UUID propertyId, int from, int to) {
+        return new AvailabilityCheckItem(propertyId, startAt.plusDays(from), startAt.plusDays(to))
+    }
+
+    private static PropertyEntity property(PropertyStatus status) {
+        return new PropertyEntity(id: UUID.randomUUID(), name: "Check House", address: "Check Street", status: status)
+    }
+}
@@ -0,0 +1,123 @@
+package com.brunozambiazi.bookingsystem
+
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingBatchRequest
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest
+import com.brunozambiazi.bookingsystem.api.dto.GuestDto
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity
+import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus
+import com.brunozambiazi.bookingsystem.domain.repository.BookingRepository
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.http.MediaType
+import org.springframework.test.web.servlet.MockMvc
+import org.springframework.test.web.servlet.ResultActions
+import spock.lang.Specification
+
+import java.time.LocalDate
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:booking-batch-it")
+class BookingBatchIT extends Specification {
+
+    @Autowired
+    private MockMvc mockMvc
+
+    @Autowired
+    private ObjectMapper objectMapper
+
+    @Autowired
+    private BookingRepository bookingRepository
+
+    @Autowired
+    private PropertyRepository propertyRepository
+
+    def "should create a batch of bookings reporting conflicts per item"() {
+        given:
+        def propertyIds = (1..20).collect { createProperty(PropertyStatus.ACTIVE) }
+        def inactivePropertyId = createProperty(PropertyStatus.INACTIVE)
+        def base = LocalDate.now().plusYears(1)
+
+        def requests = []
+        propertyIds.each { propertyId ->
+            (0..<10).each { week -> requests << request(propertyId, base.plusWeeks(week), 3) }
+        }
+        requests << request(propertyIds[0], base.plusDays(1), 2)
+        requests << request(inactivePropertyId, base, 3)
+
+        when:
+        def result = mockMvc.perform(post("/api/bookings/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new CreateBookingBatchRequest(requests))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath('$.created').value(200))
+                .andExpect(jsonPath('$.rejected').value(2))
+                .andExpect(jsonPath('$.items[200].errorCode').value("DATE_OVERLAP"))
+                .andExpect(jsonPath('$.items[201].errorCode').value("INVALID_STATE"))
+                .andReturn()
+
+        then:
+        def items = objectMapper.readTree(result.response.contentAsString).get("items")
+        items[0].get("booking").get("id").asText() != null
+        bookingRepository.findAll().count { it.propertyId in propertyIds } == 200
+
+        when: "the same batch is sent again"
+        mockMvc.perform(post("/api/bookings/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new CreateBookingBatchRequest(requests))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath('$.created').value(0))
+                .andExpect(jsonPath('$.rejected').value(202))
+
+        then: "everything conflicts with the stored bookings"
+        bookingRepository.findAll().count { it.propertyId in propertyIds } == 200
+    }
+
+    def "should see a property deactivated after its status was cached"() {
+        given:
+        def propertyId = createProperty(PropertyStatus.ACTIVE)
+        def base = LocalDate.now().plusYears(1)
+        batch([request(propertyId, base, 2)])
+                .andExpect(jsonPath('$.created').value(1))
+
+        when:
+        def property = propertyRepository.getById(propertyId)
+        property.status = PropertyStatus.INACTIVE
+        propertyRepository.save(property)
+
+        then:
+        batch([request(propertyId, base.plusWeeks(1), 2)])
+                .andExpect(jsonPath('$.rejected').value(1))
+                .andExpect(jsonPath('$.items[0].errorCode').value("INVALID_STATE"))
+    }
+
+    def "should reject an empty batch"() {
+        expect:
+        mockMvc.perform(post("/api/bookings/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new CreateBookingBatchRequest([]))))
+                .andExpect(status().isBadRequest())
+    }
+
+    private ResultActions batch(List<CreateBookingRequest> requests) {
+        return mockMvc.perform(post("/api/bookings/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new CreateBookingBatchRequest(requests))))
+                .andExpect(status().isOk())
+    }
+
+    private UUID createProperty(PropertyStatus status) {
+        def property = new PropertyEntity(id: UUID.randomUUID(), name: "Batch House", address: "Batch Street", status: status)
+        return propertyRepository.save(property).id
+    }
+
+    private static CreateBookingRequest request(UUID propertyId, LocalDate startAt, int nights) {
+        return new CreateBookingRequest(propertyId, startAt, startAt.plusDays(nights), [new GuestDto("Batch", "batch@test.com")])
+    }
+}
@@ -0,0 +1,101 @@
+package com.brunozambiazi.bookingsystem
+
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest
+import com.brunozambiazi.bookingsystem.api.dto.CreateBulkBlockRequest
+import com.brunozambiazi.bookingsystem.api.dto.GuestDto
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity
+import com.brunozambiazi.bookingsystem.domain.model.BlockReason
+import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus
+import com.brunozambiazi.bookingsystem.domain.repository.BlockRepository
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository
+import com.brunozambiazi.bookingsystem.service.BookingService
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.http.MediaType
+import org.springframework.test.web.servlet.MockMvc
+import spock.lang.Specification
+
+import java.time.LocalDate
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:bulk-block-it")
+class BulkBlockIT extends Specification {
+
+    @Autowired
+    private MockMvc mockMvc
+
+    @Autowired
+    private ObjectMapper objectMapper
+
+    @Autowired
+    private BookingService bookingService
+
+    @Autowired
+    private BlockRepository blockRepository
+
+    @Autowired
+    private PropertyRepository propertyRepository
+
+    def "should block every active property across chunks"() {
+        given:
+        def startAt = LocalDate.now().plusYears(1)
+        def propertyIds = propertyRepository.saveAll((1..2_500).collect { property(PropertyStatus.ACTIVE) })*.id
+        def inactiveId = propertyRepository.save(property(PropertyStatus.INACTIVE)).id
+        def bookedId = propertyIds[1_234]
+        bookingService.createBooking(new CreateBookingRequest(bookedId, startAt.plusDays(2), startAt.plusDays(4), [new GuestDto("Bulk", "bulk@test.com")]))
+
+        when:
+        def result = mockMvc.perform(post("/api/blocks/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new CreateBulkBlockRequest(propertyIds + inactiveId, false, startAt, startAt.plusDays(7), BlockReason.MAINTENANCE))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath('$.created').value(2_499))
+                .andExpect(jsonPath('$.rejected').value(2))
+                .andReturn()
+
+        then:
+        def rejected = objectMapper.readTree(result.response.contentAsString).get("items").findAll { it.get("block").isNull() }
+        rejected.collectEntries { [(it.get("propertyId").asText()): it.get("errorCode").asText()] } == [
+                (bookedId.toString()): "DATE_OVERLAP",
+                (inactiveId.toString()): "INVALID_STATE"
+        ]
+        blockRepository.findAll().count { it.propertyId in propertyIds } == 2_499
+
+        when: "blocking all active properties again on overlapping dates"
+        mockMvc.perform(post("/api/blocks/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new CreateBulkBlockRequest(null, true, startAt.plusDays(3), startAt.plusDays(4), BlockReason.OTHER))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath('$.rejected').value(2_500))
+
+        then:
+        blockRepository.findAll().count { it.propertyId in propertyIds } == 2_499
+    }
+
+    def "should require either property ids or all active properties"() {
+        given:
+        def startAt = LocalDate.now().plusYears(1)
+
+        expect:
+        mockMvc.perform(post("/api/blocks/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new CreateBulkBlockRequest(propertyIds, allActive, startAt, startAt.plusDays(1), BlockReason.OTHER))))
+                .andExpect(status().isBadRequest())
+
+        where:
+        propertyIds          | allActive
+        null                 | false
+        []                   | false
+        [UUID.randomUUID()]  | true
+    }
+
+    private static PropertyEntity property(PropertyStatus status) {
+        return new PropertyEntity(id: UUID.randomUUID(), name: "Bulk House", address: "Bulk Street", status: status)
+    }
+}
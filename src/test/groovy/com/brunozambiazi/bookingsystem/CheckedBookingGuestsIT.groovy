@@ -0,0 +1,10 @@
+package com.brunozambiazi.bookingsystem
+
+import org.springframework.boot.test.context.SpringBootTest
+
+@SpringBootTest(properties = [
+        "spring.datasource.url=jdbc:h2:mem:checked-booking-guests-it",
+        "booking.availability.write-mode=CHECKED"
+])
+class CheckedBookingGuestsIT extends AbstractBookingGuestsIT {
+}
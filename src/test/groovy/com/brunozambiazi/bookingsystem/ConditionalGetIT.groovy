@@ -0,0 +1,112 @@
+package com.brunozambiazi.bookingsystem
+
+import com.brunozambiazi.bookingsystem.api.dto.CreateBlockRequest
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest
+import com.brunozambiazi.bookingsystem.api.dto.GuestDto
+import com.brunozambiazi.bookingsystem.api.dto.UpdateBlockRequest
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity
+import com.brunozambiazi.bookingsystem.domain.model.BlockReason
+import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository
+import com.brunozambiazi.bookingsystem.service.BlockService
+import com.brunozambiazi.bookingsystem.service.BookingService
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.http.HttpHeaders
+import org.springframework.test.web.servlet.MockMvc
+import spock.lang.Specification
+
+import java.time.LocalDate
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:conditional-get-it")
+class ConditionalGetIT extends Specification {
+
+    @Autowired
+    private MockMvc mockMvc
+
+    @Autowired
+    private BookingService bookingService
+
+    @Autowired
+    private BlockService blockService
+
+    @Autowired
+    private PropertyRepository propertyRepository
+
+    def startAt = LocalDate.now().plusYears(1)
+
+    def "should answer 304 for an unchanged booking until it changes"() {
+        given:
+        def booking = bookingService.createBooking(new CreateBookingRequest(createProperty(), startAt, startAt.plusDays(2), [new GuestDto("Etag", "etag@test.com")]))
+        def etag = etagOf("/api/bookings/${booking.id()}")
+
+        expect:
+        conditionalGet("/api/bookings/${booking.id()}", etag)
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""))
+
+        when:
+        bookingService.cancelBooking(booking.id())
+
+        then:
+        conditionalGet("/api/bookings/${booking.id()}", etag).andExpect(status().isOk())
+        etagOf("/api/bookings/${booking.id()}") != etag
+    }
+
+    def "should answer 304 for an unchanged block until it changes"() {
+        given:
+        def block = blockService.createBlock(new CreateBlockRequest(createProperty(), startAt, startAt.plusDays(2), BlockReason.MAINTENANCE))
+        def etag = etagOf("/api/blocks/${block.id()}")
+
+        expect:
+        conditionalGet("/api/blocks/${block.id()}", etag).andExpect(status().isNotModified())
+
+        when:
+        blockService.updateBlock(block.id(), new UpdateBlockRequest(startAt, startAt.plusDays(3), BlockReason.OTHER))
+
+        then:
+        conditionalGet("/api/blocks/${block.id()}", etag).andExpect(status().isOk())
+    }
+
+    def "should answer 304 for a search until a change touches its nights"() {
+        given:
+        def propertyId = createProperty()
+        def search = "/api/properties?startAt=${startAt}&endAt=${startAt.plusDays(2)}"
+        def etag = etagOf(search)
+
+        when: "a booking outside the searched nights"
+        bookingService.createBooking(new CreateBookingRequest(propertyId, startAt.plusDays(2), startAt.plusDays(4), [new GuestDto("Etag", "etag@test.com")]))
+
+        then:
+        conditionalGet(search, etag).andExpect(status().isNotModified())
+
+        when: "a block on one of them"
+        blockService.createBlock(new CreateBlockRequest(propertyId, startAt.plusDays(1), startAt.plusDays(2), BlockReason.OWNER_USE))
+
+        then:
+        conditionalGet(search, etag).andExpect(status().isOk())
+    }
+
+    private String etagOf(String uri) {
+        def etag = mockMvc.perform(get(uri))
+                .andExpect(status().isOk())
+                .andReturn().response.getHeader(HttpHeaders.ETAG)
+        assert etag
+        return etag
+    }
+
+    private def conditionalGet(String uri, String etag) {
+        return mockMvc.perform(get(uri).header(HttpHeaders.IF_NONE_MATCH, etag))
+    }
+
+    private UUID createProperty() {
+        def property = new PropertyEntity(id: UUID.randomUUID(), name: "Etag House", address: "Etag Street", status: PropertyStatus.ACTIVE)
+        return propertyRepository.save(property).id
+    }
+}
@@ -0,0 +1,143 @@
+package com.brunozambiazi.bookingsystem
+
+import com.brunozambiazi.bookingsystem.api.dto.CreateBlockRequest
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest
+import com.brunozambiazi.bookingsystem.api.dto.GuestDto
+import com.brunozambiazi.bookingsystem.api.dto.UpdateBlockRequest
+import com.brunozambiazi.bookingsystem.api.dto.UpdateBookingRequest
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity
+import com.brunozambiazi.bookingsystem.domain.model.BlockReason
+import com.brunozambiazi.bookingsystem.domain.model.BookingStatus
+import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository
+import com.brunozambiazi.bookingsystem.exception.InvalidStateException
+import com.brunozambiazi.bookingsystem.exception.OverlapException
+import com.brunozambiazi.bookingsystem.service.BlockService
+import com.brunozambiazi.bookingsystem.service.BookingService
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import spock.lang.Specification
+
+import java.time.LocalDate
+
+@SpringBootTest(properties = [
+        "spring.datasource.url=jdbc:h2:mem:conditional-write-it",
+        "booking.availability.write-mode=CONDITIONAL"
+])
+class ConditionalWriteIT extends Specification {
+
+    @Autowired
+    private BookingService bookingService
+
+    @Autowired
+    private BlockService blockService
+
+    @Autowired
+    private PropertyRepository propertyRepository
+
+    private final LocalDate base = LocalDate.now().plusYears(1)
+
+    def "should insert bookings with their guests and reject overlapping ones"() {
+        given:
+        def propertyId = createProperty(PropertyStatus.ACTIVE)
+        def guests = [new GuestDto("Ana", "ana@test.com"), new GuestDto("Bia", "bia@test.com")]
+
+        when:
+        def created = bookingService.createBooking(new CreateBookingRequest(propertyId, base, base.plusDays(3), guests))
+
+        then:
+        def stored = bookingService.getBookingById(created.id)
+        stored.status == BookingStatus.ACTIVE
+        stored.startAt == base
+        stored.guests == guests
+
+        when:
+        bookingService.createBooking(new CreateBookingRequest(propertyId, base.plusDays(2), base.plusDays(4), guests))
+
+        then:
+        def overlap = thrown(OverlapException)
+        overlap.message == "There is a booking overlap"
+    }
+
+    def "should reject bookings on inactive properties"() {
+        given:
+        def propertyId = createProperty(PropertyStatus.INACTIVE)
+
+        when:
+        bookingService.createBooking(new CreateBookingRequest(propertyId, base, base.plusDays(3), [new GuestDto("Ana", "ana@test.com")]))
+
+        then:
+        thrown(InvalidStateException)
+    }
+
+    def "should update and rebook bookings only into free periods"() {
+        given:
+        def propertyId = createProperty(PropertyStatus.ACTIVE)
+        def ana = [new GuestDto("Ana", "ana@test.com")]
+        def booking = bookingService.createBooking(new CreateBookingRequest(propertyId, base, base.plusDays(3), ana))
+        blockService.createBlock(new CreateBlockRequest(propertyId, base.plusDays(10), base.plusDays(12), BlockReason.MAINTENANCE))
+
+        when:
+        bookingService.updateBooking(booking.id, new UpdateBookingRequest(base.plusDays(9), base.plusDays(11), ana))
+
+        then:
+        def blocked = thrown(OverlapException)
+        blocked.message == "There is a block overlap"
+        bookingService.getBookingById(booking.id).startAt == base
+
+        when:
+        bookingService.updateBooking(booking.id, new UpdateBookingRequest(base.plusDays(1), base.plusDays(5), [new GuestDto("Caio", "caio@test.com")]))
+
+        then:
+        with(bookingService.getBookingById(booking.id)) {
+            startAt == base.plusDays(1)
+            endAt == base.plusDays(5)
+            guests*.name == ["Caio"]
+        }
+
+        when:
+        bookingService.cancelBooking(booking.id)
+        bookingService.createBooking(new CreateBookingRequest(propertyId, base.plusDays(4), base.plusDays(6), ana))
+        bookingService.rebookBooking(booking.id)
+
+        then:
+        thrown(OverlapException)
+        bookingService.getBookingById(booking.id).status == BookingStatus.CANCELLED
+    }
+
+    def "should insert and update blocks only into free periods"() {
+        given:
+        def propertyId = createProperty(PropertyStatus.ACTIVE)
+        bookingService.createBooking(new CreateBookingRequest(propertyId, base, base.plusDays(3), [new GuestDto("Ana", "ana@test.com")]))
+        def block = blockService.createBlock(new CreateBlockRequest(propertyId, base.plusDays(5), base.plusDays(7), BlockReason.MAINTENANCE))
+
+        when:
+        blockService.createBlock(new CreateBlockRequest(propertyId, base.plusDays(2), base.plusDays(4), BlockReason.OWNER_USE))
+
+        then:
+        def booked = thrown(OverlapException)
+        booked.message == "There is a booking overlap"
+
+        when:
+        blockService.updateBlock(block.id, new UpdateBlockRequest(base.plusDays(6), base.plusDays(9), BlockReason.OWNER_USE))
+
+        then:
+        with(blockService.getBlockById(block.id)) {
+            startAt == base.plusDays(6)
+            endAt == base.plusDays(9)
+            reason == BlockReason.OWNER_USE
+        }
+
+        when:
+        blockService.updateBlock(block.id, new UpdateBlockRequest(base.plusDays(1), base.plusDays(6), BlockReason.OWNER_USE))
+
+        then:
+        thrown(OverlapException)
+        blockService.getBlockById(block.id).startAt == base.plusDays(6)
+    }
+
+    private UUID createProperty(PropertyStatus status) {
+        def property = new PropertyEntity(id: UUID.randomUUID(), name: "Conditional House", address: "Conditional Street", status: status)
+        return propertyRepository.save(property).id
+    }
+}
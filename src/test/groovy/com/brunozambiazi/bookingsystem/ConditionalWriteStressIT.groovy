@@ -0,0 +1,11 @@
+package com.brunozambiazi.bookingsystem
+
+import org.springframework.boot.test.context.SpringBootTest
+
+@SpringBootTest(properties = [
+        "spring.datasource.url=jdbc:h2:mem:conditional-write-stress-it;LOCK_TIMEOUT=30000",
+        "booking.availability.write-mode=CONDITIONAL",
+        AbstractBookingStressIT.PROPERTIES
+])
+class ConditionalWriteStressIT extends AbstractBookingStressIT {
+}
@@ -0,0 +1,135 @@
+package com.brunozambiazi.bookingsystem
+
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest
+import com.brunozambiazi.bookingsystem.api.dto.GuestDto
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity
+import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.context.ApplicationContext
+import org.springframework.http.HttpHeaders
+import org.springframework.http.MediaType
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.test.web.servlet.MockMvc
+import org.springframework.transaction.support.TransactionTemplate
+import spock.lang.Specification
+
+import java.time.Duration
+import java.time.LocalDate
+import java.util.concurrent.CountDownLatch
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = [
+        "spring.datasource.url=jdbc:h2:mem:lock-timeout-it;LOCK_TIMEOUT=300",
+        "booking.lock.wait-timeout.booking=200ms",
+        "booking.lock.retry-after=2s"
+])
+class LockTimeoutIT extends Specification {
+
+    @Autowired
+    private ApplicationContext context
+
+    @Autowired
+    private MockMvc mockMvc
+
+    @Autowired
+    private ObjectMapper objectMapper
+
+    @Autowired
+    private PropertyRepository propertyRepository
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate
+
+    @Autowired
+    private TransactionTemplate transactionTemplate
+
+    def "should fail fast with 423 while another writer of this node holds the property"() {
+        given:
+        def propertyId = createProperty()
+        def holder = holdInTransaction { context.getBean("databasePropertyLock").lock(propertyId, Duration.ofSeconds(5)) }
+
+        when:
+        def startedAt = System.nanoTime()
+        def response = createBooking(propertyId)
+
+        then:
+        response.andExpect(status().isLocked())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"))
+                .andExpect(jsonPath('$.code').value("LOCK_TIMEOUT"))
+        Duration.ofNanos(System.nanoTime() - startedAt) < Duration.ofSeconds(2)
+
+        cleanup:
+        holder?.release()
+    }
+
+    def "should answer 423 when the row is held outside this node past the database lock timeout"() {
+        given:
+        def propertyId = createProperty()
+        def holder = holdInTransaction { jdbcTemplate.queryForList("SELECT id FROM properties WHERE id = ? FOR UPDATE", propertyId) }
+
+        expect:
+        createBooking(propertyId)
+                .andExpect(status().isLocked())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"))
+
+        cleanup:
+        holder?.release()
+    }
+
+    def "should book once the holder is gone"() {
+        given:
+        def propertyId = createProperty()
+        holdInTransaction { context.getBean("databasePropertyLock").lock(propertyId, Duration.ofSeconds(5)) }.release()
+
+        expect:
+        createBooking(propertyId).andExpect(status().isCreated())
+    }
+
+    private def createBooking(UUID propertyId) {
+        def startAt = LocalDate.now().plusYears(1)
+        def request = new CreateBookingRequest(propertyId, startAt, startAt.plusDays(2), [new GuestDto("Lock", "lock@test.com")])
+        return mockMvc.perform(post("/api/bookings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+    }
+
+    /** Runs the closure in a transaction on another thread and keeps that transaction open until released. */
+    private Holder holdInTransaction(Closure locking) {
+        def locked = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def thread = Thread.start {
+            transactionTemplate.executeWithoutResult {
+                locking()
+                locked.countDown()
+                release.await()
+            }
+        }
+        locked.await()
+        return new Holder(release: release, thread: thread)
+    }
+
+    private UUID createProperty() {
+        def property = new PropertyEntity(id: UUID.randomUUID(), name: "Busy House", address: "Busy Street", status: PropertyStatus.ACTIVE)
+        return propertyRepository.save(property).id
+    }
+
+    private static class Holder {
+
+        CountDownLatch release
+        Thread thread
+
+        void release() {
+            release.countDown()
+            thread.join()
+        }
+    }
+}
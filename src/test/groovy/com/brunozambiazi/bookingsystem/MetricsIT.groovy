@@ -0,0 +1,62 @@
+package com.brunozambiazi.bookingsystem
+
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest
+import com.brunozambiazi.bookingsystem.api.dto.GuestDto
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity
+import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.http.MediaType
+import org.springframework.test.web.servlet.MockMvc
+import spock.lang.Specification
+
+import java.time.LocalDate
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:metrics-it")
+class MetricsIT extends Specification {
+
+    @Autowired
+    private MockMvc mockMvc
+
+    @Autowired
+    private ObjectMapper objectMapper
+
+    @Autowired
+    private PropertyRepository propertyRepository
+
+    def "should expose lock, overlap and search meters on the prometheus endpoint"() {
+        given:
+        def property = propertyRepository.save(new PropertyEntity(id: UUID.randomUUID(), name: "Metrics House", address: "Metrics Street", status: PropertyStatus.ACTIVE))
+        def startAt = LocalDate.now().plusYears(1)
+        def request = new CreateBookingRequest(property.id, startAt, startAt.plusDays(2), [new GuestDto("Metrics", "metrics@test.com")])
+
+        when:
+        2.times {
+            mockMvc.perform(post("/api/bookings")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(request)))
+        }
+        mockMvc.perform(get("/api/properties").param("startAt", startAt.toString()).param("endAt", startAt.plusDays(2).toString()))
+                .andExpect(status().isOk())
+        def scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().response.contentAsString
+
+        then:
+        scrape.contains('booking_lock_wait_seconds_bucket{')
+        scrape.contains('booking_overlap_query_seconds_count{')
+        scrape =~ /booking_overlap_conflicts_total\{[^}]*type="booking"[^}]*} 1\.0/
+        scrape.contains('booking_search_seconds_bucket{')
+        scrape.contains('booking_search_results_properties_sum{')
+    }
+}
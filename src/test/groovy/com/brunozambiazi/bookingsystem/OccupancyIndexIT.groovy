@@ -0,0 +1,119 @@
+package com.brunozambiazi.bookingsystem
+
+import com.brunozambiazi.bookingsystem.api.dto.CreateBlockRequest
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest
+import com.brunozambiazi.bookingsystem.api.dto.GuestDto
+import com.brunozambiazi.bookingsystem.api.dto.UpdateBlockRequest
+import com.brunozambiazi.bookingsystem.api.dto.UpdateBookingRequest
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity
+import com.brunozambiazi.bookingsystem.domain.model.BlockReason
+import com.brunozambiazi.bookingsystem.domain.model.DateRange
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType
+import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus
+import com.brunozambiazi.bookingsystem.domain.repository.BlockRepository
+import com.brunozambiazi.bookingsystem.domain.repository.BookingRepository
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository
+import com.brunozambiazi.bookingsystem.exception.CustomException
+import com.brunozambiazi.bookingsystem.service.BlockService
+import com.brunozambiazi.bookingsystem.service.BookingService
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.context.ApplicationContext
+import spock.lang.Specification
+
+import java.time.LocalDate
+
+@SpringBootTest(properties = [
+        "spring.datasource.url=jdbc:h2:mem:occupancy-index-it",
+        "booking.availability.overlap-mode=VERIFY"
+])
+class OccupancyIndexIT extends Specification {
+
+    @Autowired
+    private ApplicationContext context
+
+    @Autowired
+    private BookingService bookingService
+
+    @Autowired
+    private BlockService blockService
+
+    @Autowired
+    private BookingRepository bookingRepository
+
+    @Autowired
+    private BlockRepository blockRepository
+
+    @Autowired
+    private PropertyRepository propertyRepository
+
+    def "index and database should always agree under random workloads"() {
+        given:
+        def index = context.getBean("occupancyIndex")
+        def random = new Random(2024)
+        def base = LocalDate.now().plusYears(1)
+        def propertyIds = (1..3).collect { createProperty() }
+        def bookingIds = []
+        def blockIds = []
+
+        when:
+        500.times {
+            def propertyId = propertyIds[random.nextInt(propertyIds.size())]
+            def period = randomRange(random, base)
+
+            try {
+                switch (random.nextInt(6)) {
+                    case 0:
+                        bookingIds << bookingService.createBooking(new CreateBookingRequest(propertyId, period.startAt(), period.endAt(), [guest()])).id()
+                        break
+                    case 1:
+                        blockIds << blockService.createBlock(new CreateBlockRequest(propertyId, period.startAt(), period.endAt(), BlockReason.OTHER)).id()
+                        break
+                    case 2:
+                        if (bookingIds) bookingService.updateBooking(bookingIds[random.nextInt(bookingIds.size())], new UpdateBookingRequest(period.startAt(), period.endAt(), [guest()]))
+                        break
+                    case 3:
+                        if (blockIds) blockService.updateBlock(blockIds[random.nextInt(blockIds.size())], new UpdateBlockRequest(period.startAt(), period.endAt(), BlockReason.MAINTENANCE))
+                        break
+                    case 4:
+                        if (bookingIds) bookingService.cancelBooking(bookingIds[random.nextInt(bookingIds.size())])
+                        break
+                    default:
+                        if (bookingIds) bookingService.rebookBooking(bookingIds[random.nextInt(bookingIds.size())])
+                }
+            } catch (CustomException ignored) {
+                // overlaps and invalid transitions are part of the workload
+            }
+
+            def probe = randomRange(random, base)
+            assert index.findOverlap(propertyId, probe, null) == databaseAnswer(propertyId, probe)
+        }
+
+        then:
+        noExceptionThrown()
+    }
+
+    private Optional<OccupancyType> databaseAnswer(UUID propertyId, DateRange period) {
+        if (blockRepository.overlapOtherBlock(null, propertyId, period.startAt(), period.endAt())) {
+            return Optional.of(OccupancyType.BLOCK)
+        }
+        if (bookingRepository.overlapOtherBooking(null, propertyId, period.startAt(), period.endAt())) {
+            return Optional.of(OccupancyType.BOOKING)
+        }
+        return Optional.empty()
+    }
+
+    private UUID createProperty() {
+        def property = new PropertyEntity(id: UUID.randomUUID(), name: "Index House", address: "Index Street", status: PropertyStatus.ACTIVE)
+        return propertyRepository.save(property).id
+    }
+
+    private static DateRange randomRange(Random random, LocalDate base) {
+        def start = random.nextInt(90)
+        return new DateRange(base.plusDays(start), base.plusDays(start + 1 + random.nextInt(10)))
+    }
+
+    private static GuestDto guest() {
+        return new GuestDto("Index", "index@test.com")
+    }
+}
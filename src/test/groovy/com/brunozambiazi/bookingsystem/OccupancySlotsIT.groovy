@@ -0,0 +1,163 @@
+package com.brunozambiazi.bookingsystem
+
+import com.brunozambiazi.bookingsystem.api.dto.CreateBlockRequest
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest
+import com.brunozambiazi.bookingsystem.api.dto.GuestDto
+import com.brunozambiazi.bookingsystem.api.dto.UpdateBookingRequest
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity
+import com.brunozambiazi.bookingsystem.domain.model.BlockReason
+import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository
+import com.brunozambiazi.bookingsystem.exception.OverlapException
+import com.brunozambiazi.bookingsystem.service.BlockService
+import com.brunozambiazi.bookingsystem.service.BookingService
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.jdbc.core.JdbcTemplate
+import spock.lang.Specification
+
+import java.time.LocalDate
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+
+@SpringBootTest(properties = [
+        "spring.datasource.url=jdbc:h2:mem:occupancy-slots-it;LOCK_TIMEOUT=30000",
+        "booking.lock.strategy=NONE",
+        "booking.availability.write-mode=SLOTS"
+])
+class OccupancySlotsIT extends Specification {
+
+    @Autowired
+    private BookingService bookingService
+
+    @Autowired
+    private BlockService blockService
+
+    @Autowired
+    private PropertyRepository propertyRepository
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate
+
+    private final LocalDate base = LocalDate.now().plusYears(1)
+
+    def "should claim the nights of the seeded occupancies on startup"() {
+        expect:
+        slots() == jdbcTemplate.queryForObject("""
+                SELECT (SELECT COALESCE(SUM(DATEDIFF(DAY, start_at, end_at)), 0) FROM bookings WHERE status = 'ACTIVE')
+                     + (SELECT COALESCE(SUM(DATEDIFF(DAY, start_at, end_at)), 0) FROM blocks)
+                """, Integer)
+    }
+
+    def "should claim one slot per night and reject writes on claimed nights"() {
+        given:
+        def propertyId = createProperty()
+
+        when:
+        def booking = bookingService.createBooking(bookingRequest(propertyId, base, base.plusDays(3)))
+        blockService.createBlock(new CreateBlockRequest(propertyId, base.plusDays(5), base.plusDays(7), BlockReason.MAINTENANCE))
+
+        then:
+        slotsOf(booking.id) == 3
+        slots(propertyId) == 5
+
+        when:
+        bookingService.createBooking(bookingRequest(propertyId, base.plusDays(2), base.plusDays(4)))
+
+        then:
+        def booked = thrown(OverlapException)
+        booked.message == "There is a booking overlap"
+
+        when:
+        bookingService.createBooking(bookingRequest(propertyId, base.plusDays(4), base.plusDays(6)))
+
+        then:
+        def blocked = thrown(OverlapException)
+        blocked.message == "There is a block overlap"
+        slots(propertyId) == 5
+    }
+
+    def "should move slots on update and release them on cancel"() {
+        given:
+        def propertyId = createProperty()
+        def booking = bookingService.createBooking(bookingRequest(propertyId, base, base.plusDays(3)))
+
+        when:
+        bookingService.updateBooking(booking.id, new UpdateBookingRequest(base.plusDays(1), base.plusDays(5), [guest()]))
+
+        then:
+        nightsOf(booking.id) == (1..4).collect { base.plusDays(it) }
+
+        when:
+        bookingService.cancelBooking(booking.id)
+
+        then:
+        slotsOf(booking.id) == 0
+
+        when:
+        bookingService.createBooking(bookingRequest(propertyId, base.plusDays(4), base.plusDays(6)))
+        bookingService.rebookBooking(booking.id)
+
+        then:
+        thrown(OverlapException)
+        slotsOf(booking.id) == 0
+    }
+
+    def "should accept exactly one of many concurrent writers of the same nights"() {
+        given:
+        def propertyId = createProperty()
+        def start = new CountDownLatch(1)
+        def executor = Executors.newFixedThreadPool(8)
+
+        when:
+        def futures = (1..8).collect {
+            executor.submit({
+                start.await()
+                try {
+                    bookingService.createBooking(bookingRequest(propertyId, base.plusDays(10), base.plusDays(13)))
+                    return "accepted"
+                } catch (OverlapException ignored) {
+                    return "rejected"
+                }
+            } as Callable<String>)
+        }
+        start.countDown()
+        def outcomes = futures*.get()
+        executor.shutdown()
+
+        then:
+        outcomes.count("accepted") == 1
+        outcomes.count("rejected") == 7
+        slots(propertyId) == 3
+    }
+
+    private int slots() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM occupancy_days", Integer)
+    }
+
+    private int slots(UUID propertyId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM occupancy_days WHERE property_id = ?", Integer, propertyId)
+    }
+
+    private int slotsOf(UUID occupancyId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM occupancy_days WHERE occupancy_id = ?", Integer, occupancyId)
+    }
+
+    private List<LocalDate> nightsOf(UUID occupancyId) {
+        return jdbcTemplate.queryForList("SELECT night FROM occupancy_days WHERE occupancy_id = ? ORDER BY night", LocalDate, occupancyId)
+    }
+
+    private static CreateBookingRequest bookingRequest(UUID propertyId, LocalDate startAt, LocalDate endAt) {
+        return new CreateBookingRequest(propertyId, startAt, endAt, [guest()])
+    }
+
+    private static GuestDto guest() {
+        return new GuestDto("Slot", "slot@test.com")
+    }
+
+    private UUID createProperty() {
+        def property = new PropertyEntity(id: UUID.randomUUID(), name: "Slot House", address: "Slot Street", status: PropertyStatus.ACTIVE)
+        return propertyRepository.save(property).id
+    }
+}
@@ -0,0 +1,154 @@
+package com.brunozambiazi.bookingsystem
+
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest
+import com.brunozambiazi.bookingsystem.api.dto.GuestDto
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity
+import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus
+import com.brunozambiazi.bookingsystem.domain.repository.BookingRepository
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository
+import com.brunozambiazi.bookingsystem.exception.OverlapException
+import com.brunozambiazi.bookingsystem.service.BookingService
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.dao.OptimisticLockingFailureException
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.transaction.support.TransactionTemplate
+import spock.lang.Specification
+
+import java.time.LocalDate
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+
+@SpringBootTest(properties = [
+        "spring.datasource.url=jdbc:h2:mem:optimistic-lock-it;LOCK_TIMEOUT=10000",
+        "booking.lock.strategy=OPTIMISTIC",
+        "booking.lock.retry-attempts=50"
+])
+class OptimisticLockIT extends Specification {
+
+    private static final int WRITERS = 8
+    private static final LocalDate MONTH = LocalDate.now().plusYears(1).withDayOfMonth(1)
+
+    @Autowired
+    private BookingService bookingService
+
+    @Autowired
+    private BookingRepository bookingRepository
+
+    @Autowired
+    private PropertyRepository propertyRepository
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate
+
+    @Autowired
+    private TransactionTemplate transactionTemplate
+
+    def "should never double-book a night under concurrent writers"() {
+        given:
+        def propertyId = createProperty()
+        def night = LocalDate.now().plusYears(1)
+
+        when:
+        def outcomes = concurrently { bookingService.createBooking(request(propertyId, night)) }
+
+        then:
+        outcomes.count { it == null } == 1
+        outcomes.findAll { it != null }.every { it instanceof OverlapException }
+        bookingRepository.findAll().count { it.propertyId == propertyId } == 1
+    }
+
+    def "should retry conflicting writers on disjoint nights until all of them succeed"() {
+        given:
+        def propertyId = createProperty()
+        def nights = (0..<WRITERS).collect { LocalDate.now().plusYears(1).plusDays(it * 2) }.asSynchronized()
+
+        when:
+        def outcomes = concurrently { bookingService.createBooking(request(propertyId, nights.remove(0))) }
+
+        then:
+        outcomes.every { it == null }
+        bookingRepository.findAll().count { it.propertyId == propertyId } == WRITERS
+        jdbcTemplate.queryForObject("SELECT SUM(revision) FROM calendar_months WHERE property_id = ?", Long, propertyId) == WRITERS
+    }
+
+    def "should only conflict writers of the same month"() {
+        given:
+        def propertyId = createProperty()
+
+        when:
+        def outcome = commitAroundAnotherWriter(propertyId, MONTH, other)
+
+        then:
+        (outcome instanceof OptimisticLockingFailureException) == conflict
+        bookingRepository.findAll().count { it.propertyId == propertyId } == (conflict ? 1 : 2)
+
+        where:
+        other                | conflict
+        MONTH.plusDays(10)   | true
+        MONTH.plusMonths(1)  | false
+        MONTH.minusMonths(1) | false
+    }
+
+    /**
+     * Books {@code night} in a transaction that only commits after another writer booked and committed {@code other},
+     * returning the failure of the first transaction if any.
+     */
+    private Throwable commitAroundAnotherWriter(UUID propertyId, LocalDate night, LocalDate other) {
+        def written = new CountDownLatch(1)
+        def otherCommitted = new CountDownLatch(1)
+        def executor = Executors.newSingleThreadExecutor()
+        try {
+            def first = executor.submit({
+                try {
+                    transactionTemplate.executeWithoutResult {
+                        bookingService.createBooking(request(propertyId, night))
+                        written.countDown()
+                        otherCommitted.await()
+                    }
+                    return null
+                } catch (Exception ex) {
+                    return ex
+                } finally {
+                    written.countDown()
+                }
+            } as Callable<Throwable>)
+
+            written.await()
+            bookingService.createBooking(request(propertyId, other))
+            otherCommitted.countDown()
+            return first.get()
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    private static List<Throwable> concurrently(Closure write) {
+        def executor = Executors.newFixedThreadPool(WRITERS)
+        try {
+            def tasks = (1..WRITERS).collect {
+                { ->
+                    try {
+                        write()
+                        return null
+                    } catch (Exception ex) {
+                        return ex
+                    }
+                } as Callable<Throwable>
+            }
+            return executor.invokeAll(tasks)*.get()
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    private UUID createProperty() {
+        def property = new PropertyEntity(id: UUID.randomUUID(), name: "Optimistic House", address: "Optimistic Street", status: PropertyStatus.ACTIVE)
+        return propertyRepository.save(property).id
+    }
+
+    private static CreateBookingRequest request(UUID propertyId, LocalDate night) {
+        return new CreateBookingRequest(propertyId, night, night.plusDays(1), [new GuestDto("Optimistic", "optimistic@test.com")])
+    }
+}
@@ -0,0 +1,12 @@
+package com.brunozambiazi.bookingsystem
+
+import org.springframework.boot.test.context.SpringBootTest
+
+@SpringBootTest(properties = [
+        "spring.datasource.url=jdbc:h2:mem:optimistic-lock-stress-it;LOCK_TIMEOUT=30000",
+        "booking.lock.strategy=OPTIMISTIC",
+        "booking.lock.retry-attempts=50",
+        AbstractBookingStressIT.PROPERTIES
+])
+class OptimisticLockStressIT extends AbstractBookingStressIT {
+}
@@ -0,0 +1,253 @@
+package com.brunozambiazi.bookingsystem
+
+import com.brunozambiazi.bookingsystem.api.dto.BookingResponse
+import com.brunozambiazi.bookingsystem.api.dto.CreateBlockRequest
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest
+import com.brunozambiazi.bookingsystem.api.dto.GuestDto
+import com.brunozambiazi.bookingsystem.api.dto.UpdateBookingRequest
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity
+import com.brunozambiazi.bookingsystem.domain.model.BlockReason
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyOutboxEvent
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyOutboxEvent.Change
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType
+import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository
+import com.brunozambiazi.bookingsystem.exception.OverlapException
+import com.brunozambiazi.bookingsystem.service.BlockService
+import com.brunozambiazi.bookingsystem.service.BookingService
+import com.fasterxml.jackson.databind.ObjectMapper
+import io.micrometer.core.instrument.MeterRegistry
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.context.ApplicationContext
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.test.context.event.ApplicationEvents
+import org.springframework.test.context.event.RecordApplicationEvents
+import org.springframework.transaction.support.TransactionTemplate
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.LocalDate
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+
+@RecordApplicationEvents
+@SpringBootTest(properties = [
+        "spring.datasource.url=jdbc:h2:mem:outbox-it",
+        "booking.outbox.enabled=true",
+        "booking.outbox.batch-size=2",
+        "booking.outbox.drain-interval=1h",
+        "booking.outbox.gap-timeout=2s",
+        "booking.outbox.file-path=target/outbox-it/events.ndjson"
+])
+class OutboxIT extends Specification {
+
+    private static final Path FILE = Path.of("target/outbox-it/events.ndjson")
+
+    @Autowired
+    private ApplicationContext context
+
+    @Autowired
+    private ApplicationEvents applicationEvents
+
+    @Autowired
+    private BookingService bookingService
+
+    @Autowired
+    private BlockService blockService
+
+    @Autowired
+    private PropertyRepository propertyRepository
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate
+
+    @Autowired
+    private ObjectMapper objectMapper
+
+    @Autowired
+    private MeterRegistry meterRegistry
+
+    @Autowired
+    private TransactionTemplate transactionTemplate
+
+    private final LocalDate base = LocalDate.now().plusYears(1)
+
+    def setup() {
+        drain()
+        Files.createDirectories(FILE.parent)
+        Files.deleteIfExists(FILE)
+    }
+
+    def "should record committed changes only and publish them in order to every sink"() {
+        given:
+        def propertyId = createProperty()
+        def guests = [new GuestDto("Out", "out@test.com")]
+
+        when:
+        def booking = bookingService.createBooking(new CreateBookingRequest(propertyId, base, base.plusDays(2), guests))
+        bookingService.updateBooking(booking.id, new UpdateBookingRequest(base.plusDays(1), base.plusDays(3), guests))
+        bookingService.cancelBooking(booking.id)
+        def block = blockService.createBlock(new CreateBlockRequest(propertyId, base.plusDays(5), base.plusDays(6), BlockReason.MAINTENANCE))
+        bookingService.createBooking(new CreateBookingRequest(propertyId, base.plusDays(5), base.plusDays(7), guests))
+
+        then:
+        thrown(OverlapException)
+        pending() == 4
+
+        when:
+        def published = drain()
+
+        then:
+        published == 4
+        pending() == 0
+
+        and:
+        def events = applicationEvents.stream(OccupancyOutboxEvent).toList()
+        events*.change == [Change.OCCUPIED, Change.MOVED, Change.RELEASED, Change.OCCUPIED]
+        events*.occupancyId == [booking.id, booking.id, booking.id, block.id]
+        events*.type == [OccupancyType.BOOKING, OccupancyType.BOOKING, OccupancyType.BOOKING, OccupancyType.BLOCK]
+        events[1].previous.startAt() == base
+        events[1].current.startAt() == base.plusDays(1)
+        events[2].current == null
+        events*.sequence == events*.sequence.sort()
+
+        and:
+        Files.readAllLines(FILE).collect { objectMapper.readValue(it, OccupancyOutboxEvent) } == events
+
+        and:
+        meterRegistry.get("booking.outbox.lag").timer().count() >= 4
+        meterRegistry.get("booking.outbox.pending.age").gauge().value() == 0
+    }
+
+    def "should keep the events of a failing sink and publish them on the next drain"() {
+        given:
+        Files.delete(FILE.parent)
+        bookingService.createBooking(new CreateBookingRequest(createProperty(), base, base.plusDays(2), [new GuestDto("Out", "out@test.com")]))
+
+        when:
+        def published = drain()
+
+        then:
+        published == 0
+        pending() == 1
+
+        when:
+        Files.createDirectories(FILE.parent)
+        published = drain()
+
+        then:
+        published == 1
+        pending() == 0
+        Files.readAllLines(FILE).size() == 1
+    }
+
+    def "should hold back the events behind an earlier change until it commits"() {
+        given:
+        def guests = [new GuestDto("Out", "out@test.com")]
+        def recorded = new CountDownLatch(1)
+        def commit = new CountDownLatch(1)
+        def executor = Executors.newSingleThreadExecutor()
+
+        when:
+        def earlier = executor.submit({
+            transactionTemplate.execute {
+                def booking = bookingService.createBooking(new CreateBookingRequest(createProperty(), base, base.plusDays(2), guests))
+                recorded.countDown()
+                commit.await()
+                return booking
+            }
+        } as Callable<BookingResponse>)
+        recorded.await()
+        def later = bookingService.createBooking(new CreateBookingRequest(createProperty(), base, base.plusDays(2), guests))
+
+        then:
+        drain() == 0
+        pending() == 1
+
+        when:
+        commit.countDown()
+        def earlierId = earlier.get().id
+        def published = drain()
+
+        then:
+        published == 2
+        applicationEvents.stream(OccupancyOutboxEvent).toList()*.occupancyId == [earlierId, later.id]
+
+        cleanup:
+        executor.shutdown()
+    }
+
+    def "should skip the gap of a rolled back change once the gap timeout passed"() {
+        given:
+        def guests = [new GuestDto("Out", "out@test.com")]
+        transactionTemplate.executeWithoutResult { status ->
+            bookingService.createBooking(new CreateBookingRequest(createProperty(), base, base.plusDays(2), guests))
+            status.setRollbackOnly()
+        }
+        def booking = bookingService.createBooking(new CreateBookingRequest(createProperty(), base, base.plusDays(2), guests))
+
+        expect:
+        drain() == 0
+
+        when:
+        Thread.sleep(2_100)
+
+        then:
+        drain() == 1
+        applicationEvents.stream(OccupancyOutboxEvent).toList()*.occupancyId == [booking.id]
+    }
+
+    def "should publish a change committing after its gap was skipped"() {
+        given:
+        def guests = [new GuestDto("Out", "out@test.com")]
+        def recorded = new CountDownLatch(1)
+        def commit = new CountDownLatch(1)
+        def executor = Executors.newSingleThreadExecutor()
+        def late = executor.submit({
+            transactionTemplate.execute {
+                def booking = bookingService.createBooking(new CreateBookingRequest(createProperty(), base, base.plusDays(2), guests))
+                recorded.countDown()
+                commit.await()
+                return booking
+            }
+        } as Callable<BookingResponse>)
+        recorded.await()
+        def later = bookingService.createBooking(new CreateBookingRequest(createProperty(), base, base.plusDays(2), guests))
+
+        when:
+        Thread.sleep(2_100)
+
+        then:
+        drain() == 1
+
+        when:
+        commit.countDown()
+        def lateId = late.get().id
+        def published = drain()
+
+        then:
+        published == 1
+        pending() == 0
+        applicationEvents.stream(OccupancyOutboxEvent).toList()*.occupancyId == [later.id, lateId]
+        meterRegistry.get("booking.outbox.pending.age").gauge().value() == 0
+
+        cleanup:
+        executor.shutdown()
+    }
+
+    private int drain() {
+        return context.getBean("occupancyOutbox").drain()
+    }
+
+    private int pending() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM occupancy_outbox", Integer)
+    }
+
+    private UUID createProperty() {
+        def property = new PropertyEntity(id: UUID.randomUUID(), name: "Outbox House", address: "Outbox Street", status: PropertyStatus.ACTIVE)
+        return propertyRepository.save(property).id
+    }
+}
@@ -0,0 +1,271 @@
+package com.brunozambiazi.bookingsystem
+
+import com.brunozambiazi.bookingsystem.api.dto.CreateBlockRequest
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest
+import com.brunozambiazi.bookingsystem.api.dto.GuestDto
+import com.brunozambiazi.bookingsystem.api.dto.UpdateBookingRequest
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity
+import com.brunozambiazi.bookingsystem.domain.model.BlockReason
+import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository
+import com.brunozambiazi.bookingsystem.service.BlockService
+import com.brunozambiazi.bookingsystem.service.BookingService
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.context.ApplicationContext
+import org.springframework.test.web.servlet.MockMvc
+import org.springframework.transaction.support.TransactionTemplate
+import spock.lang.Specification
+
+import java.time.LocalDate
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = [
+        "spring.datasource.url=jdbc:h2:mem:property-search-it",
+        "booking.search.mode=BITMAP"
+])
+class PropertySearchIT extends Specification {
+
+    @Autowired
+    private ApplicationContext context
+
+    @Autowired
+    private MockMvc mockMvc
+
+    @Autowired
+    private ObjectMapper objectMapper
+
+    @Autowired
+    private BlockService blockService
+
+    @Autowired
+    private BookingService bookingService
+
+    @Autowired
+    private PropertyRepository propertyRepository
+
+    @Autowired
+    private TransactionTemplate transactionTemplate
+
+    def "bitmap and database searches should page and stream the same properties in the same order"() {
+        given:
+        def startAt = LocalDate.now().plusMonths(6)
+        def endAt = startAt.plusDays(3)
+        def propertyIds = propertyRepository.saveAll((1..40).collect { property(PropertyStatus.ACTIVE) })*.id
+        propertyRepository.save(property(PropertyStatus.INACTIVE))
+        context.getBean("dayBitmapCalendar").rebuild()
+        bookingService.createBooking(new CreateBookingRequest(propertyIds[7], startAt, endAt, [new GuestDto("Search", "search@test.com")]))
+
+        def expected = propertyRepository.findAvailablePage(startAt, endAt, null, 1_000)*.id*.toString()
+
+        when:
+        def paged = []
+        def cursors = 0
+        def after = null
+        while (true) {
+            def request = get("/api/properties").param("startAt", startAt.toString()).param("endAt", endAt.toString()).param("size", "7")
+            if (after) {
+                request.param("after", after)
+            }
+            def response = mockMvc.perform(request).andExpect(status().isOk()).andReturn().response
+            paged.addAll(objectMapper.readTree(response.contentAsString)*.get("id")*.asText())
+
+            after = response.getHeader("X-Next-Cursor")
+            if (!after) {
+                break
+            }
+            cursors++
+        }
+
+        and:
+        def asyncResult = mockMvc.perform(get("/api/properties/stream").param("startAt", startAt.toString()).param("endAt", endAt.toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn()
+        def streamed = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andReturn().response.contentAsString
+                .readLines()
+                .collect { objectMapper.readTree(it).get("id").asText() }
+
+        then:
+        !expected.contains(propertyIds[7].toString())
+        expected.containsAll((propertyIds - propertyIds[7])*.toString())
+        paged == expected
+        cursors == (int) ((expected.size() - 1) / 7)
+        streamed == expected
+    }
+
+    def "should return the calendar of a property from one ordered query"() {
+        given:
+        def startAt = LocalDate.now().plusMonths(8)
+        def propertyId = propertyRepository.save(property(PropertyStatus.ACTIVE)).id
+        [[2, 4], [4, 6], [10, 12]].each { nights ->
+            bookingService.createBooking(new CreateBookingRequest(propertyId, startAt.plusDays(nights[0]), startAt.plusDays(nights[1]), [new GuestDto("Calendar", "calendar@test.com")]))
+        }
+        blockService.createBlock(new CreateBlockRequest(propertyId, startAt.plusDays(6), startAt.plusDays(7), BlockReason.MAINTENANCE))
+
+        expect:
+        mockMvc.perform(get("/api/properties/" + propertyId + "/calendar").param("from", startAt.toString()).param("to", startAt.plusDays(14).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath('$.runs[*].type').value(["FREE", "BOOKING", "BLOCK", "FREE", "BOOKING", "FREE"]))
+                .andExpect(jsonPath('$.runs[1].startAt').value(startAt.plusDays(2).toString()))
+                .andExpect(jsonPath('$.runs[1].endAt').value(startAt.plusDays(6).toString()))
+                .andExpect(jsonPath('$.runs[5].endAt').value(startAt.plusDays(14).toString()))
+    }
+
+    def "should answer not found for the calendar of an unknown property"() {
+        given:
+        def startAt = LocalDate.now().plusMonths(8)
+
+        expect:
+        mockMvc.perform(get("/api/properties/" + UUID.randomUUID() + "/calendar").param("from", startAt.toString()).param("to", startAt.plusDays(1).toString()))
+                .andExpect(status().isNotFound())
+    }
+
+    def "should not answer a cached search after an overlapping block"() {
+        given:
+        def startAt = LocalDate.now().plusMonths(9)
+        def propertyId = propertyRepository.save(property(PropertyStatus.ACTIVE)).id
+        context.getBean("dayBitmapCalendar").rebuild()
+        def search = get("/api/properties").param("startAt", startAt.toString()).param("endAt", startAt.plusDays(2).toString())
+        def availableIds = { objectMapper.readTree(mockMvc.perform(search).andReturn().response.contentAsString)*.get("id")*.asText() }
+
+        expect:
+        propertyId.toString() in availableIds()
+        propertyId.toString() in availableIds()
+
+        when:
+        blockService.createBlock(new CreateBlockRequest(propertyId, startAt.plusDays(1), startAt.plusDays(5), BlockReason.MAINTENANCE))
+
+        then:
+        !(propertyId.toString() in availableIds())
+    }
+
+    def "should return the feasible start dates of a flexible stay per property"() {
+        given:
+        def startAt = LocalDate.now().plusMonths(10)
+        def propertyIds = propertyRepository.saveAll((1..3).collect { property(PropertyStatus.ACTIVE) })*.id
+        bookingService.createBooking(new CreateBookingRequest(propertyIds[0], startAt.plusDays(3), startAt.plusDays(5), [new GuestDto("Flexible", "flexible@test.com")]))
+        blockService.createBlock(new CreateBlockRequest(propertyIds[0], startAt.plusDays(8), startAt.plusDays(9), BlockReason.OWNER_USE))
+        blockService.createBlock(new CreateBlockRequest(propertyIds[1], startAt.plusDays(1), startAt.plusDays(12), BlockReason.MAINTENANCE))
+
+        when:
+        def response = mockMvc.perform(get("/api/properties/flexible")
+                .param("startAt", startAt.toString())
+                .param("flexibility", "7")
+                .param("nights", "3"))
+                .andExpect(status().isOk())
+                .andReturn().response.contentAsString
+        def startsById = objectMapper.readTree(response).collectEntries {
+            [(it.get("property").get("id").asText()): it.get("startDates")*.asText().collect { LocalDate.parse(it).toEpochDay() - startAt.toEpochDay() }]
+        }
+
+        then:
+        startsById[propertyIds[0].toString()] == [0L, 5L]
+        !startsById.containsKey(propertyIds[1].toString())
+        startsById[propertyIds[2].toString()] == (0L..7L).toList()
+    }
+
+    def "should find the next free gaps of a property and the properties with a long enough gap"() {
+        given:
+        def startAt = LocalDate.now().plusMonths(11)
+        def propertyIds = propertyRepository.saveAll((1..2).collect { property(PropertyStatus.ACTIVE) })*.id
+        [[0, 2], [3, 5], [5, 6], [9, 12]].each { nights ->
+            bookingService.createBooking(new CreateBookingRequest(propertyIds[0], startAt.plusDays(nights[0]), startAt.plusDays(nights[1]), [new GuestDto("Gap", "gap@test.com")]))
+        }
+        blockService.createBlock(new CreateBlockRequest(propertyIds[1], startAt, startAt.plusDays(20), BlockReason.MAINTENANCE))
+
+        expect:
+        mockMvc.perform(get("/api/properties/" + propertyIds[0] + "/gaps")
+                .param("nights", "2")
+                .param("from", startAt.toString())
+                .param("count", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath('$[*].startAt').value([startAt.plusDays(6).toString(), startAt.plusDays(12).toString()]))
+                .andExpect(jsonPath('$[0].nights').value(3))
+                .andExpect(jsonPath('$[1].endAt').value(startAt.plusDays(730).toString()))
+
+        when:
+        def response = mockMvc.perform(get("/api/properties/gaps")
+                .param("from", startAt.toString())
+                .param("to", startAt.plusDays(14).toString())
+                .param("nights", "3"))
+                .andExpect(status().isOk())
+                .andReturn().response.contentAsString
+        def gapsById = objectMapper.readTree(response).collectEntries { [(it.get("property").get("id").asText()): it.get("gaps")*.get("startAt")*.asText()] }
+
+        then:
+        gapsById[propertyIds[0].toString()] == [startAt.plusDays(6).toString()]
+        !gapsById.containsKey(propertyIds[1].toString())
+    }
+
+    def "bitmap search should see created and deactivated properties without waiting for the rebuild"() {
+        given:
+        def startAt = LocalDate.now().plusMonths(7)
+        def search = get("/api/properties").param("startAt", startAt.toString()).param("endAt", startAt.plusDays(2).toString()).param("size", "1000")
+        def availableIds = { objectMapper.readTree(mockMvc.perform(search).andReturn().response.contentAsString)*.get("id")*.asText() }
+
+        when:
+        def property = propertyRepository.save(property(PropertyStatus.ACTIVE))
+
+        then:
+        property.id.toString() in availableIds()
+
+        when:
+        def stored = propertyRepository.findById(property.id).get()
+        stored.status = PropertyStatus.INACTIVE
+        propertyRepository.save(stored)
+
+        then:
+        !(property.id.toString() in availableIds())
+    }
+
+    def "bitmap search should see the days of a rolled back change free again"() {
+        given:
+        def startAt = LocalDate.now().plusMonths(8)
+        def propertyId = propertyRepository.save(property(PropertyStatus.ACTIVE)).id
+        def guests = [new GuestDto("Rollback", "rollback@test.com")]
+        def booking = bookingService.createBooking(new CreateBookingRequest(propertyId, startAt, startAt.plusDays(3), guests))
+        def available = { int from, int to ->
+            def search = get("/api/properties").param("startAt", startAt.plusDays(from).toString())
+                    .param("endAt", startAt.plusDays(to).toString()).param("size", "1000")
+            return propertyId.toString() in objectMapper.readTree(mockMvc.perform(search).andReturn().response.contentAsString)*.get("id")*.asText()
+        }
+
+        when:
+        transactionTemplate.executeWithoutResult { status ->
+            bookingService.updateBooking(booking.id, new UpdateBookingRequest(startAt.plusDays(10), startAt.plusDays(13), guests))
+            bookingService.createBooking(new CreateBookingRequest(propertyId, startAt.plusDays(20), startAt.plusDays(22), guests))
+            status.setRollbackOnly()
+        }
+
+        then:
+        !available(0, 3)
+        available(10, 13)
+        available(20, 22)
+    }
+
+    def "should reject invalid page sizes"() {
+        given:
+        def startAt = LocalDate.now().plusMonths(6)
+
+        expect:
+        mockMvc.perform(get("/api/properties").param("startAt", startAt.toString()).param("endAt", startAt.plusDays(1).toString()).param("size", size))
+                .andExpect(status().isBadRequest())
+
+        where:
+        size << ["0", "1001"]
+    }
+
+    private static PropertyEntity property(PropertyStatus status) {
+        return new PropertyEntity(id: UUID.randomUUID(), name: "Search House", address: "Search Street", status: status)
+    }
+}
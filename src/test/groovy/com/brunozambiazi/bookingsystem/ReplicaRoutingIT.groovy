@@ -0,0 +1,184 @@
+package com.brunozambiazi.bookingsystem
+
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest
+import com.brunozambiazi.bookingsystem.api.dto.GuestDto
+import com.fasterxml.jackson.databind.ObjectMapper
+import io.micrometer.core.instrument.MeterRegistry
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Qualifier
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.context.ApplicationContext
+import org.springframework.core.io.ClassPathResource
+import org.springframework.http.MediaType
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.jdbc.datasource.DataSourceTransactionManager
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator
+import org.springframework.test.web.servlet.MockMvc
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder
+import org.springframework.transaction.support.TransactionTemplate
+import spock.lang.Specification
+
+import javax.sql.DataSource
+import java.time.LocalDate
+import java.time.LocalDateTime
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = [
+        "spring.datasource.url=jdbc:h2:mem:replica-routing-it",
+        "booking.replica.enabled=true",
+        "booking.replica.url=jdbc:h2:mem:replica-routing-it-replica",
+        "booking.replica.heartbeat-interval=1h",
+        "booking.replica.max-staleness=5s",
+        "booking.replica.read-your-writes=10s"
+])
+class ReplicaRoutingIT extends Specification {
+
+    private static final String PIN_COOKIE = "booking-primary-until"
+
+    @Autowired
+    private ApplicationContext context
+
+    @Autowired
+    private MockMvc mockMvc
+
+    @Autowired
+    private ObjectMapper objectMapper
+
+    @Autowired
+    private MeterRegistry meterRegistry
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource
+
+    protected JdbcTemplate primary
+    private JdbcTemplate replica
+    private TransactionTemplate primaryTransaction
+
+    def setup() {
+        primary = new JdbcTemplate(primaryDataSource)
+        primaryTransaction = new TransactionTemplate(new DataSourceTransactionManager(primaryDataSource))
+        replica = new JdbcTemplate(replicaDataSource)
+        if (!replica.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'BOOKINGS'", Integer)) {
+            new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(replicaDataSource)
+        }
+    }
+
+    def "should read from the replica while it is fresh and from the primary once it lags behind"() {
+        given:
+        def propertyId = primaryTransaction.execute { insertProperty(primary) }
+        insertProperty(replica, propertyId)
+        def bookingId = insertBooking(replica, propertyId)
+        replicate()
+        def replicaReads = reads("replica")
+
+        expect:
+        mockMvc.perform(get("/api/bookings/{id}", bookingId)).andExpect(status().isOk())
+        reads("replica") == replicaReads + 1
+
+        when:
+        replica.update("UPDATE replica_heartbeat SET beat_at = ?", LocalDateTime.now().minusMinutes(1))
+        beat()
+
+        then:
+        mockMvc.perform(get("/api/bookings/{id}", bookingId)).andExpect(status().isNotFound())
+        meterRegistry.get("booking.replica.lag").gauge().value() >= 60
+    }
+
+    def "should pin the reads of a client to the primary right after its own write"() {
+        given:
+        def propertyId = primaryTransaction.execute { insertProperty(primary) }
+        insertProperty(replica, propertyId)
+        replicate()
+
+        when:
+        def startAt = LocalDate.now().plusYears(1)
+        def created = mockMvc.perform(post("/api/bookings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new CreateBookingRequest(propertyId, startAt, startAt.plusDays(2),
+                        [new GuestDto("Replica", "replica@test.com")]))))
+                .andExpect(status().isCreated())
+                .andReturn().response
+        def bookingId = objectMapper.readTree(created.contentAsString).get("id").asText()
+        def pin = created.getCookie(PIN_COOKIE)
+
+        then:
+        pin != null
+        mockMvc.perform(get("/api/bookings/{id}", bookingId).cookie(pin)).andExpect(status().isOk())
+        mockMvc.perform(get("/api/bookings/{id}", bookingId)).andExpect(status().isNotFound())
+    }
+
+    def "should pin a streamed search to the primary right after a write"() {
+        given:
+        def propertyId = primaryTransaction.execute { insertProperty(primary) }
+        insertProperty(replica, propertyId)
+        replicate()
+        def startAt = LocalDate.now().plusYears(2)
+        def pin = mockMvc.perform(post("/api/bookings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new CreateBookingRequest(propertyId, startAt, startAt.plusDays(2),
+                        [new GuestDto("Replica", "replica@test.com")]))))
+                .andExpect(status().isCreated())
+                .andReturn().response.getCookie(PIN_COOKIE)
+        def search = get("/api/properties/stream").param("startAt", startAt.toString()).param("endAt", startAt.plusDays(2).toString())
+
+        expect:
+        !(propertyId.toString() in streamed(search.cookie(pin)))
+        propertyId.toString() in streamed(get("/api/properties/stream").param("startAt", startAt.toString()).param("endAt", startAt.plusDays(2).toString()))
+    }
+
+    private List<String> streamed(MockHttpServletRequestBuilder search) {
+        def started = mockMvc.perform(search).andExpect(request().asyncStarted()).andReturn()
+        def body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().response.contentAsString
+
+        def ids = []
+        for (line in body.readLines()) {
+            ids << objectMapper.readTree(line).get("id").asText()
+        }
+        return ids
+    }
+
+    /** Copies the primary heartbeat to the replica and measures the lag again, as if the replica had caught up. */
+    private void replicate() {
+        beat()
+        def beatAt = primary.queryForObject("SELECT beat_at FROM replica_heartbeat WHERE id = 1", LocalDateTime)
+        replica.update("MERGE INTO replica_heartbeat (id, beat_at) KEY (id) VALUES (1, ?)", beatAt)
+        beat()
+    }
+
+    private void beat() {
+        context.getBean("replicaLagMonitor").beat()
+    }
+
+    private double reads(String target) {
+        return meterRegistry.get("booking.replica.reads").tag("target", target).counter().count()
+    }
+
+    protected static UUID insertProperty(JdbcTemplate jdbcTemplate, UUID id = UUID.randomUUID()) {
+        jdbcTemplate.update("INSERT INTO properties (id, name, address, status) VALUES (?, 'Replica House', 'Replica Street', 'ACTIVE')", id)
+        return id
+    }
+
+    private static UUID insertBooking(JdbcTemplate jdbcTemplate, UUID propertyId) {
+        def id = UUID.randomUUID()
+        def startAt = LocalDate.now().plusYears(1)
+        jdbcTemplate.update("""
+                INSERT INTO bookings (id, property_id, start_at, end_at, guests, status)
+                VALUES (?, ?, ?, ?, '[{"name":"Replica","email":"replica@test.com"}]' FORMAT JSON, 'ACTIVE')
+                """, id, propertyId, startAt, startAt.plusDays(2))
+        return id
+    }
+}
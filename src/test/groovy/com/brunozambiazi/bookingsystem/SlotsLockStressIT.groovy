@@ -0,0 +1,12 @@
+package com.brunozambiazi.bookingsystem
+
+import org.springframework.boot.test.context.SpringBootTest
+
+@SpringBootTest(properties = [
+        "spring.datasource.url=jdbc:h2:mem:slots-lock-stress-it;LOCK_TIMEOUT=30000",
+        "booking.lock.strategy=NONE",
+        "booking.availability.write-mode=SLOTS",
+        AbstractBookingStressIT.PROPERTIES
+])
+class SlotsLockStressIT extends AbstractBookingStressIT {
+}
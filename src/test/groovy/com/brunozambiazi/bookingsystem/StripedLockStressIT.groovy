@@ -0,0 +1,11 @@
+package com.brunozambiazi.bookingsystem
+
+import org.springframework.boot.test.context.SpringBootTest
+
+@SpringBootTest(properties = [
+        "spring.datasource.url=jdbc:h2:mem:striped-lock-stress-it;LOCK_TIMEOUT=30000",
+        "booking.lock.strategy=STRIPED",
+        AbstractBookingStressIT.PROPERTIES
+])
+class StripedLockStressIT extends AbstractBookingStressIT {
+}
@@ -0,0 +1,123 @@
+package com.brunozambiazi.bookingsystem
+
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest
+import com.brunozambiazi.bookingsystem.api.dto.GuestDto
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity
+import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository
+import com.brunozambiazi.bookingsystem.exception.CustomException
+import com.brunozambiazi.bookingsystem.service.BookingService
+import jdk.jfr.consumer.RecordingStream
+import org.apache.tomcat.util.threads.VirtualThreadExecutor
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.boot.test.web.client.TestRestTemplate
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext
+import org.springframework.context.ApplicationContext
+import org.springframework.core.task.AsyncTaskExecutor
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.test.context.ActiveProfiles
+import spock.lang.Specification
+
+import java.time.Duration
+import java.time.LocalDate
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.Executors
+
+/**
+ * Runs the application with the {@code virtual-threads} profile and records {@code jdk.VirtualThreadPinned} events
+ * while many virtual threads write to a few hot properties and the bitmap calendar is rebuilt, so a
+ * {@code synchronized} block or native frame on the lock or JDBC path fails the build instead of silently capping
+ * throughput at the number of carrier threads.
+ */
+@ActiveProfiles("virtual-threads")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = [
+        "spring.datasource.url=jdbc:h2:mem:virtual-threads-it;LOCK_TIMEOUT=30000",
+        "booking.search.mode=BITMAP"
+])
+class VirtualThreadsIT extends Specification {
+
+    @Autowired
+    private ApplicationContext context
+
+    @Autowired
+    private TestRestTemplate restTemplate
+
+    @Autowired
+    private BookingService bookingService
+
+    @Autowired
+    private PropertyRepository propertyRepository
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate
+
+    def "should serve requests and async work on virtual threads"() {
+        given:
+        def tomcat = ((ServletWebServerApplicationContext) context).webServer.tomcat
+        def taskExecutor = context.getBean("applicationTaskExecutor", AsyncTaskExecutor)
+
+        expect:
+        tomcat.connector.protocolHandler.executor instanceof VirtualThreadExecutor
+        taskExecutor.submit({ Thread.currentThread().virtual } as Callable<Boolean>).get()
+    }
+
+    def "should commit the seed data despite auto-commit being disabled"() {
+        when:
+        def startAt = LocalDate.now().plusYears(3)
+        def response = restTemplate.getForEntity("/api/properties/bdad3baf-f65d-41eb-a190-677679dec204/calendar?from={from}&to={to}",
+                String, startAt, startAt.plusDays(7))
+
+        then:
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM properties", Integer) > 0
+        response.statusCode.is2xxSuccessful()
+    }
+
+    def "should not pin carrier threads while creating bookings"() {
+        given:
+        def propertyIds = (1..4).collect { createProperty() }
+        context.getBean("dayBitmapCalendar").rebuild()
+        def base = LocalDate.now().plusYears(1)
+        def pinned = new ConcurrentLinkedQueue<String>()
+        def failures = new ConcurrentLinkedQueue<Throwable>()
+
+        and:
+        def recording = new RecordingStream()
+        recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace()
+        recording.onEvent("jdk.VirtualThreadPinned") { pinned << it.stackTrace?.frames?.take(8)?.join("\n") }
+        recording.startAsync()
+
+        when:
+        def executor = Executors.newVirtualThreadPerTaskExecutor()
+        try {
+            (0..<400).each { i ->
+                executor.submit {
+                    try {
+                        def startAt = base.plusDays(i.intdiv(propertyIds.size()) % 60)
+                        bookingService.createBooking(new CreateBookingRequest(propertyIds[i % propertyIds.size()], startAt, startAt.plusDays(1),
+                                [new GuestDto("Virtual", "virtual@test.com")]))
+                    } catch (CustomException ignored) {
+                        // overlaps are expected once the nights wrap around
+                    } catch (Throwable ex) {
+                        failures << ex
+                    }
+                }
+            }
+            executor.submit { context.getBean("dayBitmapCalendar").rebuild() }
+        } finally {
+            executor.close()
+            recording.stop()
+            recording.close()
+        }
+
+        then:
+        failures.isEmpty()
+        pinned.isEmpty()
+    }
+
+    private UUID createProperty() {
+        def property = new PropertyEntity(id: UUID.randomUUID(), name: "Virtual House", address: "Virtual Street", status: PropertyStatus.ACTIVE)
+        return propertyRepository.save(property).id
+    }
+}
@@ -0,0 +1,20 @@
+package com.brunozambiazi.bookingsystem
+
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.test.context.ActiveProfiles
+
+/**
+ * Runs the replica routing cases with the {@code virtual-threads} profile, whose primary pool hands out connections
+ * without auto-commit, so the heartbeat and every other write on the primary pool has to commit explicitly.
+ */
+@ActiveProfiles("virtual-threads")
+@SpringBootTest(properties = [
+        "spring.datasource.url=jdbc:h2:mem:virtual-threads-replica-routing-it",
+        "booking.replica.enabled=true",
+        "booking.replica.url=jdbc:h2:mem:virtual-threads-replica-routing-it-replica",
+        "booking.replica.heartbeat-interval=1h",
+        "booking.replica.max-staleness=5s",
+        "booking.replica.read-your-writes=10s"
+])
+class VirtualThreadsReplicaRoutingIT extends ReplicaRoutingIT {
+}
@@ -0,0 +1,217 @@
+package com.brunozambiazi.bookingsystem.service
+
+import com.brunozambiazi.bookingsystem.api.dto.PropertyResponse
+import com.brunozambiazi.bookingsystem.datasource.ReplicaProperties
+import com.brunozambiazi.bookingsystem.domain.model.DateRange
+import com.brunozambiazi.bookingsystem.domain.model.Occupancy
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType
+import com.brunozambiazi.bookingsystem.domain.model.PropertyChangedEvent
+import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus
+import com.brunozambiazi.bookingsystem.service.PropertySearchProperties.SearchMode
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.transaction.support.TransactionSynchronization
+import org.springframework.transaction.support.TransactionSynchronizationManager
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.time.Duration
+import java.time.LocalDate
+
+class AvailabilitySearchCacheSpec extends Specification {
+
+    def meterRegistry = new SimpleMeterRegistry()
+
+    @Subject
+    def cache = newCache(Duration.ZERO)
+
+    def today = LocalDate.now()
+    def searches = 0
+
+    def "should answer repeated searches from the cache"() {
+        given:
+        def period = range(0, 2)
+
+        when:
+        def first = search(period)
+        def second = search(period)
+
+        then:
+        searches == 1
+        second.is(first)
+        meterRegistry.get("cache.gets").tag("cache", "availabilitySearch").tag("result", "hit").functionCounter().count() == 1
+    }
+
+    def "should only evict the periods overlapping the changed occupancy"() {
+        given:
+        def weekend = range(5, 7)
+        def nextWeekend = range(12, 14)
+        search(weekend)
+        search(nextWeekend)
+
+        when:
+        cache.onOccupancyChanged(new OccupancyChangedEvent(null, booking(6, 9)))
+        search(weekend)
+        search(nextWeekend)
+
+        then:
+        searches == 3
+    }
+
+    def "should evict the previous period of a moved occupancy"() {
+        given:
+        def weekend = range(5, 7)
+        def previous = booking(5, 6)
+        search(weekend)
+
+        when:
+        cache.onOccupancyChanged(new OccupancyChangedEvent(previous, new Occupancy(previous.id(), previous.propertyId(), OccupancyType.BOOKING, range(20, 22))))
+        search(weekend)
+
+        then:
+        searches == 2
+    }
+
+    def "should evict everything when a property changes"() {
+        given:
+        search(range(0, 1))
+        search(range(100, 101))
+
+        when:
+        cache.onPropertyChanged(new PropertyChangedEvent(UUID.randomUUID()))
+        search(range(0, 1))
+        search(range(100, 101))
+
+        then:
+        searches == 4
+    }
+
+    def "should evict again once the writing transaction completes"() {
+        given:
+        def period = range(0, 3)
+
+        when:
+        def synchronizations = inTransaction { cache.onOccupancyChanged(new OccupancyChangedEvent(null, booking(1, 2))) }
+        search(period)
+        synchronizations*.afterCompletion(TransactionSynchronization.STATUS_COMMITTED)
+        search(period)
+
+        then:
+        searches == 2
+    }
+
+    def "should not keep a result computed while an overlapping change was published"() {
+        given:
+        def period = range(0, 3)
+
+        when:
+        cache.get(period) {
+            searches++
+            cache.onOccupancyChanged(new OccupancyChangedEvent(null, booking(1, 2)))
+            return [response()]
+        }
+        search(period)
+
+        then:
+        searches == 2
+    }
+
+    def "should not keep results searched on a replica that may not show the last change yet"() {
+        given:
+        cache = newCache(Duration.ofMinutes(1))
+        def period = range(0, 3)
+        search(period)
+        search(period)
+
+        when:
+        cache.onOccupancyChanged(new OccupancyChangedEvent(null, booking(1, 2)))
+        search(period)
+        search(period)
+
+        then:
+        searches == 3
+    }
+
+    def "should change the revision of a period only with changes touching its nights"() {
+        given:
+        def weekend = range(5, 7)
+        def nextWeekend = range(12, 14)
+        def weekendRevision = cache.revision(weekend).get()
+        def nextWeekendRevision = cache.revision(nextWeekend).get()
+
+        when:
+        cache.onOccupancyChanged(new OccupancyChangedEvent(booking(12, 13), booking(6, 7)))
+
+        then:
+        cache.revision(weekend).get() != weekendRevision
+        cache.revision(nextWeekend).get() != nextWeekendRevision
+        cache.revision(range(7, 12)).get() == cache.revision(range(20, 21)).get()
+
+        when:
+        def revision = cache.revision(weekend).get()
+        cache.onPropertyChanged(new PropertyChangedEvent(UUID.randomUUID()))
+
+        then:
+        cache.revision(weekend).get() != revision
+    }
+
+    def "should not tell a revision while searches may read a replica not showing the last change"() {
+        given:
+        cache = newCache(Duration.ofMinutes(1))
+
+        expect:
+        cache.revision(range(0, 3)).present
+
+        when:
+        cache.onOccupancyChanged(new OccupancyChangedEvent(null, booking(1, 2)))
+
+        then:
+        cache.revision(range(0, 3)).empty
+    }
+
+    def "should neither cache nor tell revisions with a zero TTL"() {
+        given:
+        cache = newCache(Duration.ZERO, Duration.ZERO)
+
+        when:
+        search(range(0, 3))
+        search(range(0, 3))
+
+        then:
+        searches == 2
+        cache.revision(range(0, 3)).empty
+    }
+
+    private AvailabilitySearchCache newCache(Duration replicaStaleness, Duration ttl = Duration.ofMinutes(10)) {
+        def replica = new ReplicaProperties(!replicaStaleness.isZero(), null, null, null, 10, replicaStaleness, Duration.ofSeconds(10))
+        return new AvailabilitySearchCache(new PropertySearchProperties(SearchMode.DATABASE, 730, 100, ttl), replica, meterRegistry)
+    }
+
+    private List<PropertyResponse> search(DateRange period) {
+        return cache.get(period) {
+            searches++
+            return [response()]
+        }
+    }
+
+    private static PropertyResponse response() {
+        return new PropertyResponse(UUID.randomUUID(), "Cached House", "Cached Street", PropertyStatus.ACTIVE, null, null)
+    }
+
+    private Occupancy booking(int from, int to) {
+        return new Occupancy(UUID.randomUUID(), UUID.randomUUID(), OccupancyType.BOOKING, range(from, to))
+    }
+
+    private DateRange range(int from, int to) {
+        return new DateRange(today.plusDays(from), today.plusDays(to))
+    }
+
+    private List<TransactionSynchronization> inTransaction(Closure work) {
+        TransactionSynchronizationManager.initSynchronization()
+        try {
+            work()
+            return TransactionSynchronizationManager.getSynchronizations()
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization()
+        }
+    }
+}
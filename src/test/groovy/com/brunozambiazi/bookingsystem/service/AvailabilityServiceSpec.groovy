@@ -1,11 +1,21 @@
 package com.brunozambiazi.bookingsystem.service
 
+import com.brunozambiazi.bookingsystem.api.dto.AvailabilityCheckItem
 import com.brunozambiazi.bookingsystem.domain.entity.BlockEntity
 import com.brunozambiazi.bookingsystem.domain.entity.BookingEntity
 import com.brunozambiazi.bookingsystem.domain.model.DateRange
 import com.brunozambiazi.bookingsystem.domain.repository.BlockRepository
 import com.brunozambiazi.bookingsystem.domain.repository.BookingRepository
+import com.brunozambiazi.bookingsystem.domain.repository.OccupancyView
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType
 import com.brunozambiazi.bookingsystem.exception.OverlapException
+import com.brunozambiazi.bookingsystem.service.AvailabilityProperties.OverlapMode
+import com.brunozambiazi.bookingsystem.service.AvailabilityProperties.WriteMode
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import io.micrometer.observation.ObservationRegistry
+import org.springframework.jdbc.core.JdbcTemplate
 import spock.lang.Specification
 import spock.lang.Subject
 
@@ -13,11 +23,19 @@ import java.time.LocalDate
 
 class AvailabilityServiceSpec extends Specification {
 
+    def properties = new AvailabilityProperties(OverlapMode.DATABASE, WriteMode.CHECKED)
     def bookingRepository = Mock(BookingRepository)
     def blockRepository = Mock(BlockRepository)
+    def jdbcTemplate = Mock(JdbcTemplate)
+    def meterRegistry = new SimpleMeterRegistry()
+    def observationRegistry = ObservationRegistry.create().tap {
+        observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry))
+    }
+    def occupancyIndex = Mock(OccupancyIndex)
+    def propertyRepository = Mock(PropertyRepository)
 
     @Subject
-    def service = new AvailabilityService(bookingRepository, blockRepository)
+    def service = new AvailabilityService(properties, bookingRepository, blockRepository, jdbcTemplate, meterRegistry, observationRegistry, occupancyIndex, propertyRepository)
 
     def "checkOverlap for block should not throw exception when no overlap"() {
         given:
@@ -94,4 +112,108 @@ class AvailabilityServiceSpec extends Specification {
         then:
         thrown(OverlapException)
     }
+
+    def "checkOverlap should time each query and count conflicts"() {
+        given:
+        def booking = new BookingEntity(id: UUID.randomUUID(), propertyId: UUID.randomUUID(), period: new DateRange(LocalDate.now(), LocalDate.now().plusDays(1)))
+        blockRepository.overlapOtherBlock(null, booking.getPropertyId(), booking.getPeriod().startAt(), booking.getPeriod().endAt()) >> false
+        bookingRepository.overlapOtherBooking(booking.getId(), booking.getPropertyId(), booking.getPeriod().startAt(), booking.getPeriod().endAt()) >> true
+
+        when:
+        service.checkOverlap(booking)
+
+        then:
+        thrown(OverlapException)
+        meterRegistry.get(AvailabilityService.OVERLAP_QUERY_METER).tags("type", "booking", "query", "block").timer().count() == 1
+        meterRegistry.get(AvailabilityService.OVERLAP_QUERY_METER).tags("type", "booking", "query", "booking").timer().count() == 1
+        meterRegistry.get(AvailabilityService.OVERLAP_CHECK_METER).tags("type", "booking", "error", "OverlapException").timer().count() == 1
+        meterRegistry.get(AvailabilityService.OVERLAP_CONFLICTS_METER).tags("type", "booking", "scope", "single").counter().count() == 1
+    }
+
+    def "checkOverlap for booking should answer from the index when in index mode"() {
+        given:
+        def indexService = new AvailabilityService(new AvailabilityProperties(OverlapMode.INDEX, WriteMode.CHECKED), bookingRepository, blockRepository, jdbcTemplate, meterRegistry, observationRegistry, occupancyIndex, propertyRepository)
+        def booking = new BookingEntity(id: UUID.randomUUID(), propertyId: UUID.randomUUID(), period: new DateRange(LocalDate.now(), LocalDate.now().plusDays(1)))
+        occupancyIndex.isReady() >> true
+
+        when:
+        indexService.checkOverlap(booking)
+
+        then:
+        1 * occupancyIndex.findOverlap(booking.getPropertyId(), booking.getPeriod(), booking.getId()) >> Optional.of(OccupancyType.BOOKING)
+        0 * blockRepository._
+        0 * bookingRepository._
+        thrown(OverlapException)
+    }
+
+    def "checkOverlap for block should fall back to the database when index is not ready"() {
+        given:
+        def indexService = new AvailabilityService(new AvailabilityProperties(OverlapMode.INDEX, WriteMode.CHECKED), bookingRepository, blockRepository, jdbcTemplate, meterRegistry, observationRegistry, occupancyIndex, propertyRepository)
+        def block = new BlockEntity(id: UUID.randomUUID(), propertyId: UUID.randomUUID(), period: new DateRange(LocalDate.now(), LocalDate.now().plusDays(1)))
+        occupancyIndex.isReady() >> false
+
+        when:
+        indexService.checkOverlap(block)
+
+        then:
+        0 * occupancyIndex.findOverlap(*_)
+        1 * blockRepository.overlapOtherBlock(block.getId(), block.getPropertyId(), block.getPeriod().startAt(), block.getPeriod().endAt()) >> false
+        1 * bookingRepository.overlapOtherBooking(null, block.getPropertyId(), block.getPeriod().startAt(), block.getPeriod().endAt()) >> false
+        noExceptionThrown()
+    }
+
+    def "checkOverlap for booking should trust the database when in verify mode"() {
+        given:
+        def verifyService = new AvailabilityService(new AvailabilityProperties(OverlapMode.VERIFY, WriteMode.CHECKED), bookingRepository, blockRepository, jdbcTemplate, meterRegistry, observationRegistry, occupancyIndex, propertyRepository)
+        def booking = new BookingEntity(id: UUID.randomUUID(), propertyId: UUID.randomUUID(), period: new DateRange(LocalDate.now(), LocalDate.now().plusDays(1)))
+        occupancyIndex.isReady() >> true
+        occupancyIndex.findOverlap(booking.getPropertyId(), booking.getPeriod(), booking.getId()) >> Optional.empty()
+        blockRepository.overlapOtherBlock(null, booking.getPropertyId(), booking.getPeriod().startAt(), booking.getPeriod().endAt()) >> true
+
+        when:
+        verifyService.checkOverlap(booking)
+
+        then:
+        thrown(OverlapException)
+    }
+
+    def "loadCalendars should load every property calendar with a single query"() {
+        given:
+        def propertyId = UUID.randomUUID()
+        def emptyPropertyId = UUID.randomUUID()
+        def window = new DateRange(LocalDate.now(), LocalDate.now().plusDays(30))
+        def blocked = new DateRange(LocalDate.now().plusDays(5), LocalDate.now().plusDays(10))
+
+        when:
+        def calendars = service.loadCalendars([propertyId, emptyPropertyId], window)
+
+        then:
+        1 * propertyRepository.findAllOccupancies([propertyId, emptyPropertyId], window.startAt(), window.endAt()) >> [view(propertyId, OccupancyType.BLOCK, blocked)]
+        calendars[propertyId].findOverlap(new DateRange(LocalDate.now().plusDays(9), LocalDate.now().plusDays(12))) == Optional.of(OccupancyType.BLOCK)
+        calendars[propertyId].findOverlap(new DateRange(LocalDate.now().plusDays(10), LocalDate.now().plusDays(12))) == Optional.empty()
+        calendars[emptyPropertyId].findOverlap(window) == Optional.empty()
+    }
+
+    def "checkAvailable should answer the checks in order with one query per chunk"() {
+        given:
+        def checks = (0..<1_201).collect { new AvailabilityCheckItem(UUID.randomUUID(), LocalDate.now(), LocalDate.now().plusDays(2)) }
+
+        when:
+        def available = service.checkAvailable(checks)
+
+        then:
+        3 * jdbcTemplate.queryForList(*_) >> [0, 499] >> [] >> [1_200]
+        available.size() == 1_201
+        available.findIndexValues { it } == [0, 499, 1_200]
+    }
+
+    private static OccupancyView view(UUID propertyId, OccupancyType type, DateRange period) {
+        return new OccupancyView() {
+            UUID getId() { UUID.randomUUID() }
+            UUID getPropertyId() { propertyId }
+            OccupancyType getType() { type }
+            LocalDate getStartAt() { period.startAt() }
+            LocalDate getEndAt() { period.endAt() }
+        }
+    }
 }
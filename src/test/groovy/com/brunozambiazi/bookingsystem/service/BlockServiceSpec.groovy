@@ -1,14 +1,18 @@
 package com.brunozambiazi.bookingsystem.service
 
+import com.brunozambiazi.bookingsystem.api.dto.BulkBlockItemResponse
 import com.brunozambiazi.bookingsystem.api.dto.CreateBlockRequest
+import com.brunozambiazi.bookingsystem.api.dto.CreateBulkBlockRequest
 import com.brunozambiazi.bookingsystem.api.dto.UpdateBlockRequest
 import com.brunozambiazi.bookingsystem.domain.entity.BlockEntity
 import com.brunozambiazi.bookingsystem.domain.model.BlockReason
 import com.brunozambiazi.bookingsystem.domain.model.DateRange
 import com.brunozambiazi.bookingsystem.domain.repository.BlockRepository
+import com.brunozambiazi.bookingsystem.domain.repository.BookingRepository
 import com.brunozambiazi.bookingsystem.exception.InvalidStateException
 import com.brunozambiazi.bookingsystem.exception.OverlapException
 import com.brunozambiazi.bookingsystem.service.mapper.BlockMapper
+import org.springframework.context.ApplicationEventPublisher
 import spock.lang.Specification
 import spock.lang.Subject
 
@@ -16,14 +20,17 @@ import static java.time.LocalDate.now
 
 class BlockServiceSpec extends Specification {
 
+    def eventPublisher = Mock(ApplicationEventPublisher)
     def availabilityService = Mock(AvailabilityService)
     def blockMapper = new BlockMapper()
     def blockRepository = Mock(BlockRepository)
+    def bulkBlockWriter = Mock(BulkBlockWriter)
     def lockService = Mock(LockService)
     def propertyService = Mock(PropertyService)
+    def occupancyWriter = new CheckedOccupancyWriter(availabilityService, blockRepository, Mock(BookingRepository), propertyService)
 
     @Subject
-    def service = new BlockService(availabilityService, blockMapper, blockRepository, lockService, propertyService)
+    def service = new BlockService(eventPublisher, blockMapper, blockRepository, bulkBlockWriter, lockService, occupancyWriter, propertyService)
 
     def "should create block when property is active and no overlap"() {
         given:
@@ -34,8 +41,8 @@ class BlockServiceSpec extends Specification {
         def result = service.createBlock(request)
 
         then:
-        1 * propertyService.checkActiveProperty(propertyId)
-        1 * lockService.acquireLockFor(_ as BlockEntity)
+        1 * lockService.acquireLockFor(_ as BlockEntity) >> Optional.empty()
+        1 * propertyService.checkActiveProperty(propertyId, Optional.empty())
         1 * availabilityService.checkOverlap(_ as BlockEntity)
         1 * blockRepository.save(_ as BlockEntity) >> { BlockEntity it -> it }
         result.propertyId == propertyId
@@ -46,7 +53,7 @@ class BlockServiceSpec extends Specification {
         given:
         def propertyId = UUID.randomUUID()
         def request = new CreateBlockRequest(propertyId, now(), now().plusDays(1), BlockReason.MAINTENANCE)
-        propertyService.checkActiveProperty(propertyId) >> { throw new InvalidStateException("") }
+        propertyService.checkActiveProperty(propertyId, _) >> { throw new InvalidStateException("") }
 
         when:
         service.createBlock(request)
@@ -72,7 +79,7 @@ class BlockServiceSpec extends Specification {
         given:
         def blockId = UUID.randomUUID()
         def block = new BlockEntity(id: blockId)
-        blockRepository.getById(blockId) >> block
+        lockService.getBlockForUpdate(blockId) >> block
 
         when:
         service.deleteBlock(blockId)
@@ -81,11 +88,12 @@ class BlockServiceSpec extends Specification {
         1 * blockRepository.delete(block)
     }
 
-    def "should return block by id"() {
+    def "should return block by id, falling back to the archive"() {
         given:
         def blockId = UUID.randomUUID()
         def block = new BlockEntity(id: blockId, reason: BlockReason.OTHER, period: new DateRange(now(), now().plusDays(1)))
-        blockRepository.getById(blockId) >> block
+        blockRepository.findById(blockId) >> Optional.empty()
+        blockRepository.findArchivedById(blockId) >> Optional.of(block)
 
         when:
         def result = service.getBlockById(blockId)
@@ -100,7 +108,7 @@ class BlockServiceSpec extends Specification {
         def blockId = UUID.randomUUID()
         def block = new BlockEntity(id: blockId, reason: BlockReason.MAINTENANCE)
         def request = new UpdateBlockRequest(now(), now().plusDays(2), BlockReason.OTHER)
-        blockRepository.getById(blockId) >> block
+        lockService.getBlockForUpdate(blockId) >> block
 
         when:
         def result = service.updateBlock(blockId, request)
@@ -118,7 +126,7 @@ class BlockServiceSpec extends Specification {
         def blockId = UUID.randomUUID()
         def block = new BlockEntity(id: blockId)
         def request = new UpdateBlockRequest(now(), now().plusDays(2), BlockReason.OTHER)
-        blockRepository.getById(blockId) >> block
+        lockService.getBlockForUpdate(blockId) >> block
         availabilityService.checkOverlap(block) >> { throw new OverlapException("") }
 
         when:
@@ -127,4 +135,37 @@ class BlockServiceSpec extends Specification {
         then:
         thrown(OverlapException)
     }
+
+    def "should create bulk blocks in sorted chunks"() {
+        given:
+        def propertyIds = (1..2_500).collect { UUID.randomUUID() }
+        def request = new CreateBulkBlockRequest(propertyIds + propertyIds[0..9], false, now().plusDays(1), now().plusDays(3), BlockReason.MAINTENANCE)
+        def chunks = []
+
+        when:
+        def result = service.createBlocks(request)
+
+        then:
+        3 * bulkBlockWriter.createBlocks(_, new DateRange(now().plusDays(1), now().plusDays(3)), BlockReason.MAINTENANCE) >> { List<UUID> chunk, period, reason ->
+            chunks << List.copyOf(chunk)
+            return chunk.collect { BulkBlockItemResponse.rejected(it, "DATE_OVERLAP", "There is a booking overlap") }
+        }
+        chunks*.size() == [1_000, 1_000, 500]
+        chunks.flatten() == propertyIds.sort(false)
+        result.created() == 0
+        result.rejected() == 2_500
+    }
+
+    def "should create bulk blocks on all active properties"() {
+        given:
+        def propertyIds = [UUID.randomUUID(), UUID.randomUUID()]
+        def request = new CreateBulkBlockRequest(null, true, now().plusDays(1), now().plusDays(3), BlockReason.MAINTENANCE)
+
+        when:
+        service.createBlocks(request)
+
+        then:
+        1 * propertyService.findActivePropertyIds() >> propertyIds
+        1 * bulkBlockWriter.createBlocks(propertyIds.sort(false), _, _) >> []
+    }
 }
@@ -6,11 +6,16 @@ import com.brunozambiazi.bookingsystem.api.dto.UpdateBookingRequest
 import com.brunozambiazi.bookingsystem.domain.entity.BookingEntity
 import com.brunozambiazi.bookingsystem.domain.model.BookingStatus
 import com.brunozambiazi.bookingsystem.domain.model.DateRange
+import com.brunozambiazi.bookingsystem.domain.model.Occupancy
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType
+import com.brunozambiazi.bookingsystem.domain.repository.BlockRepository
 import com.brunozambiazi.bookingsystem.domain.repository.BookingRepository
 import com.brunozambiazi.bookingsystem.exception.InvalidStateException
+import com.brunozambiazi.bookingsystem.exception.NotFoundException
 import com.brunozambiazi.bookingsystem.exception.OverlapException
 import com.brunozambiazi.bookingsystem.service.mapper.BookingMapper
 import com.fasterxml.jackson.databind.ObjectMapper
+import org.springframework.context.ApplicationEventPublisher
 import spock.lang.Specification
 import spock.lang.Subject
 
@@ -18,21 +23,23 @@ import static java.time.LocalDate.now
 
 class BookingServiceSpec extends Specification {
 
+    def eventPublisher = Mock(ApplicationEventPublisher)
     def objectMapper = new ObjectMapper()
     def availabilityService = Mock(AvailabilityService)
     def bookingMapper = new BookingMapper(objectMapper)
     def bookingRepository = Mock(BookingRepository)
     def lockService = Mock(LockService)
     def propertyService = Mock(PropertyService)
+    def occupancyWriter = new CheckedOccupancyWriter(availabilityService, Mock(BlockRepository), bookingRepository, propertyService)
 
     @Subject
-    def service = new BookingService(availabilityService, bookingMapper, bookingRepository, lockService, propertyService)
+    def service = new BookingService(eventPublisher, availabilityService, bookingMapper, bookingRepository, lockService, occupancyWriter, propertyService)
 
     def "should cancel booking when it is cancellable"() {
         given:
         def bookingId = UUID.randomUUID()
         def booking = new BookingEntity(id: bookingId, status: BookingStatus.ACTIVE)
-        bookingRepository.getById(bookingId) >> booking
+        lockService.getBookingForUpdate(bookingId) >> booking
 
         when:
         service.cancelBooking(bookingId)
@@ -46,7 +53,7 @@ class BookingServiceSpec extends Specification {
         given:
         def bookingId = UUID.randomUUID()
         def booking = new BookingEntity(id: bookingId, status: BookingStatus.CANCELLED)
-        bookingRepository.getById(bookingId) >> booking
+        lockService.getBookingForUpdate(bookingId) >> booking
 
         when:
         service.cancelBooking(bookingId)
@@ -64,8 +71,8 @@ class BookingServiceSpec extends Specification {
         def result = service.createBooking(request)
 
         then:
-        1 * propertyService.checkActiveProperty(propertyId)
-        1 * lockService.acquireLockFor(_ as BookingEntity)
+        1 * lockService.acquireLockFor(_ as BookingEntity) >> Optional.empty()
+        1 * propertyService.checkActiveProperty(propertyId, Optional.empty())
         1 * availabilityService.checkOverlap(_ as BookingEntity)
         1 * bookingRepository.save(_ as BookingEntity) >> { BookingEntity it -> it }
         result.propertyId == propertyId
@@ -76,7 +83,7 @@ class BookingServiceSpec extends Specification {
         given:
         def propertyId = UUID.randomUUID()
         def request = new CreateBookingRequest(propertyId, now(), now().plusDays(1), [new GuestDto("John", "john.doe@test.com")])
-        propertyService.checkActiveProperty(propertyId) >> { throw new InvalidStateException("") }
+        propertyService.checkActiveProperty(propertyId, _) >> { throw new InvalidStateException("") }
 
         when:
         service.createBooking(request)
@@ -102,7 +109,7 @@ class BookingServiceSpec extends Specification {
         given:
         def bookingId = UUID.randomUUID()
         def booking = new BookingEntity(id: bookingId)
-        bookingRepository.getById(bookingId) >> booking
+        lockService.getBookingForUpdate(bookingId) >> booking
 
         when:
         service.deleteBooking(bookingId)
@@ -115,7 +122,7 @@ class BookingServiceSpec extends Specification {
         given:
         def bookingId = UUID.randomUUID()
         def booking = new BookingEntity(id: bookingId, status: BookingStatus.ACTIVE, period: new DateRange(now(), now().plusDays(1)), guests: "[]")
-        bookingRepository.getById(bookingId) >> booking
+        bookingRepository.findById(bookingId) >> Optional.of(booking)
 
         when:
         def result = service.getBookingById(bookingId)
@@ -123,13 +130,37 @@ class BookingServiceSpec extends Specification {
         then:
         result.id == bookingId
         result.status == BookingStatus.ACTIVE
+        0 * bookingRepository.findArchivedById(_)
+    }
+
+    def "should fall back to the archive for bookings no longer live"() {
+        given:
+        def bookingId = UUID.randomUUID()
+        def booking = new BookingEntity(id: bookingId, status: BookingStatus.CANCELLED, period: new DateRange(now(), now().plusDays(1)), guests: "[]")
+        bookingRepository.findById(bookingId) >> Optional.empty()
+        bookingRepository.findArchivedById(bookingId) >> Optional.of(booking)
+
+        expect:
+        service.getBookingById(bookingId).status == BookingStatus.CANCELLED
+    }
+
+    def "should throw NotFoundException when the booking is neither live nor archived"() {
+        given:
+        bookingRepository.findById(_) >> Optional.empty()
+        bookingRepository.findArchivedById(_) >> Optional.empty()
+
+        when:
+        service.getBookingById(UUID.randomUUID())
+
+        then:
+        thrown(NotFoundException)
     }
 
     def "should rebook booking when it is rebookable"() {
         given:
         def bookingId = UUID.randomUUID()
         def booking = new BookingEntity(id: bookingId, status: BookingStatus.CANCELLED)
-        bookingRepository.getById(bookingId) >> booking
+        lockService.getBookingForUpdate(bookingId) >> booking
 
         when:
         service.rebookBooking(bookingId)
@@ -143,7 +174,7 @@ class BookingServiceSpec extends Specification {
         given:
         def bookingId = UUID.randomUUID()
         def booking = new BookingEntity(id: bookingId, status: BookingStatus.ACTIVE)
-        bookingRepository.getById(bookingId) >> booking
+        lockService.getBookingForUpdate(bookingId) >> booking
 
         when:
         service.rebookBooking(bookingId)
@@ -157,7 +188,7 @@ class BookingServiceSpec extends Specification {
         def bookingId = UUID.randomUUID()
         def booking = new BookingEntity(id: bookingId, status: BookingStatus.ACTIVE)
         def request = new UpdateBookingRequest(now(), now().plusDays(2), [])
-        bookingRepository.getById(bookingId) >> booking
+        lockService.getBookingForUpdate(bookingId) >> booking
 
         when:
         def result = service.updateBooking(bookingId, request)
@@ -174,7 +205,7 @@ class BookingServiceSpec extends Specification {
         def bookingId = UUID.randomUUID()
         def booking = new BookingEntity(id: bookingId)
         def request = new UpdateBookingRequest(now(), now().plusDays(2), [])
-        bookingRepository.getById(bookingId) >> booking
+        lockService.getBookingForUpdate(bookingId) >> booking
         availabilityService.checkOverlap(booking) >> { throw new OverlapException("") }
 
         when:
@@ -183,4 +214,40 @@ class BookingServiceSpec extends Specification {
         then:
         thrown(OverlapException)
     }
-}
\ No newline at end of file
+
+    def "should create bookings in batch reporting each item"() {
+        given:
+        def propertyId = UUID.randomUUID()
+        def otherPropertyId = UUID.randomUUID()
+        def missingPropertyId = UUID.randomUUID()
+        def guests = [new GuestDto("John", "john.doe@test.com")]
+        def requests = [
+                new CreateBookingRequest(propertyId, now().plusDays(1), now().plusDays(3), guests),
+                new CreateBookingRequest(propertyId, now().plusDays(2), now().plusDays(4), guests),
+                new CreateBookingRequest(otherPropertyId, now().plusDays(1), now().plusDays(3), guests),
+                new CreateBookingRequest(missingPropertyId, now().plusDays(1), now().plusDays(3), guests),
+                new CreateBookingRequest(otherPropertyId, now().plusDays(3), now().plusDays(5), guests)
+        ]
+        def blocked = new OccupancyCalendar()
+        blocked.add(new Occupancy(UUID.randomUUID(), otherPropertyId, OccupancyType.BLOCK, new DateRange(now().plusDays(4), now().plusDays(6))))
+
+        when:
+        def result = service.createBookings(requests)
+
+        then:
+        1 * propertyService.checkActiveProperties([propertyId, otherPropertyId, missingPropertyId] as Set) >> [(missingPropertyId): new NotFoundException("Property not found")]
+        1 * lockService.acquireLocksFor(OccupancyType.BOOKING, [propertyId, otherPropertyId] as Set)
+        1 * availabilityService.loadCalendars([propertyId, otherPropertyId] as Set, new DateRange(now().plusDays(1), now().plusDays(5))) >> [
+                (propertyId): new OccupancyCalendar(),
+                (otherPropertyId): blocked
+        ]
+        1 * bookingRepository.saveAll({ it*.propertyId == [propertyId, otherPropertyId] })
+        2 * eventPublisher.publishEvent(_ as OccupancyChangedEvent)
+        result.created() == 2
+        result.rejected() == 3
+        result.items()*.index() == [0, 1, 2, 3, 4]
+        result.items()*.errorCode() == [null, "DATE_OVERLAP", null, "NOT_FOUND", "DATE_OVERLAP"]
+        result.items()*.message()[4] == "There is a block overlap"
+        result.items()[0].booking().propertyId == propertyId
+    }
+}
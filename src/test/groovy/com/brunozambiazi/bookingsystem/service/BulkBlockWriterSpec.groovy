@@ -0,0 +1,50 @@
+package com.brunozambiazi.bookingsystem.service
+
+import com.brunozambiazi.bookingsystem.domain.model.BlockReason
+import com.brunozambiazi.bookingsystem.domain.model.DateRange
+import com.brunozambiazi.bookingsystem.domain.model.Occupancy
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType
+import com.brunozambiazi.bookingsystem.domain.repository.BlockRepository
+import com.brunozambiazi.bookingsystem.exception.InvalidStateException
+import com.brunozambiazi.bookingsystem.service.mapper.BlockMapper
+import org.springframework.context.ApplicationEventPublisher
+import spock.lang.Specification
+import spock.lang.Subject
+
+import static java.time.LocalDate.now
+
+class BulkBlockWriterSpec extends Specification {
+
+    def eventPublisher = Mock(ApplicationEventPublisher)
+    def availabilityService = Mock(AvailabilityService)
+    def blockMapper = new BlockMapper()
+    def blockRepository = Mock(BlockRepository)
+    def lockService = Mock(LockService)
+    def propertyService = Mock(PropertyService)
+
+    @Subject
+    def writer = new BulkBlockWriter(eventPublisher, availabilityService, blockMapper, blockRepository, lockService, propertyService)
+
+    def "should block free properties and report the others"() {
+        given:
+        def freeId = UUID.randomUUID()
+        def bookedId = UUID.randomUUID()
+        def inactiveId = UUID.randomUUID()
+        def period = new DateRange(now().plusDays(1), now().plusDays(8))
+        def booked = new OccupancyCalendar()
+        booked.add(new Occupancy(UUID.randomUUID(), bookedId, OccupancyType.BOOKING, new DateRange(now().plusDays(7), now().plusDays(9))))
+
+        when:
+        def items = writer.createBlocks([freeId, bookedId, inactiveId], period, BlockReason.MAINTENANCE)
+
+        then:
+        1 * propertyService.checkActiveProperties([freeId, bookedId, inactiveId]) >> [(inactiveId): new InvalidStateException("Property is not active")]
+        1 * lockService.acquireLocksFor(OccupancyType.BLOCK, [freeId, bookedId] as Set)
+        1 * availabilityService.loadCalendars([freeId, bookedId] as Set, period) >> [(freeId): new OccupancyCalendar(), (bookedId): booked]
+        1 * blockRepository.saveAll({ it*.propertyId == [freeId] })
+        1 * eventPublisher.publishEvent({ it.current().propertyId() == freeId })
+        items*.propertyId() == [freeId, bookedId, inactiveId]
+        items*.errorCode() == [null, "DATE_OVERLAP", "INVALID_STATE"]
+        items[0].block().reason() == BlockReason.MAINTENANCE
+    }
+}
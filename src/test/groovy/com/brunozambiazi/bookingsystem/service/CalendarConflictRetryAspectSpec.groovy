@@ -0,0 +1,66 @@
+package com.brunozambiazi.bookingsystem.service
+
+import com.brunozambiazi.bookingsystem.exception.CalendarConflictException
+import com.brunozambiazi.bookingsystem.exception.OverlapException
+import com.brunozambiazi.bookingsystem.service.LockProperties.Strategy
+import org.aspectj.lang.ProceedingJoinPoint
+import org.aspectj.lang.Signature
+import org.springframework.dao.OptimisticLockingFailureException
+import org.springframework.transaction.support.TransactionSynchronizationManager
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.time.Duration
+
+class CalendarConflictRetryAspectSpec extends Specification {
+
+    def joinPoint = Mock(ProceedingJoinPoint) {
+        getSignature() >> Stub(Signature)
+    }
+
+    @Subject
+    def aspect = new CalendarConflictRetryAspect(new LockProperties(Strategy.OPTIMISTIC, 1024, 3, Duration.ofMillis(1), new LockProperties.WaitTimeout(Duration.ofSeconds(2), Duration.ofSeconds(5)), Duration.ofSeconds(1)))
+
+    def "should retry until the commit succeeds"() {
+        when:
+        def result = aspect.retry(joinPoint)
+
+        then:
+        2 * joinPoint.proceed() >> { throw new OptimisticLockingFailureException("conflict") }
+        1 * joinPoint.proceed() >> "saved"
+        result == "saved"
+    }
+
+    def "should give up after the configured attempts"() {
+        when:
+        aspect.retry(joinPoint)
+
+        then:
+        3 * joinPoint.proceed() >> { throw new OptimisticLockingFailureException("conflict") }
+        thrown(CalendarConflictException)
+    }
+
+    def "should not retry other failures"() {
+        when:
+        aspect.retry(joinPoint)
+
+        then:
+        1 * joinPoint.proceed() >> { throw new OverlapException("There is a booking overlap") }
+        thrown(OverlapException)
+    }
+
+    def "should not retry within an outer transaction"() {
+        given:
+        TransactionSynchronizationManager.setActualTransactionActive(true)
+
+        when:
+        aspect.retry(joinPoint)
+
+        then:
+        1 * joinPoint.proceed() >> { throw new OptimisticLockingFailureException("conflict") }
+        thrown(OptimisticLockingFailureException)
+
+        cleanup:
+        TransactionSynchronizationManager.setActualTransactionActive(false)
+    }
+}
@@ -0,0 +1,114 @@
+package com.brunozambiazi.bookingsystem.service
+
+import com.brunozambiazi.bookingsystem.domain.entity.BlockEntity
+import com.brunozambiazi.bookingsystem.domain.entity.BookingEntity
+import com.brunozambiazi.bookingsystem.domain.model.BlockReason
+import com.brunozambiazi.bookingsystem.domain.model.BookingStatus
+import com.brunozambiazi.bookingsystem.domain.model.DateRange
+import com.brunozambiazi.bookingsystem.domain.repository.BlockRepository
+import com.brunozambiazi.bookingsystem.domain.repository.BookingRepository
+import com.brunozambiazi.bookingsystem.exception.NotFoundException
+import com.brunozambiazi.bookingsystem.exception.OverlapException
+import jakarta.persistence.EntityManager
+import org.springframework.dao.OptimisticLockingFailureException
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.util.function.IntSupplier
+
+import static java.time.LocalDate.now
+
+class ConditionalOccupancyWriterSpec extends Specification {
+
+    def availabilityService = Mock(AvailabilityService) {
+        writeIfAvailable(_, _) >> { type, IntSupplier write -> write.asInt > 0 }
+    }
+    def blockRepository = Mock(BlockRepository)
+    def bookingRepository = Mock(BookingRepository)
+    def entityManager = Mock(EntityManager)
+    def propertyService = Mock(PropertyService)
+
+    @Subject
+    def writer = new ConditionalOccupancyWriter(availabilityService, blockRepository, bookingRepository, entityManager, propertyService)
+
+    def "should insert an available booking with a single statement"() {
+        given:
+        def booking = booking()
+
+        when:
+        writer.create(booking, Optional.empty())
+
+        then:
+        1 * bookingRepository.insertIfAvailable(booking.id, booking.propertyId, booking.period.startAt(), booking.period.endAt(), "[]", booking.createdAt) >> 1
+        0 * propertyService._
+        0 * availabilityService.checkOverlap(_)
+        0 * bookingRepository.save(_)
+    }
+
+    def "should tell why a booking was not inserted"() {
+        given:
+        def booking = booking()
+        bookingRepository.insertIfAvailable(*_) >> 0
+
+        when:
+        writer.create(booking, Optional.empty())
+
+        then:
+        1 * propertyService.checkActiveProperty(booking.propertyId, Optional.empty())
+        1 * availabilityService.checkOverlap(booking) >> { throw new OverlapException("There is a booking overlap") }
+        thrown(OverlapException)
+    }
+
+    def "should ask for a retry when neither check explains a rejected booking"() {
+        given:
+        bookingRepository.insertIfAvailable(*_) >> 0
+
+        when:
+        writer.create(booking(), Optional.empty())
+
+        then:
+        thrown(OptimisticLockingFailureException)
+    }
+
+    def "should detach and update a booking with a single statement"() {
+        given:
+        def booking = booking()
+        booking.status = BookingStatus.ACTIVE
+        booking.updatedAt = booking.createdAt
+
+        when:
+        writer.update(booking)
+
+        then:
+        1 * entityManager.detach(booking)
+
+        then:
+        1 * bookingRepository.updateIfAvailable(booking.id, booking.propertyId, booking.period.startAt(), booking.period.endAt(), "[]", "ACTIVE", booking.updatedAt, null) >> 1
+        0 * availabilityService.checkOverlap(_)
+    }
+
+    def "should report a block missing when its update neither overlaps nor finds it"() {
+        given:
+        def block = BlockEntity.newBlock()
+        block.propertyId = UUID.randomUUID()
+        block.period = new DateRange(now(), now().plusDays(2))
+        block.reason = BlockReason.MAINTENANCE
+        blockRepository.updateIfAvailable(*_) >> 0
+
+        when:
+        writer.update(block)
+
+        then:
+        1 * availabilityService.checkOverlap(block)
+        1 * blockRepository.existsById(block.id) >> false
+        thrown(NotFoundException)
+    }
+
+    private static BookingEntity booking() {
+        def booking = BookingEntity.newBooking()
+        booking.propertyId = UUID.randomUUID()
+        booking.period = new DateRange(now(), now().plusDays(2))
+        booking.guests = "[]"
+        return booking
+    }
+}
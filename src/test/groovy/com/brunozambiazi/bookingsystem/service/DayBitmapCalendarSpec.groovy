@@ -0,0 +1,219 @@
+package com.brunozambiazi.bookingsystem.service
+
+import com.brunozambiazi.bookingsystem.domain.model.DateRange
+import com.brunozambiazi.bookingsystem.domain.model.Occupancy
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType
+import com.brunozambiazi.bookingsystem.domain.repository.OccupancyView
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository
+import com.brunozambiazi.bookingsystem.service.PropertySearchProperties.SearchMode
+import org.springframework.transaction.support.TransactionSynchronization
+import org.springframework.transaction.support.TransactionSynchronizationManager
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.time.Duration
+import java.time.LocalDate
+
+class DayBitmapCalendarSpec extends Specification {
+
+    def propertyRepository = Mock(PropertyRepository)
+
+    @Subject
+    def calendar = new DayBitmapCalendar(new PropertySearchProperties(SearchMode.BITMAP, 200, 0, Duration.ZERO), propertyRepository)
+
+    def today = LocalDate.now()
+    def propertyIds = (1..4).collect { UUID.randomUUID() }.sort(false, DayBitmapCalendar.DATABASE_ORDER)
+    def committed = [] as List<Occupancy>
+
+    def setup() {
+        propertyRepository.findAllActiveIds() >> propertyIds
+        propertyRepository.findOccupanciesOrdered(*_) >> { UUID propertyId, LocalDate startAt, LocalDate endAt ->
+            committed.findAll { it.propertyId() == propertyId && it.overlaps(new DateRange(startAt, endAt)) }.collect { view(it) }
+        }
+    }
+
+    def "should build bitmaps from the stored occupancies"() {
+        given:
+        def occupied = occupancy(propertyIds[0], 10, 80)
+        propertyRepository.findAllOccupancies(today, today.plusDays(200)) >> [view(occupied)]
+
+        when:
+        calendar.rebuild()
+
+        then:
+        calendar.findAvailable(range(5, 11)).get() == propertyIds[1..3]
+        calendar.findAvailable(range(79, 90)).get() == propertyIds[1..3]
+        calendar.findAvailable(range(80, 90)).get() == propertyIds
+        calendar.findAvailable(range(0, 10)).get() == propertyIds
+    }
+
+    def "should page available properties in database order"() {
+        given:
+        propertyRepository.findAllOccupancies(today, today.plusDays(200)) >> [view(occupancy(propertyIds[1], 10, 20))]
+        calendar.rebuild()
+        def period = range(12, 14)
+
+        expect:
+        calendar.findAvailable(period, null, 2).get() == [propertyIds[0], propertyIds[2]]
+        calendar.findAvailable(period, propertyIds[0], 2).get() == [propertyIds[2], propertyIds[3]]
+        calendar.findAvailable(period, propertyIds[2], 2).get() == [propertyIds[3]]
+        calendar.findAvailable(period, propertyIds[3], 2).get() == []
+    }
+
+    def "should not answer out of the horizon"() {
+        given:
+        propertyRepository.findAllOccupancies(*_) >> []
+
+        expect:
+        calendar.findAvailable(range(0, 1)).isEmpty()
+
+        when:
+        calendar.rebuild()
+
+        then:
+        calendar.findAvailable(range(0, 200)).isPresent()
+        calendar.findAvailable(range(150, 201)).isEmpty()
+        calendar.findAvailable(new DateRange(today.minusDays(1), today.plusDays(1))).isEmpty()
+    }
+
+    def "should restore the previous period on rollback"() {
+        given:
+        propertyRepository.findAllOccupancies(*_) >> []
+        calendar.rebuild()
+        def previous = occupancy(propertyIds[0], 10, 20)
+        def current = new Occupancy(previous.id(), previous.propertyId(), OccupancyType.BOOKING, range(30, 40))
+        calendar.onOccupancyChanged(new OccupancyChangedEvent(null, previous))
+        committed << previous
+
+        when:
+        def synchronizations = inTransaction { calendar.onOccupancyChanged(new OccupancyChangedEvent(previous, current)) }
+
+        then:
+        !calendar.findAvailable(range(30, 31)).get().contains(propertyIds[0])
+        calendar.findAvailable(range(10, 11)).get().contains(propertyIds[0])
+
+        when:
+        synchronizations*.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK)
+
+        then:
+        !calendar.findAvailable(range(10, 11)).get().contains(propertyIds[0])
+        calendar.findAvailable(range(30, 40)).get().contains(propertyIds[0])
+    }
+
+    def "should free the days of a rolled back create no committed or in-flight occupancy covers"() {
+        given:
+        propertyRepository.findAllOccupancies(*_) >> []
+        calendar.rebuild()
+        def stored = occupancy(propertyIds[0], 10, 20)
+        calendar.onOccupancyChanged(new OccupancyChangedEvent(null, stored))
+        committed << stored
+        def concurrent = inTransaction { calendar.onOccupancyChanged(new OccupancyChangedEvent(null, occupancy(propertyIds[0], 25, 30))) }
+
+        when:
+        def synchronizations = inTransaction { calendar.onOccupancyChanged(new OccupancyChangedEvent(null, occupancy(propertyIds[0], 15, 35))) }
+        synchronizations*.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK)
+
+        then:
+        free(15, 35) == [false, false, false, false, false, true, true, true, true, true,
+                         false, false, false, false, false, true, true, true, true, true]
+
+        when:
+        concurrent*.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK)
+
+        then:
+        free(20, 35).every()
+        !free(10, 20).any()
+    }
+
+    def "should keep in-flight changes when rebuilding"() {
+        given:
+        propertyRepository.findAllOccupancies(*_) >> []
+        calendar.rebuild()
+        def uncommitted = occupancy(propertyIds[1], 60, 70)
+
+        when:
+        def synchronizations = inTransaction {
+            calendar.onOccupancyChanged(new OccupancyChangedEvent(null, uncommitted))
+            calendar.rebuild()
+        }
+        synchronizations*.afterCompletion(TransactionSynchronization.STATUS_COMMITTED)
+
+        then:
+        !calendar.findAvailable(range(65, 66)).get().contains(propertyIds[1])
+    }
+
+    def "should always agree with a brute force scan under random workloads"() {
+        given:
+        def random = new Random(seed)
+        def stored = [:] as Map<UUID, Occupancy>
+        propertyRepository.findAllOccupancies(*_) >> []
+        calendar.rebuild()
+
+        when:
+        3_000.times {
+            def propertyId = propertyIds[random.nextInt(propertyIds.size())]
+            def period = randomRange(random)
+            def existing = stored.values().findAll { it.propertyId() == propertyId }
+
+            if (random.nextInt(3) > 0) {
+                def replaced = existing && random.nextBoolean() ? existing[random.nextInt(existing.size())] : null
+                def written = new Occupancy(replaced?.id() ?: UUID.randomUUID(), propertyId, OccupancyType.BOOKING, period)
+                if (!existing.any { it.id() != written.id() && it.overlaps(period) }) {
+                    stored[written.id()] = written
+                    calendar.onOccupancyChanged(new OccupancyChangedEvent(replaced, written))
+                }
+            } else if (existing) {
+                def released = existing[random.nextInt(existing.size())]
+                stored.remove(released.id())
+                calendar.onOccupancyChanged(new OccupancyChangedEvent(released, null))
+            }
+
+            def probe = randomRange(random)
+            def expected = propertyIds.findAll { id -> !stored.values().any { it.propertyId() == id && it.overlaps(probe) } }
+            assert calendar.findAvailable(probe).get() == expected
+        }
+
+        then:
+        noExceptionThrown()
+
+        where:
+        seed << [3L, 11L, 99L]
+    }
+
+    private List<Boolean> free(int from, int to) {
+        return (from..<to).collect { calendar.findAvailable(range(it, it + 1)).get().contains(propertyIds[0]) }
+    }
+
+    private List<TransactionSynchronization> inTransaction(Closure work) {
+        TransactionSynchronizationManager.initSynchronization()
+        try {
+            work()
+            return TransactionSynchronizationManager.getSynchronizations()
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization()
+        }
+    }
+
+    private DateRange randomRange(Random random) {
+        def start = random.nextInt(190)
+        return range(start, Math.min(start + 1 + random.nextInt(random.nextInt(10) == 0 ? 130 : 9), 200))
+    }
+
+    private Occupancy occupancy(UUID propertyId, int from, int to) {
+        return new Occupancy(UUID.randomUUID(), propertyId, OccupancyType.BOOKING, range(from, to))
+    }
+
+    private DateRange range(int from, int to) {
+        return new DateRange(today.plusDays(from), today.plusDays(to))
+    }
+
+    private static OccupancyView view(Occupancy occupancy) {
+        return new OccupancyView() {
+            UUID getId() { occupancy.id() }
+            UUID getPropertyId() { occupancy.propertyId() }
+            OccupancyType getType() { occupancy.type() }
+            LocalDate getStartAt() { occupancy.period().startAt() }
+            LocalDate getEndAt() { occupancy.period().endAt() }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.brunozambiazi.bookingsystem.service
+
+import com.brunozambiazi.bookingsystem.domain.model.DateRange
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType
+import com.brunozambiazi.bookingsystem.domain.repository.OccupancyView
+import spock.lang.Specification
+
+import java.time.LocalDate
+import java.util.function.BiConsumer
+import java.util.function.Function
+
+import static java.time.temporal.ChronoUnit.DAYS
+
+class FreeGapsSpec extends Specification {
+
+    def base = LocalDate.now()
+
+    def "should emit the gaps between overlapping, adjacent and out of period occupancies"() {
+        given:
+        def gaps = []
+        def sweep = new FreeGaps(range(0, 20), minNights, { gaps << [DAYS.between(base, it.startAt()), DAYS.between(base, it.endAt())] })
+
+        when:
+        sweep.occupied(base.minusDays(3), base.plusDays(1))
+        sweep.occupied(base.plusDays(3), base.plusDays(5))
+        sweep.occupied(base.plusDays(4), base.plusDays(6))
+        sweep.occupied(base.plusDays(6), base.plusDays(7))
+        sweep.occupied(base.plusDays(12), base.plusDays(14))
+        sweep.finish()
+
+        then:
+        gaps == expected
+
+        where:
+        minNights || expected
+        1         || [[1, 3], [7, 12], [14, 20]]
+        5         || [[7, 12], [14, 20]]
+        6         || [[14, 20]]
+    }
+
+    def "should merge the properties with their rows, skipping the rows of properties not streamed"() {
+        given:
+        List<UUID> ids = (1..4).collect { UUID.randomUUID() }
+        ids.sort(DayBitmapCalendar.DATABASE_ORDER)
+        def (first, inactive, second, third) = ids
+        def rows = [view(first, 2, 4), view(first, 6, 8), view(inactive, 0, 10), view(second, 0, 10)]
+        def gaps = [:]
+
+        when:
+        FreeGaps.byProperty([first, second, third].stream(), { it } as Function<UUID, UUID>, rows.stream(), range(0, 10), 2,
+                { propertyId, found -> gaps[propertyId] = found.collect { DAYS.between(base, it.startAt()) } } as BiConsumer<UUID, List<DateRange>>)
+
+        then:
+        gaps == [(first): [0L, 4L, 8L], (second): [], (third): [0L]]
+    }
+
+    private DateRange range(int from, int to) {
+        return new DateRange(base.plusDays(from), base.plusDays(to))
+    }
+
+    private OccupancyView view(UUID propertyId, int from, int to) {
+        def startAt = base.plusDays(from)
+        def endAt = base.plusDays(to)
+        return new OccupancyView() {
+            UUID getId() { UUID.randomUUID() }
+            UUID getPropertyId() { propertyId }
+            OccupancyType getType() { OccupancyType.BOOKING }
+            LocalDate getStartAt() { startAt }
+            LocalDate getEndAt() { endAt }
+        }
+    }
+}
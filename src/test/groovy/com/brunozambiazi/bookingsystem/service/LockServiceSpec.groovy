@@ -2,16 +2,63 @@ package com.brunozambiazi.bookingsystem.service
 
 import com.brunozambiazi.bookingsystem.domain.entity.BlockEntity
 import com.brunozambiazi.bookingsystem.domain.entity.BookingEntity
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType
+import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus
+import com.brunozambiazi.bookingsystem.domain.repository.BlockRepository
+import com.brunozambiazi.bookingsystem.domain.repository.BookingRepository
 import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository
+import com.brunozambiazi.bookingsystem.exception.LockTimeoutException
+import com.brunozambiazi.bookingsystem.exception.NotFoundException
+import com.brunozambiazi.bookingsystem.service.LockProperties.Strategy
+import com.brunozambiazi.bookingsystem.service.LockProperties.WaitTimeout
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import io.micrometer.observation.ObservationRegistry
+import jakarta.persistence.EntityManager
+import jakarta.persistence.PessimisticLockException
+import org.springframework.dao.PessimisticLockingFailureException
+import org.springframework.transaction.support.TransactionSynchronization
+import org.springframework.transaction.support.TransactionSynchronizationManager
 import spock.lang.Specification
 import spock.lang.Subject
 
+import java.time.Duration
+
+import static jakarta.persistence.LockModeType.PESSIMISTIC_WRITE
+import static org.hibernate.jpa.SpecHints.HINT_SPEC_LOCK_TIMEOUT
+
 class LockServiceSpec extends Specification {
 
+    def properties = new LockProperties(Strategy.DATABASE, 1024, 5, Duration.ofMillis(5),
+            new WaitTimeout(Duration.ofSeconds(2), Duration.ofSeconds(5)), Duration.ofSeconds(1))
+
     def propertyRepository = Mock(PropertyRepository)
 
+    def blockRepository = Mock(BlockRepository)
+
+    def bookingRepository = Mock(BookingRepository)
+
+    def entityManager = Mock(EntityManager)
+
+    def meterRegistry = new SimpleMeterRegistry()
+
+    def observationRegistry = ObservationRegistry.create().tap {
+        observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry))
+    }
+
     @Subject
-    def service = new LockService(propertyRepository)
+    def service = new LockService(blockRepository, bookingRepository, entityManager, properties, observationRegistry,
+            new DatabasePropertyLock(properties, propertyRepository))
+
+    def setup() {
+        TransactionSynchronizationManager.initSynchronization()
+    }
+
+    def cleanup() {
+        TransactionSynchronizationManager.getSynchronizations()*.afterCompletion(TransactionSynchronization.STATUS_COMMITTED)
+        TransactionSynchronizationManager.clearSynchronization()
+    }
 
     def "should acquire lock for block"() {
         given:
@@ -36,4 +83,126 @@ class LockServiceSpec extends Specification {
         then:
         1 * propertyRepository.findByIdWithLock(propertyId)
     }
+
+    def "should return the row read by the lock"() {
+        given:
+        def property = new PropertyEntity(id: UUID.randomUUID(), status: PropertyStatus.ACTIVE)
+        propertyRepository.findByIdWithLock(property.id) >> property
+
+        expect:
+        service.acquireLockFor(new BookingEntity(propertyId: property.id)) == Optional.of(property)
+        service.acquireLockFor(new BlockEntity(propertyId: UUID.randomUUID())) == Optional.empty()
+    }
+
+    def "should acquire locks for many properties with a single statement"() {
+        given:
+        def propertyIds = [UUID.randomUUID(), UUID.randomUUID()] as Set
+
+        when:
+        service.acquireLocksFor(OccupancyType.BOOKING, propertyIds)
+
+        then:
+        1 * propertyRepository.findAllByIdWithLock(new ArrayList(propertyIds))
+        0 * propertyRepository.findByIdWithLock(_)
+    }
+
+    def "should time the lock waits per strategy, scope and type"() {
+        when:
+        service.acquireLockFor(new BookingEntity(propertyId: UUID.randomUUID()))
+        service.acquireLockFor(new BlockEntity(propertyId: UUID.randomUUID()))
+        service.acquireLocksFor(OccupancyType.BLOCK, [UUID.randomUUID()])
+
+        then:
+        meterRegistry.get(LockService.LOCK_WAIT_METER).tags("strategy", "DATABASE", "scope", "single").timers()*.count().sum() == 2
+        meterRegistry.get(LockService.LOCK_WAIT_METER).tags("scope", "single", "type", "booking").timer().count() == 1
+        meterRegistry.get(LockService.LOCK_WAIT_METER).tags("scope", "bulk", "type", "block").timer().count() == 1
+    }
+
+    def "should wait for the lock as long as the timeout of the type written"() {
+        given:
+        def propertyLock = Mock(PropertyLock)
+        def timedService = new LockService(blockRepository, bookingRepository, entityManager, properties, observationRegistry, propertyLock)
+        def propertyId = UUID.randomUUID()
+
+        when:
+        timedService.acquireLockFor(new BookingEntity(propertyId: propertyId))
+        timedService.acquireLockFor(new BlockEntity(propertyId: propertyId))
+        timedService.acquireLocksFor(OccupancyType.BLOCK, [propertyId])
+
+        then:
+        1 * propertyLock.lock(propertyId, Duration.ofSeconds(2)) >> Optional.empty()
+        1 * propertyLock.lock(propertyId, Duration.ofSeconds(5)) >> Optional.empty()
+        1 * propertyLock.lockAll([propertyId], Duration.ofSeconds(5))
+    }
+
+    def "should report a database lock timeout as a retryable error"() {
+        given:
+        propertyRepository.findByIdWithLock(_) >> { throw new PessimisticLockingFailureException("Timeout trying to lock table") }
+
+        when:
+        service.acquireLockFor(new BookingEntity(propertyId: UUID.randomUUID()))
+
+        then:
+        def ex = thrown(LockTimeoutException)
+        ex.retryAfter == Duration.ofSeconds(1)
+        meterRegistry.get(LockService.LOCK_WAIT_METER).tags("error", "LockTimeoutException").timer().count() == 1
+    }
+
+    def "should read bookings and blocks to change without locking their rows when the property lock serializes writers"() {
+        given:
+        def booking = new BookingEntity(id: UUID.randomUUID())
+        def block = new BlockEntity(id: UUID.randomUUID())
+
+        when:
+        def read = [service.getBookingForUpdate(booking.id), service.getBlockForUpdate(block.id)]
+
+        then:
+        1 * bookingRepository.getById(booking.id) >> booking
+        1 * blockRepository.getById(block.id) >> block
+        0 * entityManager._
+        read == [booking, block]
+    }
+
+    def "should lock the rows of bookings and blocks to change, waiting as long as the timeout of their type"() {
+        given:
+        def rowLockService = serviceWith(Strategy.NONE)
+        def booking = new BookingEntity(id: UUID.randomUUID())
+        def block = new BlockEntity(id: UUID.randomUUID())
+
+        when:
+        def read = [rowLockService.getBookingForUpdate(booking.id), rowLockService.getBlockForUpdate(block.id)]
+
+        then:
+        1 * entityManager.find(BookingEntity, booking.id, PESSIMISTIC_WRITE, [(HINT_SPEC_LOCK_TIMEOUT): 2000L]) >> booking
+        1 * entityManager.find(BlockEntity, block.id, PESSIMISTIC_WRITE, [(HINT_SPEC_LOCK_TIMEOUT): 5000L]) >> block
+        0 * bookingRepository._
+        0 * blockRepository._
+        read == [booking, block]
+        meterRegistry.get(LockService.LOCK_WAIT_METER).tags("strategy", "NONE", "scope", "row").timers()*.count().sum() == 2
+    }
+
+    def "should report a row lock timeout as a retryable error and a missing row as not found"() {
+        given:
+        def rowLockService = serviceWith(Strategy.OPTIMISTIC)
+        entityManager.find(BookingEntity, _, PESSIMISTIC_WRITE, _) >> { throw new PessimisticLockException("Timeout trying to lock table") }
+
+        when:
+        rowLockService.getBookingForUpdate(UUID.randomUUID())
+
+        then:
+        def ex = thrown(LockTimeoutException)
+        ex.retryAfter == Duration.ofSeconds(1)
+
+        when:
+        rowLockService.getBlockForUpdate(UUID.randomUUID())
+
+        then:
+        thrown(NotFoundException)
+    }
+
+    private LockService serviceWith(Strategy strategy) {
+        def rowLockProperties = new LockProperties(strategy, 1024, 5, Duration.ofMillis(5),
+                new WaitTimeout(Duration.ofSeconds(2), Duration.ofSeconds(5)), Duration.ofSeconds(1))
+        return new LockService(blockRepository, bookingRepository, entityManager, rowLockProperties, observationRegistry, Mock(PropertyLock))
+    }
 }
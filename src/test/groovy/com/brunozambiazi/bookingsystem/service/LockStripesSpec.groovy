@@ -0,0 +1,104 @@
+package com.brunozambiazi.bookingsystem.service
+
+import com.brunozambiazi.bookingsystem.exception.LockTimeoutException
+import com.brunozambiazi.bookingsystem.service.LockProperties.Strategy
+import com.brunozambiazi.bookingsystem.service.LockProperties.WaitTimeout
+import org.springframework.transaction.support.TransactionSynchronization
+import org.springframework.transaction.support.TransactionSynchronizationManager
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+
+class LockStripesSpec extends Specification {
+
+    static final TIMEOUT = Duration.ofSeconds(10)
+
+    @Subject
+    def stripes = new LockStripes(properties(16))
+
+    def "should require an active transaction"() {
+        when:
+        stripes.lock(UUID.randomUUID(), TIMEOUT)
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    def "should hold the lock until the transaction completes"() {
+        given:
+        def propertyId = UUID.randomUUID()
+        def synchronizations = inTransaction { stripes.lock(propertyId, TIMEOUT) }
+
+        when:
+        def competitor = CompletableFuture.runAsync { inTransaction { stripes.lock(propertyId, TIMEOUT) }*.afterCompletion(TransactionSynchronization.STATUS_COMMITTED) }
+        competitor.get(200, TimeUnit.MILLISECONDS)
+
+        then:
+        thrown(TimeoutException)
+
+        when:
+        synchronizations*.afterCompletion(TransactionSynchronization.STATUS_COMMITTED)
+        competitor.get(5, TimeUnit.SECONDS)
+
+        then:
+        noExceptionThrown()
+    }
+
+    def "should give up with a retryable error once the timeout expires"() {
+        given:
+        def propertyId = UUID.randomUUID()
+        def synchronizations = inTransaction { stripes.lock(propertyId, TIMEOUT) }
+
+        when:
+        CompletableFuture.runAsync { inTransaction { stripes.lock(propertyId, Duration.ofMillis(50)) } }.get(5, TimeUnit.SECONDS)
+
+        then:
+        def ex = thrown(ExecutionException)
+        ex.cause instanceof LockTimeoutException
+        ex.cause.retryAfter == Duration.ofSeconds(1)
+
+        cleanup:
+        synchronizations*.afterCompletion(TransactionSynchronization.STATUS_COMMITTED)
+    }
+
+    def "should round stripes down to a power of two"() {
+        given:
+        def oddStripes = new LockStripes(properties(100))
+
+        expect:
+        (1..1_000).collect { oddStripes.stripeIndex(UUID.randomUUID()) }.every { it >= 0 && it < 64 }
+    }
+
+    def "should lock many properties in stripe order"() {
+        given:
+        def recording = Spy(LockStripes, constructorArgs: [properties(16)])
+        def propertyIds = (1..50).collect { UUID.randomUUID() }
+        def locked = []
+
+        when:
+        inTransaction { recording.lockAll(propertyIds + propertyIds[0..4], TIMEOUT) }*.afterCompletion(TransactionSynchronization.STATUS_COMMITTED)
+
+        then:
+        50 * recording.lock(_, _) >> { UUID propertyId, Duration timeout -> locked << propertyId; callRealMethod() }
+        locked.collect { recording.stripeIndex(it) } == locked.collect { recording.stripeIndex(it) }.sort(false)
+    }
+
+    private static LockProperties properties(int stripes) {
+        return new LockProperties(Strategy.STRIPED, stripes, 5, Duration.ofMillis(5), new WaitTimeout(TIMEOUT, TIMEOUT), Duration.ofSeconds(1))
+    }
+
+    private static List<TransactionSynchronization> inTransaction(Closure work) {
+        TransactionSynchronizationManager.initSynchronization()
+        try {
+            work()
+            return TransactionSynchronizationManager.getSynchronizations()
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization()
+        }
+    }
+}
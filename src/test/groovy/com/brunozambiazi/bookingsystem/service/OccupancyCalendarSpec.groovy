@@ -0,0 +1,61 @@
+package com.brunozambiazi.bookingsystem.service
+
+import com.brunozambiazi.bookingsystem.domain.model.DateRange
+import com.brunozambiazi.bookingsystem.domain.model.Occupancy
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType
+import com.brunozambiazi.bookingsystem.exception.OverlapException
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.time.LocalDate
+
+class OccupancyCalendarSpec extends Specification {
+
+    @Subject
+    def calendar = new OccupancyCalendar()
+
+    def base = LocalDate.now()
+
+    def setup() {
+        calendar.add(occupancy(OccupancyType.BOOKING, 0, 3))
+        calendar.add(occupancy(OccupancyType.BLOCK, 3, 5))
+        calendar.add(occupancy(OccupancyType.BOOKING, 5, 9))
+    }
+
+    def "should find the overlapping occupancy preferring blocks"() {
+        expect:
+        calendar.findOverlap(range(from, to)) == Optional.ofNullable(expected)
+
+        where:
+        from | to || expected
+        9    | 12 || null
+        8    | 12 || OccupancyType.BOOKING
+        1    | 2  || OccupancyType.BOOKING
+        2    | 6  || OccupancyType.BLOCK
+        0    | 12 || OccupancyType.BLOCK
+        5    | 6  || OccupancyType.BOOKING
+    }
+
+    def "should reserve free periods and reject overlapping ones"() {
+        when:
+        calendar.reserve(occupancy(OccupancyType.BOOKING, 9, 11))
+
+        then:
+        calendar.findOverlap(range(10, 11)) == Optional.of(OccupancyType.BOOKING)
+
+        when:
+        calendar.reserve(occupancy(OccupancyType.BOOKING, 10, 12))
+
+        then:
+        def ex = thrown(OverlapException)
+        ex.message == "There is a booking overlap"
+    }
+
+    private Occupancy occupancy(OccupancyType type, int from, int to) {
+        return new Occupancy(UUID.randomUUID(), UUID.randomUUID(), type, range(from, to))
+    }
+
+    private DateRange range(int from, int to) {
+        return new DateRange(base.plusDays(from), base.plusDays(to))
+    }
+}
@@ -0,0 +1,180 @@
+package com.brunozambiazi.bookingsystem.service
+
+import com.brunozambiazi.bookingsystem.domain.model.DateRange
+import com.brunozambiazi.bookingsystem.domain.model.Occupancy
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType
+import com.brunozambiazi.bookingsystem.domain.repository.OccupancyView
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository
+import com.brunozambiazi.bookingsystem.service.AvailabilityProperties.OverlapMode
+import com.brunozambiazi.bookingsystem.service.AvailabilityProperties.WriteMode
+import org.springframework.transaction.support.TransactionSynchronization
+import org.springframework.transaction.support.TransactionSynchronizationManager
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.time.LocalDate
+
+class OccupancyIndexSpec extends Specification {
+
+    def propertyRepository = Mock(PropertyRepository)
+
+    @Subject
+    def index = new OccupancyIndex(new AvailabilityProperties(OverlapMode.INDEX, WriteMode.CHECKED), propertyRepository)
+
+    def base = LocalDate.now()
+
+    def "should load occupancies from the database"() {
+        given:
+        def propertyId = UUID.randomUUID()
+        def view = new OccupancyView() {
+            UUID getId() { UUID.randomUUID() }
+            UUID getPropertyId() { propertyId }
+            OccupancyType getType() { OccupancyType.BLOCK }
+            LocalDate getStartAt() { base }
+            LocalDate getEndAt() { base.plusDays(3) }
+        }
+        propertyRepository.findAllOccupancies() >> [view]
+
+        when:
+        index.load()
+
+        then:
+        index.isReady()
+        index.findOverlap(propertyId, new DateRange(base.plusDays(2), base.plusDays(5)), null) == Optional.of(OccupancyType.BLOCK)
+        index.findOverlap(propertyId, new DateRange(base.plusDays(3), base.plusDays(5)), null) == Optional.empty()
+    }
+
+    def "should prefer blocks over bookings and ignore the excluded occupancy"() {
+        given:
+        def propertyId = UUID.randomUUID()
+        def booking = occupancy(propertyId, OccupancyType.BOOKING, 0, 5)
+        def block = occupancy(propertyId, OccupancyType.BLOCK, 5, 8)
+        index.onOccupancyChanged(new OccupancyChangedEvent(null, booking))
+        index.onOccupancyChanged(new OccupancyChangedEvent(null, block))
+
+        expect:
+        index.findOverlap(propertyId, range(4, 6), null) == Optional.of(OccupancyType.BLOCK)
+        index.findOverlap(propertyId, range(4, 6), block.id()) == Optional.of(OccupancyType.BOOKING)
+        index.findOverlap(propertyId, range(0, 5), booking.id()) == Optional.empty()
+        index.findOverlap(UUID.randomUUID(), range(0, 5), null) == Optional.empty()
+    }
+
+    def "should only release the previous period after commit"() {
+        given:
+        def propertyId = UUID.randomUUID()
+        def previous = occupancy(propertyId, OccupancyType.BOOKING, 0, 5)
+        def current = new Occupancy(previous.id(), propertyId, OccupancyType.BOOKING, range(10, 12))
+        index.onOccupancyChanged(new OccupancyChangedEvent(null, previous))
+
+        when:
+        def synchronizations = inTransaction { index.onOccupancyChanged(new OccupancyChangedEvent(previous, current)) }
+
+        then:
+        index.findOverlap(propertyId, range(1, 2), null).isPresent()
+        index.findOverlap(propertyId, range(11, 12), null).isPresent()
+
+        when:
+        synchronizations*.afterCompletion(TransactionSynchronization.STATUS_COMMITTED)
+
+        then:
+        index.findOverlap(propertyId, range(1, 2), null).isEmpty()
+        index.findOverlap(propertyId, range(11, 12), null).isPresent()
+    }
+
+    def "should undo the new period on rollback"() {
+        given:
+        def propertyId = UUID.randomUUID()
+        def previous = occupancy(propertyId, OccupancyType.BLOCK, 0, 5)
+        def current = new Occupancy(previous.id(), propertyId, OccupancyType.BLOCK, range(10, 12))
+        index.onOccupancyChanged(new OccupancyChangedEvent(null, previous))
+
+        when:
+        def synchronizations = inTransaction { index.onOccupancyChanged(new OccupancyChangedEvent(previous, current)) }
+        synchronizations*.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK)
+
+        then:
+        index.findOverlap(propertyId, range(1, 2), null).isPresent()
+        index.findOverlap(propertyId, range(11, 12), null).isEmpty()
+    }
+
+    def "should always agree with a brute force scan under random workloads"() {
+        given:
+        def random = new Random(seed)
+        def propertyIds = (1..5).collect { UUID.randomUUID() }
+        def stored = [:] as Map<UUID, Occupancy>
+
+        when:
+        2_000.times {
+            def propertyId = propertyIds[random.nextInt(propertyIds.size())]
+            def period = randomRange(random)
+            def existing = stored.values().findAll { it.propertyId() == propertyId }
+
+            switch (random.nextInt(3)) {
+                case 0:
+                    def created = new Occupancy(UUID.randomUUID(), propertyId, OccupancyType.values()[random.nextInt(2)], period)
+                    if (!existing.any { it.overlaps(period) }) {
+                        stored[created.id()] = created
+                        index.onOccupancyChanged(new OccupancyChangedEvent(null, created))
+                    }
+                    break
+                case 1:
+                    if (existing) {
+                        def previous = existing[random.nextInt(existing.size())]
+                        def updated = new Occupancy(previous.id(), propertyId, previous.type(), period)
+                        if (!existing.any { it.id() != previous.id() && it.overlaps(period) }) {
+                            stored[updated.id()] = updated
+                            index.onOccupancyChanged(new OccupancyChangedEvent(previous, updated))
+                        }
+                    }
+                    break
+                default:
+                    if (existing) {
+                        def released = existing[random.nextInt(existing.size())]
+                        stored.remove(released.id())
+                        index.onOccupancyChanged(new OccupancyChangedEvent(released, null))
+                    }
+            }
+
+            def probe = randomRange(random)
+            def excluded = random.nextBoolean() && existing ? existing[random.nextInt(existing.size())].id() : null
+            assert index.findOverlap(propertyId, probe, excluded) == bruteForce(stored.values(), propertyId, probe, excluded)
+        }
+
+        then:
+        noExceptionThrown()
+
+        where:
+        seed << [1L, 7L, 42L]
+    }
+
+    private Optional<OccupancyType> bruteForce(Collection<Occupancy> stored, UUID propertyId, DateRange period, UUID excluded) {
+        def overlapping = stored.findAll { it.propertyId() == propertyId && it.id() != excluded && it.overlaps(period) }
+        if (overlapping.any { it.type() == OccupancyType.BLOCK }) {
+            return Optional.of(OccupancyType.BLOCK)
+        }
+        return overlapping ? Optional.of(OccupancyType.BOOKING) : Optional.empty()
+    }
+
+    private List<TransactionSynchronization> inTransaction(Closure work) {
+        TransactionSynchronizationManager.initSynchronization()
+        try {
+            work()
+            return TransactionSynchronizationManager.getSynchronizations()
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization()
+        }
+    }
+
+    private DateRange randomRange(Random random) {
+        def start = random.nextInt(120)
+        return range(start, start + 1 + random.nextInt(random.nextInt(10) == 0 ? 60 : 7))
+    }
+
+    private Occupancy occupancy(UUID propertyId, OccupancyType type, int from, int to) {
+        return new Occupancy(UUID.randomUUID(), propertyId, type, range(from, to))
+    }
+
+    private DateRange range(int from, int to) {
+        return new DateRange(base.plusDays(from), base.plusDays(to))
+    }
+}
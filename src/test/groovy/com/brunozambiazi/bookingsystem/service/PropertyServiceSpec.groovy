@@ -1,23 +1,49 @@
 package com.brunozambiazi.bookingsystem.service
 
+import com.brunozambiazi.bookingsystem.api.dto.PropertyResponse
 import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity
+import com.brunozambiazi.bookingsystem.domain.model.CalendarRunType
 import com.brunozambiazi.bookingsystem.domain.model.DateRange
+import com.brunozambiazi.bookingsystem.domain.model.OccupancyType
 import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus
+import com.brunozambiazi.bookingsystem.domain.repository.OccupancyView
 import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository
 import com.brunozambiazi.bookingsystem.exception.InvalidStateException
+import com.brunozambiazi.bookingsystem.exception.NotFoundException
+import com.brunozambiazi.bookingsystem.service.PropertySearchProperties.SearchMode
 import com.brunozambiazi.bookingsystem.service.mapper.PropertyMapper
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import io.micrometer.observation.ObservationRegistry
+import jakarta.persistence.EntityManager
 import spock.lang.Specification
 import spock.lang.Subject
 
+import java.time.Duration
 import java.time.LocalDate
+import java.util.function.Supplier
+
+import static java.time.temporal.ChronoUnit.DAYS
 
 class PropertyServiceSpec extends Specification {
 
+    def availabilitySearchCache = Stub(AvailabilitySearchCache) {
+        get(_, _) >> { DateRange period, Supplier<List<PropertyResponse>> search -> search.get() }
+    }
+    def availabilityService = Mock(AvailabilityService)
+    def dayBitmapCalendar = Mock(DayBitmapCalendar)
+    def entityManager = Mock(EntityManager)
+    def meterRegistry = new SimpleMeterRegistry()
+    def observationRegistry = ObservationRegistry.create().tap {
+        observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry))
+    }
     def propertyMapper = new PropertyMapper()
     def propertyRepository = Mock(PropertyRepository)
+    def searchProperties = new PropertySearchProperties(SearchMode.DATABASE, 730, 0, Duration.ZERO)
+    def propertyStatusCache = new PropertyStatusCache(new PropertyCacheProperties(100, Duration.ofMinutes(5)), propertyRepository, new SimpleMeterRegistry())
 
     @Subject
-    def service = new PropertyService(propertyMapper, propertyRepository)
+    def service = new PropertyService(availabilitySearchCache, availabilityService, dayBitmapCalendar, entityManager, meterRegistry, observationRegistry, propertyMapper, propertyRepository, searchProperties, propertyStatusCache)
 
     def "should not throw exception when property is active"() {
         given:
@@ -45,6 +71,57 @@ class PropertyServiceSpec extends Specification {
         thrown(InvalidStateException)
     }
 
+    def "should check the row read by the lock without reading the property again"() {
+        given:
+        def propertyId = UUID.randomUUID()
+        def locked = new PropertyEntity(id: propertyId, status: PropertyStatus.INACTIVE)
+
+        when:
+        service.checkActiveProperty(propertyId, Optional.of(locked))
+
+        then:
+        thrown(InvalidStateException)
+        0 * propertyRepository._
+
+        when:
+        service.checkActiveProperty(propertyId)
+
+        then:
+        thrown(InvalidStateException)
+        0 * propertyRepository._
+    }
+
+    def "should fall back to the cached status when the lock did not read the property"() {
+        given:
+        def propertyId = UUID.randomUUID()
+
+        when:
+        2.times { service.checkActiveProperty(propertyId, Optional.empty()) }
+
+        then:
+        1 * propertyRepository.getById(propertyId) >> new PropertyEntity(id: propertyId, status: PropertyStatus.ACTIVE)
+        noExceptionThrown()
+    }
+
+    def "should report missing and inactive properties in bulk"() {
+        given:
+        def activeId = UUID.randomUUID()
+        def inactiveId = UUID.randomUUID()
+        def missingId = UUID.randomUUID()
+
+        when:
+        def failures = service.checkActiveProperties([activeId, inactiveId, missingId])
+
+        then:
+        1 * propertyRepository.findAllById({ it as Set == [activeId, inactiveId, missingId] as Set }) >> [
+                new PropertyEntity(id: activeId, status: PropertyStatus.ACTIVE),
+                new PropertyEntity(id: inactiveId, status: PropertyStatus.INACTIVE)
+        ]
+        failures.keySet() == [inactiveId, missingId] as Set
+        failures[inactiveId] instanceof InvalidStateException
+        failures[missingId] instanceof NotFoundException
+    }
+
     def "should return available properties"() {
         given:
         def startAt = LocalDate.now()
@@ -62,6 +139,19 @@ class PropertyServiceSpec extends Specification {
         result[0].name == property.name
     }
 
+    def "should time searches and record their result sizes"() {
+        given:
+        def period = new DateRange(LocalDate.now(), LocalDate.now().plusDays(1))
+        propertyRepository.findAllAvailable(period.startAt(), period.endAt()) >> [new PropertyEntity(id: UUID.randomUUID()), new PropertyEntity(id: UUID.randomUUID())]
+
+        when:
+        service.findAvailableProperties(period)
+
+        then:
+        meterRegistry.get(PropertyService.SEARCH_METER).tags("mode", "DATABASE", "result", "all").timer().count() == 1
+        meterRegistry.get(PropertyService.SEARCH_RESULTS_METER).tags("mode", "DATABASE", "result", "all").summary().totalAmount() == 2
+    }
+
     def "should return empty list when no properties are available"() {
         given:
         def startAt = LocalDate.now()
@@ -75,4 +165,166 @@ class PropertyServiceSpec extends Specification {
         then:
         result.isEmpty()
     }
+
+    def "should return available properties from the day bitmap calendar when in bitmap mode"() {
+        given:
+        def bitmapService = new PropertyService(availabilitySearchCache, availabilityService, dayBitmapCalendar, entityManager, meterRegistry, observationRegistry, propertyMapper, propertyRepository, new PropertySearchProperties(SearchMode.BITMAP, 730, 0, Duration.ZERO), propertyStatusCache)
+        def period = new DateRange(LocalDate.now(), LocalDate.now().plusDays(1))
+        def property = new PropertyEntity(id: UUID.randomUUID(), name: "Test Property", status: PropertyStatus.ACTIVE)
+        dayBitmapCalendar.findAvailable(period) >> Optional.of([property.id])
+
+        when:
+        def result = bitmapService.findAvailableProperties(period)
+
+        then:
+        1 * propertyRepository.findAllById([property.id]) >> [property]
+        0 * propertyRepository.findAllAvailable(*_)
+        result*.id == [property.id]
+    }
+
+    def "should search on database when period is out of the day bitmap horizon"() {
+        given:
+        def bitmapService = new PropertyService(availabilitySearchCache, availabilityService, dayBitmapCalendar, entityManager, meterRegistry, observationRegistry, propertyMapper, propertyRepository, new PropertySearchProperties(SearchMode.BITMAP, 730, 0, Duration.ZERO), propertyStatusCache)
+        def period = new DateRange(LocalDate.now().plusYears(5), LocalDate.now().plusYears(5).plusDays(1))
+        dayBitmapCalendar.findAvailable(period) >> Optional.empty()
+
+        when:
+        def result = bitmapService.findAvailableProperties(period)
+
+        then:
+        1 * propertyRepository.findAllAvailable(period.startAt(), period.endAt()) >> []
+        result.isEmpty()
+    }
+
+    def "should return a keyset page with the next cursor"() {
+        given:
+        def period = new DateRange(LocalDate.now(), LocalDate.now().plusDays(1))
+        def after = UUID.randomUUID()
+        def properties = (1..3).collect { new PropertyEntity(id: UUID.randomUUID(), status: PropertyStatus.ACTIVE) }
+
+        when:
+        def page = service.findAvailableProperties(period, after, 2)
+
+        then:
+        1 * propertyRepository.findAvailablePage(period.startAt(), period.endAt(), after, 3) >> properties
+        page.properties()*.id == properties[0..1]*.id
+        page.nextCursor() == properties[1].id
+    }
+
+    def "should return the last keyset page without a cursor"() {
+        given:
+        def period = new DateRange(LocalDate.now(), LocalDate.now().plusDays(1))
+        def property = new PropertyEntity(id: UUID.randomUUID(), status: PropertyStatus.ACTIVE)
+        propertyRepository.findAvailablePage(period.startAt(), period.endAt(), null, 3) >> [property]
+
+        when:
+        def page = service.findAvailableProperties(period, null, 2)
+
+        then:
+        page.properties()*.id == [property.id]
+        page.nextCursor() == null
+    }
+
+    def "should page from the day bitmap calendar keeping its order"() {
+        given:
+        def bitmapService = new PropertyService(availabilitySearchCache, availabilityService, dayBitmapCalendar, entityManager, meterRegistry, observationRegistry, propertyMapper, propertyRepository, new PropertySearchProperties(SearchMode.BITMAP, 730, 0, Duration.ZERO), propertyStatusCache)
+        def period = new DateRange(LocalDate.now(), LocalDate.now().plusDays(1))
+        def properties = (1..3).collect { new PropertyEntity(id: UUID.randomUUID(), status: PropertyStatus.ACTIVE) }
+        dayBitmapCalendar.findAvailable(period, null, 3) >> Optional.of(properties*.id)
+
+        when:
+        def page = bitmapService.findAvailableProperties(period, null, 2)
+
+        then:
+        1 * propertyRepository.findAllById(properties*.id) >> properties.reverse()
+        0 * propertyRepository.findAvailablePage(*_)
+        page.properties()*.id == properties[0..1]*.id
+        page.nextCursor() == properties[1].id
+    }
+
+    def "should stream available properties detaching them as they are consumed"() {
+        given:
+        def period = new DateRange(LocalDate.now(), LocalDate.now().plusDays(1))
+        def properties = (1..3).collect { new PropertyEntity(id: UUID.randomUUID(), status: PropertyStatus.ACTIVE) }
+        def consumed = []
+
+        when:
+        service.streamAvailableProperties(period) { consumed << it.id() }
+
+        then:
+        1 * propertyRepository.streamAllAvailable(period.startAt(), period.endAt()) >> properties.stream()
+        3 * entityManager.detach(_ as PropertyEntity)
+        consumed == properties*.id
+    }
+
+    def "should sweep occupancies into merged calendar runs"() {
+        given:
+        def propertyId = UUID.randomUUID()
+        def base = LocalDate.now()
+        def period = new DateRange(base, base.plusDays(20))
+        propertyRepository.findOccupanciesOrdered(propertyId, period.startAt(), period.endAt()) >> [
+                view(OccupancyType.BOOKING, base.minusDays(2), base.plusDays(2)),
+                view(OccupancyType.BOOKING, base.plusDays(2), base.plusDays(4)),
+                view(OccupancyType.BLOCK, base.plusDays(4), base.plusDays(5)),
+                view(OccupancyType.BOOKING, base.plusDays(8), base.plusDays(10)),
+                view(OccupancyType.BLOCK, base.plusDays(15), base.plusDays(30))
+        ]
+
+        when:
+        def calendar = service.getCalendar(propertyId, period)
+
+        then:
+        1 * propertyRepository.getById(propertyId)
+        calendar.runs().collect { [DAYS.between(base, it.startAt()), DAYS.between(base, it.endAt()), it.type()] } == [
+                [0, 4, CalendarRunType.BOOKING],
+                [4, 5, CalendarRunType.BLOCK],
+                [5, 8, CalendarRunType.FREE],
+                [8, 10, CalendarRunType.BOOKING],
+                [10, 15, CalendarRunType.FREE],
+                [15, 20, CalendarRunType.BLOCK]
+        ]
+    }
+
+    def "should return a single free run when there are no occupancies"() {
+        given:
+        def propertyId = UUID.randomUUID()
+        def period = new DateRange(LocalDate.now(), LocalDate.now().plusDays(7))
+        propertyRepository.findOccupanciesOrdered(propertyId, period.startAt(), period.endAt()) >> []
+
+        when:
+        def calendar = service.getCalendar(propertyId, period)
+
+        then:
+        calendar.runs()*.type() == [CalendarRunType.FREE]
+        calendar.runs()[0].startAt() == period.startAt()
+        calendar.runs()[0].endAt() == period.endAt()
+    }
+
+    def "should stop sweeping the occupancies of a property once enough gaps are found"() {
+        given:
+        def propertyId = UUID.randomUUID()
+        def base = LocalDate.now()
+        def period = new DateRange(base, base.plusDays(100))
+        def read = 0
+        def rows = (0..<10).collect { view(OccupancyType.BOOKING, base.plusDays(it * 10), base.plusDays(it * 10 + 5)) }
+        propertyRepository.streamOccupanciesOrdered(propertyId, period.startAt(), period.endAt()) >> rows.stream().peek { read++ }
+
+        when:
+        def gaps = service.findNextGaps(propertyId, period, 5, 2)
+
+        then:
+        1 * propertyRepository.getById(propertyId)
+        gaps.collect { [DAYS.between(base, it.startAt()), it.nights()] } == [[5, 5], [15, 5]]
+        read == 3
+    }
+
+    private static OccupancyView view(OccupancyType type, LocalDate startAt, LocalDate endAt) {
+        return new OccupancyView() {
+            UUID getId() { UUID.randomUUID() }
+            UUID getPropertyId() { null }
+            OccupancyType getType() { type }
+            LocalDate getStartAt() { startAt }
+            LocalDate getEndAt() { endAt }
+        }
+    }
 }
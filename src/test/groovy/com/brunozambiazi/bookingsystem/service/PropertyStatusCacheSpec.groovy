@@ -0,0 +1,110 @@
+package com.brunozambiazi.bookingsystem.service
+
+import com.brunozambiazi.bookingsystem.domain.entity.PropertyEntity
+import com.brunozambiazi.bookingsystem.domain.model.PropertyChangedEvent
+import com.brunozambiazi.bookingsystem.domain.model.PropertyStatus
+import com.brunozambiazi.bookingsystem.domain.repository.PropertyRepository
+import com.brunozambiazi.bookingsystem.exception.NotFoundException
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.transaction.support.TransactionSynchronization
+import org.springframework.transaction.support.TransactionSynchronizationManager
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.time.Duration
+
+class PropertyStatusCacheSpec extends Specification {
+
+    def propertyRepository = Mock(PropertyRepository)
+    def meterRegistry = new SimpleMeterRegistry()
+
+    @Subject
+    def cache = new PropertyStatusCache(new PropertyCacheProperties(100, Duration.ofMinutes(5)), propertyRepository, meterRegistry)
+
+    def propertyId = UUID.randomUUID()
+
+    def "should read the status once and count hits and misses"() {
+        when:
+        3.times { assert cache.get(propertyId) == PropertyStatus.ACTIVE }
+
+        then:
+        1 * propertyRepository.getById(propertyId) >> property(PropertyStatus.ACTIVE)
+        gets("hit") == 2
+        gets("miss") == 1
+    }
+
+    def "should not cache missing properties"() {
+        when:
+        cache.get(propertyId)
+
+        then:
+        1 * propertyRepository.getById(propertyId) >> { throw new NotFoundException("Property not found") }
+        thrown(NotFoundException)
+
+        when:
+        def status = cache.get(propertyId)
+
+        then:
+        1 * propertyRepository.getById(propertyId) >> property(PropertyStatus.INACTIVE)
+        status == PropertyStatus.INACTIVE
+    }
+
+    def "should only load the uncached properties in bulk"() {
+        given:
+        def otherId = UUID.randomUUID()
+        def missingId = UUID.randomUUID()
+        cache.put(property(PropertyStatus.ACTIVE))
+
+        when:
+        def statuses = cache.getAll([propertyId, otherId, missingId])
+
+        then:
+        1 * propertyRepository.findAllById({ it as Set == [otherId, missingId] as Set }) >> [new PropertyEntity(id: otherId, status: PropertyStatus.INACTIVE)]
+        statuses == [(propertyId): PropertyStatus.ACTIVE, (otherId): PropertyStatus.INACTIVE]
+    }
+
+    def "should drop the property when it changes and again once the transaction completes"() {
+        given:
+        cache.put(property(PropertyStatus.ACTIVE))
+
+        when:
+        def synchronizations = inTransaction { cache.onPropertyChanged(new PropertyChangedEvent(propertyId)) }
+        cache.put(property(PropertyStatus.ACTIVE))
+        synchronizations*.afterCompletion(TransactionSynchronization.STATUS_COMMITTED)
+        def status = cache.get(propertyId)
+
+        then:
+        1 * propertyRepository.getById(propertyId) >> property(PropertyStatus.INACTIVE)
+        status == PropertyStatus.INACTIVE
+    }
+
+    def "should drop every property when invalidated"() {
+        given:
+        cache.put(property(PropertyStatus.ACTIVE))
+
+        when:
+        cache.invalidateAll()
+        cache.get(propertyId)
+
+        then:
+        1 * propertyRepository.getById(propertyId) >> property(PropertyStatus.ACTIVE)
+    }
+
+    private PropertyEntity property(PropertyStatus status) {
+        return new PropertyEntity(id: propertyId, status: status)
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "propertyStatus").tag("result", result).functionCounter().count()
+    }
+
+    private List<TransactionSynchronization> inTransaction(Closure work) {
+        TransactionSynchronizationManager.initSynchronization()
+        try {
+            work()
+            return TransactionSynchronizationManager.getSynchronizations()
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization()
+        }
+    }
+}
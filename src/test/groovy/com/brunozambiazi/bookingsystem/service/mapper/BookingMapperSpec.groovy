@@ -0,0 +1,68 @@
+package com.brunozambiazi.bookingsystem.service.mapper
+
+import com.brunozambiazi.bookingsystem.api.dto.BookingResponse
+import com.brunozambiazi.bookingsystem.api.dto.CreateBookingRequest
+import com.brunozambiazi.bookingsystem.api.dto.GuestDto
+import com.brunozambiazi.bookingsystem.api.dto.GuestList
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.ObjectReader
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.time.LocalDate
+
+class BookingMapperSpec extends Specification {
+
+    def objectMapper = new ObjectMapper().findAndRegisterModules()
+
+    @Subject
+    def mapper = new BookingMapper(objectMapper)
+
+    def "should write the stored guests JSON to the response as is"() {
+        given:
+        def entity = mapper.toEntity(request())
+        entity.guests = '[{"name":"John","email":"john@test.com"} , {"name":"Jane","email":"jane@test.com"}]'
+
+        when:
+        def json = objectMapper.writeValueAsString(mapper.toResponse(entity))
+
+        then:
+        json.contains('"guests":[{"name":"John","email":"john@test.com"} , {"name":"Jane","email":"jane@test.com"}]')
+        objectMapper.readValue(json, BookingResponse).guests() == [new GuestDto("John", "john@test.com"), new GuestDto("Jane", "jane@test.com")]
+    }
+
+    def "should parse the guests once, only when they are read"() {
+        given:
+        def json = '[{"name":"John","email":"john@test.com"}]'
+        def reader = Mock(ObjectReader)
+        def guests = new GuestList(json, reader)
+
+        when:
+        def written = objectMapper.writeValueAsString(guests)
+
+        then:
+        written == json
+        0 * reader._
+
+        when:
+        guests.size()
+        guests[0]
+
+        then:
+        1 * reader.readValue(json) >> [new GuestDto("John", "john@test.com")]
+        guests == [new GuestDto("John", "john@test.com")]
+    }
+
+    def "should round trip the guests of a request"() {
+        when:
+        def response = mapper.toResponse(mapper.toEntity(request()))
+
+        then:
+        response.guests() == [new GuestDto("John", "john@test.com")]
+        response.guests()[0].name() == "John"
+    }
+
+    private static CreateBookingRequest request() {
+        return new CreateBookingRequest(UUID.randomUUID(), LocalDate.now().plusDays(1), LocalDate.now().plusDays(3), [new GuestDto("John", "john@test.com")])
+    }
+}